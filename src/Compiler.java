@@ -1,14 +1,20 @@
 import backend.ARMInstructionGenerator;
+import backend.ARMInstructionLowering;
 import backend.ARMInstructionPrinter;
+import backend.ARMInstructionPrinter.OptimizationLevel;
 import backend.directives.CodeSegment;
 import backend.directives.DataSegment;
 import backend.directives.TextSegment;
+import backend.instructions.Instruction;
+import backend.instructions.Label;
 import frontend.ASTPrinter;
 import frontend.SemanticChecker;
 import frontend.antlr.WACCLexer;
 import frontend.antlr.WACCParser;
 import frontend.antlr.WACCParser.ProgramContext;
 import frontend.node.Node;
+import ir.IRGenerator;
+import ir.IRProgram;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -18,15 +24,18 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import optimize.ConstantEvaluation;
+import optimize.IROptimizer;
+import optimize.InstructionOptimizer;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
+import utils.backend.register.RegisterAllocator;
 import utils.frontend.ParserErrorHandler;
 
 public class Compiler {
 
-  private static Object OptimizationLevel;
-
   public static void main(String[] args) {
     // Processing command line input
     if (args.length < 1) {
@@ -67,13 +76,64 @@ public class Compiler {
         }
 
         if (cmd_ops.contains("--assembly")) {
-          ARMInstructionGenerator generator = new ARMInstructionGenerator();
-          generator.visit(program);
-          DataSegment data = new DataSegment(generator.getDataSegmentMessages());
+          OptimizationLevel optimizationLevel = parseOptimizationLevel(cmd_ops);
+          /* `--optimize_size` keeps the runtime checks out of line, in the p_check_* routines */
+          boolean optimizeSize = cmd_ops.contains("--optimize_size");
+          /* `--arena_alloc` takes pairs and arrays from the runtime arena allocator, not malloc */
+          boolean arenaAlloc = cmd_ops.contains("--arena_alloc");
+          /* `--print_stats` reports what the register allocator and the optimisations did */
+          boolean printStats = cmd_ops.contains("--print_stats");
+          if (optimizationLevel.compareTo(OptimizationLevel.CONSTANT_EVAL) >= 0) {
+            new ConstantEvaluation().visit(program);
+          }
+          List<Instruction> instructions;
+          Map<Label, String> dataSegmentMessages;
+          RegisterAllocator registerAllocator;
+          long registerAllocationTime;
+          /* the optimizing levels translate through the IR, the others go straight to ARM */
+          if (optimizationLevel.compareTo(OptimizationLevel.CONSTANT_PROPAGATION) >= 0) {
+            IRGenerator irGenerator = new IRGenerator();
+            irGenerator.visit(program);
+            IRProgram irProgram = irGenerator.getProgram();
+            IROptimizer irOptimizer = new IROptimizer(optimizationLevel);
+            irOptimizer.optimize(irProgram);
+            if (printStats && !irOptimizer.getHoistedInstructions().isEmpty()) {
+              System.out.println("Loop invariant instructions hoisted: "
+                  + irOptimizer.getHoistedInstructions());
+            }
+            if (cmd_ops.contains("--print_ir")) {
+              System.out.println(irProgram);
+            }
+            ARMInstructionLowering lowering = new ARMInstructionLowering(optimizeSize, arenaAlloc);
+            lowering.lower(irProgram);
+            instructions = lowering.getInstructions();
+            dataSegmentMessages = lowering.getDataSegmentMessages();
+            registerAllocator = lowering.getRegisterAllocator();
+            registerAllocationTime = lowering.getRegisterAllocationTime();
+          } else {
+            ARMInstructionGenerator generator = new ARMInstructionGenerator(optimizationLevel,
+                optimizeSize, arenaAlloc);
+            generator.visit(program);
+            instructions = generator.getInstructions();
+            dataSegmentMessages = generator.getDataSegmentMessages();
+            registerAllocator = generator.getRegisterAllocator();
+            registerAllocationTime = generator.getRegisterAllocationTime();
+          }
+          InstructionOptimizer instructionOptimizer = new InstructionOptimizer(optimizationLevel);
+          instructions = instructionOptimizer.optimize(instructions, dataSegmentMessages);
+          if (printStats) {
+            System.out.println("Register allocation ("
+                + registerAllocator.getClass().getSimpleName() + ") took "
+                + registerAllocationTime / 1000000.0 + " ms");
+          }
+          if (printStats && optimizationLevel.compareTo(OptimizationLevel.PEEPHOLE) >= 0) {
+            System.out.println("Peephole rules applied: " + instructionOptimizer.getPeepholeRuleCounts());
+          }
+          DataSegment data = new DataSegment(dataSegmentMessages);
           TextSegment text = new TextSegment();
-          CodeSegment code = new CodeSegment(generator.getInstructions());
+          CodeSegment code = new CodeSegment(instructions);
           ARMInstructionPrinter printer = new ARMInstructionPrinter(data, text, code,
-              ARMInstructionPrinter.OptimizationLevel.NONE);
+              optimizationLevel);
 
           File asmFile = new File(file.getName().replaceFirst("[.][^.]+$", "") + ".s");
 
@@ -93,4 +153,20 @@ public class Compiler {
       System.out.println("ERROR in Compile.java: IOException has been raised in Compile.java");
     }
   }
+
+  /* `--optimize <level>` selects OptimizationLevel.values()[level], default is NONE */
+  private static OptimizationLevel parseOptimizationLevel(List<String> cmd_ops) {
+    int index = cmd_ops.indexOf("--optimize");
+    if (index < 0 || index + 1 >= cmd_ops.size()) {
+      return OptimizationLevel.NONE;
+    }
+    OptimizationLevel[] levels = OptimizationLevel.values();
+    try {
+      int level = Integer.parseInt(cmd_ops.get(index + 1));
+      return levels[Math.max(0, Math.min(level, levels.length - 1))];
+    } catch (NumberFormatException e) {
+      System.out.println("Invalid optimization level '" + cmd_ops.get(index + 1) + "', using level 0");
+      return OptimizationLevel.NONE;
+    }
+  }
 }
@@ -11,10 +11,10 @@ import static utils.Utils.RoutineInstruction;
 import static utils.Utils.RoutineInstruction.*;
 import static utils.Utils.SystemCallInstruction.*;
 import static utils.Utils.*;
-import static utils.backend.ARMInstructionRoutines.routineFunctionMap;
 import static utils.backend.Cond.*;
 import static utils.backend.register.ARMConcreteRegister.*;
 
+import backend.ARMInstructionPrinter.OptimizationLevel;
 import backend.instructions.*;
 import backend.instructions.LDR.LdrMode;
 import backend.instructions.STR.StrMode;
@@ -31,27 +31,38 @@ import frontend.node.stat.*;
 import frontend.type.Type;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import utils.NodeVisitor;
+import utils.backend.Cond;
+import utils.backend.ImmediateLegalizer;
 import utils.backend.LabelGenerator;
-import utils.backend.register.ARMConcreteRegister;
-import utils.backend.register.ARMConcreteRegisterAllocator;
+import utils.backend.RoutineLinker;
+import utils.backend.register.GraphColoringRegisterAllocator;
+import utils.backend.register.LinearScanRegisterAllocator;
+import utils.backend.register.PseudoRegister;
+import utils.backend.register.PseudoRegisterAllocator;
 import utils.backend.register.Register;
+import utils.backend.register.RegisterAllocator;
+import utils.frontend.symbolTable.Symbol;
 import utils.frontend.symbolTable.SymbolTable;
 
 public class ARMInstructionGenerator implements NodeVisitor<Void> {
 
-  /* maximum of bytes that can be added/subtracted from the stack pointer */
-  public static int MAX_STACK_STEP = (1 << 10);
   /* const used in visitBinop, for checking multiply overflow */
   public static int ASR_SHIFT_CONST = 31;
 
-  /* the ARM concrete register allocator */
-  private final ARMConcreteRegisterAllocator armRegAllocator;
+  /* the pseudo register allocator, every expression is evaluated into fresh pseudo registers */
+  private final PseudoRegisterAllocator pseudoRegAllocator;
+  /* maps the pseudo registers of each translated function onto ARM registers */
+  private final RegisterAllocator registerAllocator;
+  /* nanoseconds spent in registerAllocator, reported separately from the rest of code generation */
+  private long registerAllocationTime;
+  /* local variables and parameters are kept in their own pseudo register, the stack slot
+   * reserved by the semantic checker is only used when reading into the variable */
+  private final Map<Symbol, PseudoRegister> variableRegisters;
   /* the code section of the assembly code */
   private final List<Instruction> instructions;
   /* the .data section of the assembly code */
@@ -60,11 +71,8 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
   private final LabelGenerator branchLabelGenerator;
   /* call getLabel() on msgLabelGenerator to get label in the format of "msg_0, msg_1, msg_2, ..."*/
   private final LabelGenerator msgLabelGenerator;
-  /* a list of instructions for storing different helper functions
-   * would be appended to the end of instructions list while printing */
-  private final List<Instruction> ARMRoutines;
-  /* record which helpers already exist, we don't want repeated helper functions */
-  private final Set<RoutineInstruction> alreadyExist;
+  /* the helper functions called by the program, appended to the end of instructions list while printing */
+  private final RoutineLinker routineLinker;
   /* used for mapping type with its print routine function */
   private final Map<Type, RoutineInstruction> typeRoutineMap = Map.of(
       INT_BASIC_TYPE, PRINT_INT,
@@ -79,60 +87,89 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
   private SymbolTable currSymbolTable;
   /* mark if we are visiting a lhs or rhs of an expr */
   private boolean isLhs;
-  /* offset used when pushing variable in stack in visitFunctionCall
-   * USED FOR evaluating function parameters, not for changing parameters' offset in function body*/
-  private int stackOffset;
   /* used by visitFunc and visitReturn, set how many byte this function used on stack
      accumulated, on enter a new scope, decrease on exit
      no need to distinguish function and non function scope, as non function scope does not call return */
   private int funcStackSize;
+  /* runtime checks call the check routines instead of comparing inline, for smaller code */
+  private final boolean optimizeSize;
+  /* heap objects come from the arena allocator routines instead of malloc and free */
+  private final boolean arenaAlloc;
 
   public ARMInstructionGenerator() {
-    armRegAllocator = new ARMConcreteRegisterAllocator();
+    this(OptimizationLevel.NONE);
+  }
+
+  public ARMInstructionGenerator(OptimizationLevel optimizationLevel) {
+    this(optimizationLevel, false, false);
+  }
+
+  public ARMInstructionGenerator(OptimizationLevel optimizationLevel, boolean optimizeSize,
+      boolean arenaAlloc) {
+    this.optimizeSize = optimizeSize;
+    this.arenaAlloc = arenaAlloc;
+    pseudoRegAllocator = new PseudoRegisterAllocator();
+    /* linear scan is near linear in the size of the function, graph colouring gives better code */
+    registerAllocator = optimizationLevel.compareTo(OptimizationLevel.CONSTANT_PROPAGATION) < 0
+        ? new LinearScanRegisterAllocator(pseudoRegAllocator)
+        : new GraphColoringRegisterAllocator(pseudoRegAllocator);
+    registerAllocationTime = 0;
+    variableRegisters = new HashMap<>();
     instructions = new ArrayList<>();
     dataSegmentMessages = new LinkedHashMap<>();
     currSymbolTable = null;
     branchLabelGenerator = new LabelGenerator(BRANCH_HEADER);
     msgLabelGenerator = new LabelGenerator(MSG_HEADER);
-    stackOffset = 0;
-    ARMRoutines = new ArrayList<>();
-    alreadyExist = new HashSet<>();
+    routineLinker = new RoutineLinker(msgLabelGenerator, dataSegmentMessages);
     isLhs = false;
   }
 
   @Override
   public Void visitArrayElemNode(ArrayElemNode node) {
-    /* get the address of this array and store it in an available register */
-    Register addrReg = armRegAllocator.allocate();
-    int offset = currSymbolTable.getSize()
-        - currSymbolTable.getStackOffset(node.getName(), node.getSymbol())
-        + stackOffset;
-    instructions.add(new Add(addrReg, SP, new Operand2(offset)));
+    /* get the pointer to this array and store it in an available register */
+    Register addrReg = pseudoRegAllocator.allocate();
+    instructions.add(new Mov(addrReg, new Operand2(variableRegister(node.getSymbol()))));
 
-    checkAndAddRoutine(CHECK_ARRAY_BOUND, msgLabelGenerator, dataSegmentMessages);
-    checkAndAddRoutine(THROW_RUNTIME_ERROR, msgLabelGenerator, dataSegmentMessages);
+    if (optimizeSize) {
+      routineLinker.link(CHECK_ARRAY_BOUND);
+    } else {
+      routineLinker.link(THROW_NEGATIVE_INDEX_ERROR);
+      routineLinker.link(THROW_INDEX_TOO_LARGE_ERROR);
+    }
 
     Register indexReg;
+    /* indices are always evaluated as rhs, even if the array element is the lhs */
+    boolean isLhsOutside = isLhs;
+    isLhs = false;
     for (int i = 0; i < node.getDepth(); i++) {
       /* load the index at depth `i` to the next available register */
       ExprNode index = node.getIndex().get(i);
       if (!(index instanceof IntegerNode)) {
         visit(index);
-        indexReg = armRegAllocator.curr();
-        if (isLhs) {
-          instructions.add(new LDR(indexReg, new AddressingMode2(OFFSET, indexReg)));
-        }
+        indexReg = pseudoRegAllocator.curr();
       } else {
-        indexReg = armRegAllocator.allocate();
-        instructions
-            .add(new LDR(indexReg, new ImmediateAddressing(((IntegerNode) index).getVal())));
+        indexReg = pseudoRegAllocator.allocate();
+        instructions.addAll(
+            ImmediateLegalizer.materialize(indexReg, ((IntegerNode) index).getVal()));
       }
 
-      /* check array bound */
-      instructions.add(new LDR(addrReg, new AddressingMode2(OFFSET, addrReg)));
-      instructions.add(new Mov(r0, new Operand2(indexReg)));
-      instructions.add(new Mov(r1, new Operand2(addrReg)));
-      instructions.add(new BL(CHECK_ARRAY_BOUND.toString()));
+      /* from the second depth on, addrReg holds the address of the inner array pointer */
+      if (i > 0) {
+        instructions.add(new LDR(addrReg, new AddressingMode2(OFFSET, addrReg)));
+      }
+
+      /* check array bound, r1 is free to hold the length */
+      if (optimizeSize) {
+        instructions.add(new Mov(r0, new Operand2(indexReg)));
+        instructions.add(new Mov(r1, new Operand2(addrReg)));
+        instructions.add(new BL(CHECK_ARRAY_BOUND.toString()));
+      } else {
+        instructions.add(new Cmp(indexReg, new Operand2(0)));
+        instructions.add(new BL(LT, THROW_NEGATIVE_INDEX_ERROR.toString()));
+        instructions.add(new LDR(r1, new AddressingMode2(OFFSET, addrReg)));
+        instructions.add(new Cmp(indexReg, new Operand2(r1)));
+        instructions.add(new BL(CS, THROW_INDEX_TOO_LARGE_ERROR.toString()));
+      }
 
       instructions.add(new Add(addrReg, addrReg, new Operand2(POINTER_SIZE)));
 
@@ -140,8 +177,9 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
       instructions.add(new Add(addrReg, addrReg, new Operand2(indexReg, LSL, elemSize)));
 
       /* free indexReg to make it available for the indexing of the next depth */
-      armRegAllocator.free();
+      pseudoRegAllocator.free();
     }
+    isLhs = isLhsOutside;
 
     /* if is not lhs, load the array content to `reg` */
     if (!isLhs) {
@@ -159,11 +197,11 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
     size += POINTER_SIZE;
 
     /* load R0 with the number of bytes needed and malloc  */
-    instructions.add(new LDR(r0, new ImmediateAddressing(size)));
-    instructions.add(new BL(MALLOC.toString()));
+    instructions.addAll(ImmediateLegalizer.materialize(r0, size));
+    allocate(ALLOC_ARRAY);
 
     /* then MOV the result pointer of the array to the next available register */
-    Register addrReg = armRegAllocator.allocate();
+    Register addrReg = pseudoRegAllocator.allocate();
 
     instructions.add(new Mov(addrReg, new Operand2(r0)));
 
@@ -174,16 +212,16 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
       visit(node.getElem(i));
       int STRIndex = i * node.getContentSize() + WORD_SIZE;
       instructions.add(
-          new STR(armRegAllocator.curr(), new AddressingMode2(OFFSET, addrReg, STRIndex), mode));
-      armRegAllocator.free();
+          new STR(pseudoRegAllocator.curr(), new AddressingMode2(OFFSET, addrReg, STRIndex), mode));
+      pseudoRegAllocator.free();
     }
 
-    Register sizeReg = armRegAllocator.allocate();
+    Register sizeReg = pseudoRegAllocator.allocate();
     /* STR the size of the array in the first byte */
-    instructions.add(new LDR(sizeReg, new ImmediateAddressing(node.getLength())));
+    instructions.addAll(ImmediateLegalizer.materialize(sizeReg, node.getLength()));
     instructions.add(new STR(sizeReg, new AddressingMode2(OFFSET, addrReg)));
 
-    armRegAllocator.free();
+    pseudoRegAllocator.free();
 
     return null;
   }
@@ -194,52 +232,72 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
     ExprNode expr2 = node.getExpr2();
     Register e1reg, e2reg;
 
+    if (node.isShortCircuit()) {
+      /* expr1 is the result unless it is TRUE for && or FALSE for ||, then expr2 is */
+      Label exitLabel = branchLabelGenerator.getLabel();
+      visit(expr1);
+      Register resultReg = pseudoRegAllocator.curr();
+      instructions.add(new Cmp(resultReg, new Operand2(FALSE)));
+      instructions.add(new B(node.getOperator() == Binop.AND ? EQ : NE, exitLabel.getName()));
+      visit(expr2);
+      instructions.add(new Mov(resultReg, new Operand2(pseudoRegAllocator.curr())));
+      pseudoRegAllocator.free();
+      instructions.add(exitLabel);
+      return null;
+    }
+
     /* potential optimise here */
     if (expr1.getWeight() >= expr2.getWeight()) {
       visit(expr1);
       visit(expr2);
-      e2reg = armRegAllocator.curr();
-      e1reg = armRegAllocator.last();
+      e2reg = pseudoRegAllocator.curr();
+      e1reg = pseudoRegAllocator.last();
     } else {
       visit(expr2);
       visit(expr1);
-      e2reg = armRegAllocator.last();
-      e1reg = armRegAllocator.curr();
+      e2reg = pseudoRegAllocator.last();
+      e1reg = pseudoRegAllocator.curr();
     }
 
     Binop operator = node.getOperator();
     Operand2 op2 = new Operand2(e2reg);
 
-    List<Instruction> insList = ArithmeticLogic.binopInstruction
-        .get(operator)
-        .binopAssemble(e1reg, e1reg, op2, operator);
+    boolean isDivMod = operator == Binop.DIV || operator == Binop.MOD;
+    if (isDivMod && !optimizeSize) {
+      instructions.add(new Cmp(e2reg, new Operand2(0)));
+      instructions.add(new BL(EQ, THROW_DIVIDE_BY_ZERO_ERROR.toString()));
+      routineLinker.link(THROW_DIVIDE_BY_ZERO_ERROR);
+    }
+    BinopAssemble assemble = isDivMod && !optimizeSize ? ArithmeticLogic.UncheckedDivModAsm
+        : ArithmeticLogic.binopInstruction.get(operator);
+    List<Instruction> insList = assemble.binopAssemble(e1reg, e1reg, op2, operator);
     instructions.addAll(insList);
-    if (operator == Binop.DIV || operator == Binop.MOD) {
-      checkAndAddRoutine(CHECK_DIVIDE_BY_ZERO, msgLabelGenerator, dataSegmentMessages);
+    if (isDivMod && optimizeSize) {
+      routineLinker.link(CHECK_DIVIDE_BY_ZERO);
     }
 
     if (operator == Binop.PLUS || operator == Binop.MINUS) {
       instructions.add(new BL(VS, THROW_OVERFLOW_ERROR.toString()));
-      checkAndAddRoutine(THROW_OVERFLOW_ERROR, msgLabelGenerator, dataSegmentMessages);
+      routineLinker.link(THROW_OVERFLOW_ERROR);
     }
 
     if (operator == Binop.MUL) {
       instructions.add(new Cmp(e2reg, new Operand2(e1reg, ASR, ASR_SHIFT_CONST)));
       instructions.add(new BL(NE, THROW_OVERFLOW_ERROR.toString()));
-      checkAndAddRoutine(THROW_OVERFLOW_ERROR, msgLabelGenerator, dataSegmentMessages);
+      routineLinker.link(THROW_OVERFLOW_ERROR);
     }
 
     if (expr1.getWeight() < expr2.getWeight()) {
       instructions.add(new Mov(e2reg, new Operand2(e1reg)));
     }
-    armRegAllocator.free();
+    pseudoRegAllocator.free();
 
     return null;
   }
 
   @Override
   public Void visitBoolNode(BoolNode node) {
-    ARMConcreteRegister reg = armRegAllocator.allocate();
+    Register reg = pseudoRegAllocator.allocate();
     int val = node.getVal() ? TRUE : FALSE;
     Operand2 operand2 = new Operand2(val);
     instructions.add(new Mov(reg, operand2));
@@ -248,7 +306,7 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
 
   @Override
   public Void visitCharNode(CharNode node) {
-    ARMConcreteRegister reg = armRegAllocator.allocate();
+    Register reg = pseudoRegAllocator.allocate();
     Immediate immed = new Immediate(node.getAsciiValue(), CONST8, true);
     instructions.add(new Mov(reg, new Operand2(immed)));
     return null;
@@ -256,76 +314,67 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
 
   @Override
   public Void visitIntegerNode(IntegerNode node) {
-    ARMConcreteRegister reg = armRegAllocator.allocate();
-    instructions.add(new LDR(reg, new ImmediateAddressing(node.getVal())));
+    Register reg = pseudoRegAllocator.allocate();
+    instructions.addAll(ImmediateLegalizer.materialize(reg, node.getVal()));
     return null;
   }
 
   @Override
   public Void visitFunctionCallNode(FunctionCallNode node) {
-    /*
-     * 1 compute parameters, all parameter in stack also add into function's
-     * identmap
-     */
+    /* 1 evaluate the parameters from the last one, keeping all of them in registers until the call */
     List<ExprNode> params = node.getParams();
-    int paramSize = 0;
-    stackOffset = 0;
     int paramNum = params.size();
-
+    List<Register> paramRegs = new ArrayList<>(Collections.nCopies(paramNum, null));
     for (int i = paramNum - 1; i >= 0; i--) {
-      ExprNode expr = params.get(i);
-      Register reg = armRegAllocator.next();
-      visit(expr);
-      int size = expr.getType().getSize();
-      StrMode mode = size > 1 ? STR : STRB;
-      instructions.add(new STR(reg, new AddressingMode2(PREINDEX, SP, -size), mode));
-      armRegAllocator.free();
+      visit(params.get(i));
+      paramRegs.set(i, pseudoRegAllocator.curr());
+    }
+
+    /* 2 the parameters after the first MAX_REGISTER_PARAMS go to an outgoing area reserved at once,
+     *   the first one at the lowest address */
+    int paramSize = 0;
+    for (int i = MAX_REGISTER_PARAMS; i < paramNum; i++) {
+      paramSize += params.get(i).getType().getSize();
+    }
+    if (paramSize > 0) {
+      instructions.add(new Sub(SP, SP, new Operand2(paramSize)));
+    }
+    int offset = 0;
+    for (int i = MAX_REGISTER_PARAMS; i < paramNum; i++) {
+      int size = params.get(i).getType().getSize();
+      instructions.add(new STR(paramRegs.get(i), new AddressingMode2(OFFSET, SP, offset),
+          size > 1 ? STR : STRB));
+      offset += size;
+    }
 
-      paramSize += size;
-      stackOffset += size;
+    /* 3 the first parameters in r0 - r3, only once nothing else can overwrite them */
+    for (int i = 0; i < Math.min(paramNum, MAX_REGISTER_PARAMS); i++) {
+      instructions.add(new Mov(RegisterAllocator.PARAM_REGISTERS.get(i), new Operand2(paramRegs.get(i))));
+    }
+    for (int i = 0; i < paramNum; i++) {
+      pseudoRegAllocator.free();
     }
-    stackOffset = 0;
 
-    /* 2 call function with B instruction */
+    /* 4 call function with B instruction */
     instructions.add(new BL(FUNC_HEADER + node.getFunction().getFunctionName()));
 
-    /* 3 add back stack pointer */
+    /* 5 add back stack pointer */
     if (paramSize > 0) {
       instructions.add(new Add(SP, SP, new Operand2(paramSize)));
     }
 
-    /* 4 get result, put in register */
-    instructions.add(new Mov(armRegAllocator.allocate(), new Operand2(r0)));
+    /* 6 get result, put in register */
+    instructions.add(new Mov(pseudoRegAllocator.allocate(), new Operand2(r0)));
 
     return null;
   }
 
   @Override
   public Void visitIdentNode(IdentNode node) {
-
-    int identTypeSize = node.getType().getSize();
-    /* put pointer that point to ident's value in stack to next available register */
-    int offset = currSymbolTable.getSize()
-        - currSymbolTable.getStackOffset(node.getName(), node.getSymbol())
-        + stackOffset;
-    LdrMode mode;
-    if (identTypeSize > 1) {
-      mode = LDR;
-    } else {
-      mode = LDRSB;
-    }
-
-    /* if is lhs, then only put address in register */
-    if (isLhs) {
-      instructions.add(new Add(
-          armRegAllocator.allocate(),
-          SP, new Operand2(offset)));
-    } else {
-      /* otherwise, put value in register */
-      instructions.add(new LDR(
-          armRegAllocator.allocate(),
-          new AddressingMode2(OFFSET, SP, offset), mode));
-    }
+    /* copy the value of the variable to the next available register,
+     * lhs idents are handled by visitAssignNode and visitReadNode */
+    instructions.add(new Mov(pseudoRegAllocator.allocate(),
+        new Operand2(variableRegister(node.getSymbol()))));
     return null;
   }
 
@@ -336,36 +385,33 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
      *   reg is expected register where visit will put value in */
 
     /* e.g. read fst a, (fst a) is used as lhs but (a) is used as rhs */
-    Register reg = armRegAllocator.next();
+    Register reg = pseudoRegAllocator.next();
     boolean isLhsOutside = isLhs;
     isLhs = false;
     visit(node.getPair());
     isLhs = isLhsOutside;
 
-    /* 2 move pair pointer to r0, prepare for null pointer check  */
-    instructions.add(new Mov(r0, new Operand2(reg)));
-
-    /* 3 BL null pointer check */
-    instructions.add(new BL(CHECK_NULL_POINTER.toString()));
-
-    checkAndAddRoutine(CHECK_NULL_POINTER, msgLabelGenerator, dataSegmentMessages);
-
-    /* 4 get pointer to child
-     *   store in the same register, save register space
-     *   no need to check whether child has initialised, as it is in lhs */
-    AddressingMode2 addrMode;
-
-    if (node.isFirst()) {
-      addrMode = new AddressingMode2(OFFSET, reg);
+    /* 2 null pointer check, either inline or by moving the pair pointer to r0 for the routine */
+    if (optimizeSize) {
+      instructions.add(new Mov(r0, new Operand2(reg)));
+      instructions.add(new BL(CHECK_NULL_POINTER.toString()));
+      routineLinker.link(CHECK_NULL_POINTER);
     } else {
-      addrMode = new AddressingMode2(OFFSET, reg, POINTER_SIZE);
+      instructions.add(new Cmp(reg, new Operand2(0)));
+      instructions.add(new BL(EQ, THROW_NULL_REFERENCE_ERROR.toString()));
+      routineLinker.link(THROW_NULL_REFERENCE_ERROR);
     }
 
+    /* 3 the children are the two words of the pair, stored in the same register
+     *   as lhs the address of the child is needed, as rhs its value */
+    int offset = node.isFirst() ? 0 : WORD_SIZE;
     if (isLhs) {
-      instructions.add(new LDR(reg, addrMode));
+      if (offset != 0) {
+        instructions.add(new Add(reg, reg, new Operand2(offset)));
+      }
     } else {
-      instructions.add(new LDR(reg, addrMode));
-      instructions.add(new LDR(reg, new AddressingMode2(OFFSET, reg)));
+      LdrMode mode = node.getType().getSize() > 1 ? LDR : LDRSB;
+      instructions.add(new LDR(reg, new AddressingMode2(OFFSET, reg, offset), mode));
     }
 
     return null;
@@ -376,46 +422,40 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
     /* null is also a pairNode
      *  if one of child is null, the other has to be null */
     if (node.getFst() == null || node.getSnd() == null) {
-      instructions.add(new LDR(armRegAllocator.allocate(), new ImmediateAddressing(0)));
+      instructions.addAll(ImmediateLegalizer.materialize(pseudoRegAllocator.allocate(), 0));
       return null;
     }
 
     /* 1 malloc pair */
     /* 1.1 move size of a pair in r0
-     *    pair in heap is 2 pointers, so 8 byte */
-    instructions.add(new LDR(r0, new ImmediateAddressing(2 * POINTER_SIZE)));
+     *    pair in heap holds both children in a word each, so 8 byte */
+    instructions.addAll(ImmediateLegalizer.materialize(r0, 2 * WORD_SIZE));
 
     /* 1.2 BL malloc and get pointer in general use register*/
-    instructions.add(new BL(MALLOC.toString()));
-    Register pairPointer = armRegAllocator.allocate();
+    allocate(ALLOC_PAIR);
+    Register pairPointer = pseudoRegAllocator.allocate();
 
     instructions.add(new Mov(pairPointer, new Operand2(r0)));
 
     /* 2 visit both child */
     visitPairChildExpr(node.getFst(), pairPointer, 0);
-    /* pair contains two pointers, each with size 4 */
+    /* pair contains two words, each with size 4 */
     visitPairChildExpr(node.getSnd(), pairPointer, WORD_SIZE);
 
     return null;
   }
 
   private void visitPairChildExpr(ExprNode child, Register pairPointer, int offset) {
-    /* 1 visit fst expression, get result in general register */
-    Register fstVal = armRegAllocator.next();
+    /* 1 visit child expression, get result in general register */
+    Register childVal = pseudoRegAllocator.next();
     visit(child);
 
-    /* 2 move size of fst child in r0 */
-    instructions.add(new LDR(r0, new ImmediateAddressing(child.getType().getSize())));
-
-    /* 3 BL malloc, assign child value and get pointer in heap area pairPointer[0] or [1] */
-    instructions.add(new BL(MALLOC.toString()));
-
+    /* 2 store child value into pairPointer[0] or [1] */
     StrMode mode = child.getType().getSize() > 1 ? STR : STRB;
-    instructions.add(new STR(fstVal, new AddressingMode2(OFFSET, r0), mode));
-    instructions.add(new STR(r0, new AddressingMode2(OFFSET, pairPointer, offset)));
+    instructions.add(new STR(childVal, new AddressingMode2(OFFSET, pairPointer, offset), mode));
 
     /* free register used for storing child's value */
-    armRegAllocator.free();
+    pseudoRegAllocator.free();
   }
 
   @Override
@@ -426,7 +466,7 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
     dataSegmentMessages.put(msgLabel, str);
 
     /* Add the instructions */
-    ARMConcreteRegister reg = armRegAllocator.allocate();
+    Register reg = pseudoRegAllocator.allocate();
 
     Addressing strLabel = new LabelAddressing(msgLabel);
     instructions.add(new LDR(reg, strLabel));
@@ -437,7 +477,7 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
   @Override
   public Void visitUnopNode(UnopNode node) {
     visit(node.getExpr());
-    Register reg = armRegAllocator.curr();
+    Register reg = pseudoRegAllocator.curr();
     Unop operator = node.getOperator();
 
     List<Instruction> insList = unopInstruction
@@ -447,7 +487,7 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
 
     if (operator == MINUS) {
       instructions.add(new BL(VS, THROW_OVERFLOW_ERROR.toString()));
-      checkAndAddRoutine(THROW_OVERFLOW_ERROR, msgLabelGenerator, dataSegmentMessages);
+      routineLinker.link(THROW_OVERFLOW_ERROR);
     }
 
     return null;
@@ -458,43 +498,46 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
     /* visit rhs */
     visit(node.getRhs());
 
+    /* a variable is assigned by moving the value into its register */
+    if (node.getLhs() instanceof IdentNode) {
+      instructions.add(new Mov(variableRegister(((IdentNode) node.getLhs()).getSymbol()),
+          new Operand2(pseudoRegAllocator.curr())));
+      pseudoRegAllocator.free();
+      return null;
+    }
+
     /* visit lhs */
     isLhs = true;
     visit(node.getLhs());
     isLhs = false;
 
-    ARMConcreteRegister reg = armRegAllocator.last();
+    Register reg = pseudoRegAllocator.last();
     StrMode mode = node.getRhs().getType().getSize() > 1 ? STR : STRB;
 
     instructions.add(new STR(reg,
-        new AddressingMode2(OFFSET, armRegAllocator.curr()), mode));
-    armRegAllocator.free();
-    armRegAllocator.free();
+        new AddressingMode2(OFFSET, pseudoRegAllocator.curr()), mode));
+    pseudoRegAllocator.free();
+    pseudoRegAllocator.free();
     return null;
   }
 
   @Override
   public Void visitDeclareNode(DeclareNode node) {
     visit(node.getRhs());
-    int identTypeSize = node.getRhs().getType().getSize();
-    StrMode strMode = identTypeSize == 1 ? STRB : STR;
+    Symbol symbol = node.getScope().lookup(node.getIdentifier());
 
-    int offset = currSymbolTable.getSize() -
-        node.getScope().lookup(node.getIdentifier()).getStackOffset();
-
-    instructions.add(new STR(armRegAllocator.curr(),
-        new AddressingMode2(OFFSET, SP, offset), strMode));
-    armRegAllocator.free();
+    instructions.add(new Mov(variableRegister(symbol), new Operand2(pseudoRegAllocator.curr())));
+    pseudoRegAllocator.free();
     return null;
   }
 
   @Override
   public Void visitExitNode(ExitNode node) {
-    /* If regs were allocated correctly for every statement
-     * then the argument value of exit would be put into r4 */
+    /* the argument value of exit is put into the current register */
     visit(node.getValue());
-    /* Mov the argument value from r4 to r0 */
-    instructions.add(new Mov(r0, new Operand2(r4)));
+    /* Mov the argument value to r0 */
+    instructions.add(new Mov(r0, new Operand2(pseudoRegAllocator.curr())));
+    pseudoRegAllocator.free();
     /* Call the exit function */
     instructions.add(new BL(EXIT.toString()));
 
@@ -504,14 +547,17 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
   @Override
   public Void visitFreeNode(FreeNode node) {
     visit(node.getExpr());
-    instructions.add(new Mov(r0, new Operand2(armRegAllocator.curr())));
-    armRegAllocator.free();
+    instructions.add(new Mov(r0, new Operand2(pseudoRegAllocator.curr())));
+    pseudoRegAllocator.free();
 
     Type type = node.getExpr().getType();
     RoutineInstruction routine = type.equalToType(ARRAY_TYPE) ? FREE_ARRAY : FREE_PAIR;
+    if (arenaAlloc) {
+      routine = routine == FREE_ARRAY ? ARENA_FREE_ARRAY : ARENA_FREE_PAIR;
+    }
 
     instructions.add(new BL(routine.toString()));
-    checkAndAddRoutine(routine, msgLabelGenerator, dataSegmentMessages);
+    routineLinker.link(routine);
 
     return null;
   }
@@ -522,11 +568,7 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
     Label exitLabel = branchLabelGenerator.getLabel();
 
     /* 1 condition check, branch */
-    visit(node.getCond());
-    Register cond = armRegAllocator.curr();
-    instructions.add(new Cmp(cond, new Operand2(1)));
-    instructions.add(new B(EQ, ifLabel.getName()));
-    armRegAllocator.free();
+    branchOnCondition(node.getCond(), ifLabel, true);
 
     /* 2 elseBody translate */
     visit(node.getElseBody());
@@ -548,7 +590,7 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
     visitPrintNode(new PrintNode(node.getExpr()));
 
     instructions.add(new BL(PRINT_LN.toString()));
-    checkAndAddRoutine(PRINT_LN, msgLabelGenerator, dataSegmentMessages);
+    routineLinker.link(PRINT_LN);
 
     return null;
   }
@@ -556,35 +598,51 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
   @Override
   public Void visitPrintNode(PrintNode node) {
     visit(node.getExpr());
-    instructions.add(new Mov(r0, new Operand2(armRegAllocator.curr())));
+    instructions.add(new Mov(r0, new Operand2(pseudoRegAllocator.curr())));
 
     Type type = node.getExpr().getType();
     RoutineInstruction routine = typeRoutineMap.get(type);
 
     instructions.add(new BL(routine.toString()));
-    checkAndAddRoutine(routine, msgLabelGenerator, dataSegmentMessages);
+    routineLinker.link(routine);
 
-    armRegAllocator.free();
+    pseudoRegAllocator.free();
     return null;
   }
 
   @Override
   public Void visitReadNode(ReadNode node) {
+    /* get the type of expr to determine whether we need to read an int or a char */
+    Type type = node.getInputExpr().getType();
+    RoutineInstruction routine = (type.equalToType(INT_BASIC_TYPE)) ? READ_INT : READ_CHAR;
+
+    /* a variable is read through its stack slot, which holds the old value in case the read fails */
+    if (node.getInputExpr() instanceof IdentNode) {
+      IdentNode ident = (IdentNode) node.getInputExpr();
+      Register varReg = variableRegister(ident.getSymbol());
+      int offset = currSymbolTable.getSize()
+          - currSymbolTable.getStackOffset(ident.getName(), ident.getSymbol());
+      boolean isChar = type.getSize() == 1;
+
+      instructions.add(new STR(varReg, new AddressingMode2(OFFSET, SP, offset), isChar ? STRB : STR));
+      instructions.add(new Add(r0, SP, new Operand2(offset)));
+      instructions.add(new BL(routine.toString()));
+      instructions.add(new LDR(varReg, new AddressingMode2(OFFSET, SP, offset), isChar ? LDRSB : LDR));
+
+      routineLinker.link(routine);
+      return null;
+    }
+
     /* visit the expr first, treat it as left-hand side expr so that we get its address instead of value */
     isLhs = true;
     visit(node.getInputExpr());
     isLhs = false;
 
-    /* get the type of expr to determine whether we need to read an int or a char */
-    Type type = node.getInputExpr().getType();
-
-    /* choose between read_int and read_char */
-    RoutineInstruction routine = (type.equalToType(INT_BASIC_TYPE)) ? READ_INT : READ_CHAR;
-    instructions.add(new Mov(r0, new Operand2(armRegAllocator.curr())));
+    instructions.add(new Mov(r0, new Operand2(pseudoRegAllocator.curr())));
     instructions.add(new BL(routine.toString()));
 
-    checkAndAddRoutine(routine, msgLabelGenerator, dataSegmentMessages);
-    armRegAllocator.free();
+    routineLinker.link(routine);
+    pseudoRegAllocator.free();
 
     return null;
   }
@@ -592,8 +650,8 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
   @Override
   public Void visitReturnNode(ReturnNode node) {
     visit(node.getExpr());
-    instructions.add(new Mov(r0, new Operand2(armRegAllocator.curr())));
-    armRegAllocator.free();
+    instructions.add(new Mov(r0, new Operand2(pseudoRegAllocator.curr())));
+    pseudoRegAllocator.free();
     if (funcStackSize != 0) {
       instructions.add(new Add(SP, SP,
           new Operand2(funcStackSize)));
@@ -609,13 +667,7 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
 
     /* 1 leave space for variables in stack */
     int stackSize = node.getStackSize();
-    int temp = stackSize;
-    while (temp > 0) {
-      int realStackSize = temp / MAX_STACK_STEP >= 1 ? MAX_STACK_STEP : temp;
-      instructions.add(new Sub(SP, SP,
-          new Operand2(realStackSize)));
-      temp = temp - realStackSize;
-    }
+    instructions.addAll(ImmediateLegalizer.changeStack(stackSize, true));
 
     /* accumulate function stack size, in case this scope is a function scope and contain return */
     funcStackSize += stackSize;
@@ -632,13 +684,7 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
     funcStackSize -= stackSize;
 
     /* 3 restore stack */
-    temp = stackSize;
-    while (temp > 0) {
-      int realStackSize = temp / MAX_STACK_STEP >= 1 ? MAX_STACK_STEP : temp;
-      instructions.add(new Add(SP, SP,
-          new Operand2(realStackSize)));
-      temp = temp - realStackSize;
-    }
+    instructions.addAll(ImmediateLegalizer.changeStack(stackSize, false));
 
     return null;
   }
@@ -664,20 +710,16 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
 
     /* 4 start of condition test */
     instructions.add(testLabel);
-    /* translate cond expr */
-    visit(node.getCond());
-    instructions.add(new Cmp(armRegAllocator.curr(), new Operand2(TRUE)));
-
-    /* 5 conditional branch jump to the start of loop */
-    instructions.add(new B(EQ, startLabel.getName()));
-
-    armRegAllocator.free();
+    /* 5 translate cond expr, conditional branch jump to the start of loop */
+    branchOnCondition(node.getCond(), startLabel, true);
 
     return null;
   }
 
   @Override
   public Void visitFuncNode(FuncNode node) {
+    int funcStart = instructions.size();
+
     /* cannot call get stack size on function body, as that will return 0
      * public field used here, so that on visit return statement, return can add stack back */
     funcStackSize = node.getFunctionBody().getScope().getSize();
@@ -696,6 +738,23 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
           new Operand2(funcStackSize)));
     }
 
+    /* 2.1 move parameters into their registers, the first ones arrive in r0 - r3 and the
+     *     others are loaded from the caller's outgoing area */
+    SymbolTable funcScope = node.getFunctionBody().getScope();
+    List<IdentNode> params = node.getParamList();
+    for (int i = 0; i < params.size(); i++) {
+      IdentNode param = params.get(i);
+      Symbol symbol = funcScope.lookup(param.getName());
+      if (i < MAX_REGISTER_PARAMS) {
+        instructions.add(new Mov(variableRegister(symbol),
+            new Operand2(RegisterAllocator.PARAM_REGISTERS.get(i))));
+        continue;
+      }
+      int offset = funcScope.getSize() - symbol.getStackOffset();
+      instructions.add(new LDR(variableRegister(symbol), new AddressingMode2(OFFSET, SP, offset),
+          param.getType().getSize() > 1 ? LDR : LDRSB));
+    }
+
     /* 3 visit function,
      *   RETURN are responsible for adding stack back
      */
@@ -704,6 +763,8 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
     /* function always add pop and ltorg at the end of function body */
     instructions.add(new Pop(Collections.singletonList(PC)));
     instructions.add(new LTORG());
+
+    allocateRegisters(funcStart);
     return null;
   }
 
@@ -716,6 +777,7 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
     }
 
     /* 2 start of main */
+    int mainStart = instructions.size();
     Label mainLabel = new Label(MAIN_BODY_NAME);
     instructions.add(mainLabel);
     /* 3 PUSH {lr} */
@@ -725,46 +787,139 @@ public class ARMInstructionGenerator implements NodeVisitor<Void> {
     visit(node.getBody());
 
     /* 5 set exit value */
-    instructions.add(new LDR(r0, new ImmediateAddressing(0)));
+    instructions.addAll(ImmediateLegalizer.materialize(r0, 0));
 
     /* 6 POP {PC} .ltorg */
     instructions.add(new Pop(Collections.singletonList(PC)));
     instructions.add(new LTORG());
+
+    allocateRegisters(mainStart);
     return null;
   }
 
   /* below are helper functions used in this class */
-  private void checkAndAddRoutine(RoutineInstruction routine, LabelGenerator labelGenerator,
-      Map<Label, String> dataSegment) {
-    Map<RoutineInstruction, RoutineInstruction> linkedRoutines = Map.of(
-        THROW_RUNTIME_ERROR, PRINT_STRING,
-        FREE_ARRAY, THROW_RUNTIME_ERROR,
-        FREE_PAIR, THROW_RUNTIME_ERROR,
-        CHECK_NULL_POINTER, THROW_RUNTIME_ERROR,
-        CHECK_DIVIDE_BY_ZERO, THROW_RUNTIME_ERROR,
-        THROW_OVERFLOW_ERROR, THROW_RUNTIME_ERROR
-    );
-
-    if (!alreadyExist.contains(routine)) {
-      alreadyExist.add(routine);
-      ARMRoutines.addAll(routineFunctionMap.get(routine)
-          .routineFunctionAssemble(routine, labelGenerator, dataSegment));
-
-      if (linkedRoutines.containsKey(routine)) {
-        RoutineInstruction r = linkedRoutines.get(routine);
-        checkAndAddRoutine(r, labelGenerator, dataSegment);
-        alreadyExist.add(r);
+  private PseudoRegister variableRegister(Symbol symbol) {
+    return variableRegisters.computeIfAbsent(symbol, s -> pseudoRegAllocator.create());
+  }
+
+  /* branch to target when cond evaluates to branchIf, continue with the next instruction otherwise.
+   * Comparisons set the flags for the branch instead of producing a bool, && and || branch on
+   * their operands one after the other, and ! swaps the outcome */
+  private void branchOnCondition(ExprNode cond, Label target, boolean branchIf) {
+    if (cond instanceof BoolNode) {
+      if (((BoolNode) cond).getVal() == branchIf) {
+        instructions.add(new B(NULL, target.getName()));
+      }
+      return;
+    }
+
+    if (cond instanceof UnopNode && ((UnopNode) cond).getOperator() == Unop.NOT) {
+      branchOnCondition(((UnopNode) cond).getExpr(), target, !branchIf);
+      return;
+    }
+
+    Binop operator = cond instanceof BinopNode ? ((BinopNode) cond).getOperator() : null;
+    if (operator == Binop.AND || operator == Binop.OR) {
+      BinopNode node = (BinopNode) cond;
+      /* the first operand decides the result when it is FALSE for && and TRUE for || */
+      boolean decidingValue = operator == Binop.OR;
+      if (decidingValue == branchIf) {
+        branchOnCondition(node.getExpr1(), target, branchIf);
+        branchOnCondition(node.getExpr2(), target, branchIf);
+      } else {
+        Label skipLabel = branchLabelGenerator.getLabel();
+        branchOnCondition(node.getExpr1(), skipLabel, decidingValue);
+        branchOnCondition(node.getExpr2(), target, branchIf);
+        instructions.add(skipLabel);
+      }
+      return;
+    }
+
+    Cond flags = operator == null ? null : Cond.binopCondMap.get(operator);
+    if (flags == null) {
+      visit(cond);
+      instructions.add(new Cmp(pseudoRegAllocator.curr(), new Operand2(FALSE)));
+      pseudoRegAllocator.free();
+      instructions.add(new B(branchIf ? NE : EQ, target.getName()));
+      return;
+    }
+
+    BinopNode node = (BinopNode) cond;
+    ExprNode expr1 = node.getExpr1();
+    ExprNode expr2 = node.getExpr2();
+    Integer immediate = compareImmediate(expr2);
+    if (immediate != null) {
+      visit(expr1);
+      instructions.add(new Cmp(pseudoRegAllocator.curr(), new Operand2(immediate)));
+      pseudoRegAllocator.free();
+    } else {
+      Register e1reg, e2reg;
+      if (expr1.getWeight() >= expr2.getWeight()) {
+        visit(expr1);
+        visit(expr2);
+        e2reg = pseudoRegAllocator.curr();
+        e1reg = pseudoRegAllocator.last();
+      } else {
+        visit(expr2);
+        visit(expr1);
+        e2reg = pseudoRegAllocator.last();
+        e1reg = pseudoRegAllocator.curr();
       }
+      instructions.add(new Cmp(e1reg, new Operand2(e2reg)));
+      pseudoRegAllocator.free();
+      pseudoRegAllocator.free();
     }
+    instructions.add(new B(branchIf ? flags : flags.inverse(), target.getName()));
+  }
+
+  /* the value of an int or char literal that fits in the 8 bit immediate of CMP, null otherwise */
+  private static Integer compareImmediate(ExprNode expr) {
+    int val;
+    if (expr instanceof IntegerNode) {
+      val = ((IntegerNode) expr).getVal();
+    } else if (expr instanceof CharNode) {
+      val = ((CharNode) expr).getAsciiValue();
+    } else {
+      return null;
+    }
+    return ImmediateLegalizer.isEncodable(val) ? val : null;
+  }
+
+  /* call malloc for the r0 bytes, or the arena allocator routine for this kind of object */
+  private void allocate(RoutineInstruction arenaRoutine) {
+    if (arenaAlloc) {
+      instructions.add(new BL(arenaRoutine.toString()));
+      routineLinker.link(arenaRoutine);
+    } else {
+      instructions.add(new BL(MALLOC.toString()));
+    }
+  }
+
+  /* replace the pseudo registers of the function starting at funcStart with ARM registers */
+  private void allocateRegisters(int funcStart) {
+    List<Instruction> function = instructions.subList(funcStart, instructions.size());
+    long start = System.nanoTime();
+    List<Instruction> allocated = registerAllocator.allocate(function);
+    registerAllocationTime += System.nanoTime() - start;
+    function.clear();
+    instructions.addAll(allocated);
   }
 
   /* below are getter and setter of this class */
 
   public List<Instruction> getInstructions() {
-    instructions.addAll(ARMRoutines);
+    instructions.addAll(routineLinker.getRoutines());
     return instructions;
   }
 
+  public RegisterAllocator getRegisterAllocator() {
+    return registerAllocator;
+  }
+
+  public long getRegisterAllocationTime() {
+    return registerAllocationTime;
+  }
+
   public Map<Label, String> getDataSegmentMessages() {
     return dataSegmentMessages;
   }
@@ -0,0 +1,748 @@
+package backend;
+
+import static backend.instructions.LDR.LdrMode.*;
+import static backend.instructions.STR.StrMode.*;
+import static backend.instructions.addressing.AddressingMode2.AddrMode2.*;
+import static backend.instructions.arithmeticLogic.ArithmeticLogic.UncheckedDivModAsm;
+import static backend.instructions.arithmeticLogic.ArithmeticLogic.binopInstruction;
+import static backend.instructions.arithmeticLogic.ArithmeticLogic.unopInstruction;
+import static backend.instructions.operand.Operand2.Operand2Operator.*;
+import static utils.Utils.RoutineInstruction.*;
+import static utils.Utils.SystemCallInstruction.*;
+import static utils.Utils.*;
+import static utils.backend.Cond.*;
+import static utils.backend.register.ARMConcreteRegister.*;
+
+import backend.instructions.*;
+import backend.instructions.addressing.AddressingMode2;
+import backend.instructions.addressing.LabelAddressing;
+import backend.instructions.arithmeticLogic.Add;
+import backend.instructions.arithmeticLogic.Mul;
+import backend.instructions.arithmeticLogic.Rsb;
+import backend.instructions.arithmeticLogic.SMull;
+import backend.instructions.arithmeticLogic.Sub;
+import backend.instructions.memory.Pop;
+import backend.instructions.memory.Push;
+import backend.instructions.operand.Operand2;
+import frontend.node.expr.BinopNode.Binop;
+import frontend.node.expr.UnopNode.Unop;
+import ir.BasicBlock;
+import ir.Constant;
+import ir.IRFunction;
+import ir.IRProgram;
+import ir.IRVisitor;
+import ir.StackSlot;
+import ir.Value;
+import ir.VirtualRegister;
+import ir.instructions.*;
+import ir.memory.ArrayElementAccess;
+import ir.memory.ArrayLengthAccess;
+import ir.memory.MemoryAccess;
+import ir.memory.PairElementAccess;
+import ir.memory.StackSlotAccess;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import utils.backend.Cond;
+import utils.backend.ImmediateLegalizer;
+import utils.backend.LabelGenerator;
+import utils.backend.RoutineLinker;
+import utils.backend.register.GraphColoringRegisterAllocator;
+import utils.backend.register.PseudoRegister;
+import utils.backend.register.PseudoRegisterAllocator;
+import utils.backend.register.Register;
+import utils.backend.register.RegisterAllocator;
+
+/* translate the IR into ARM instructions, one IR function at a time, with the same calling
+ * convention and runtime routines as ARMInstructionGenerator */
+public class ARMInstructionLowering implements IRVisitor<Void> {
+
+  /* largest offset of a load or store from its base register */
+  private static final int MAX_OFFSET = 4095;
+  private static final int WORD_BITS = 32;
+
+  private final PseudoRegisterAllocator pseudoRegAllocator;
+  private final RegisterAllocator registerAllocator;
+  private long registerAllocationTime;
+  private final List<Instruction> instructions;
+  private final Map<Label, String> dataSegmentMessages;
+  private final LabelGenerator branchLabelGenerator;
+  private final LabelGenerator msgLabelGenerator;
+  private final RoutineLinker routineLinker;
+  /* the pseudo register of every virtual register of the function being lowered */
+  private final Map<VirtualRegister, PseudoRegister> registers;
+  private final Map<BasicBlock, Label> blockLabels;
+  /* the block laid out after the one being lowered, which is reached without a branch */
+  private BasicBlock nextBlock;
+  /* comparisons only read by the branch ending their block, which branches on the flags they set
+   * instead of a bool, with the condition the flags are tested for */
+  private final Map<VirtualRegister, Cond> flagConditions;
+  /* bytes of stack slots reserved by the function being lowered */
+  private int frameSize;
+  /* runtime checks call the check routines instead of comparing inline, for smaller code */
+  private final boolean optimizeSize;
+  /* heap objects come from the arena allocator routines instead of malloc and free */
+  private final boolean arenaAlloc;
+
+  public ARMInstructionLowering() {
+    this(false, false);
+  }
+
+  /* the IR is only generated from CONSTANT_PROPAGATION up, the levels that colour the graph */
+  public ARMInstructionLowering(boolean optimizeSize, boolean arenaAlloc) {
+    this.optimizeSize = optimizeSize;
+    this.arenaAlloc = arenaAlloc;
+    pseudoRegAllocator = new PseudoRegisterAllocator();
+    registerAllocator = new GraphColoringRegisterAllocator(pseudoRegAllocator);
+    registerAllocationTime = 0;
+    instructions = new ArrayList<>();
+    dataSegmentMessages = new LinkedHashMap<>();
+    branchLabelGenerator = new LabelGenerator(BRANCH_HEADER);
+    msgLabelGenerator = new LabelGenerator(MSG_HEADER);
+    routineLinker = new RoutineLinker(msgLabelGenerator, dataSegmentMessages);
+    registers = new HashMap<>();
+    blockLabels = new HashMap<>();
+    flagConditions = new HashMap<>();
+  }
+
+  public void lower(IRProgram program) {
+    for (IRFunction function : program.getFunctions()) {
+      lowerFunction(function);
+    }
+    lowerFunction(program.getMain());
+  }
+
+  private void lowerFunction(IRFunction function) {
+    int funcStart = instructions.size();
+    registers.clear();
+    blockLabels.clear();
+    findFlagConditions(function);
+    List<BasicBlock> blocks = function.getBlocks();
+    for (BasicBlock block : blocks) {
+      blockLabels.put(block, branchLabelGenerator.getLabel());
+    }
+
+    /* 1 function label, PUSH {lr} and space for the stack slots */
+    instructions.add(new Label(function.getName()));
+    instructions.add(new Push(Collections.singletonList(LR)));
+    frameSize = function.getSlots().size() * WORD_SIZE;
+    changeStack(frameSize, true);
+
+    /* 2 the first parameters arrive in r0 - r3, the caller stored the others above the saved lr,
+     *   the first one at the lowest address */
+    int offset = frameSize + POINTER_SIZE;
+    for (int i = 0; i < function.getParams().size(); i++) {
+      if (i < MAX_REGISTER_PARAMS) {
+        instructions.add(new Mov(register(function.getParams().get(i)),
+            new Operand2(RegisterAllocator.PARAM_REGISTERS.get(i))));
+        continue;
+      }
+      int size = function.getParamSizes().get(i);
+      instructions.add(new LDR(register(function.getParams().get(i)),
+          new AddressingMode2(OFFSET, SP, offset), size > 1 ? LDR : LDRSB));
+      offset += size;
+    }
+
+    /* 3 blocks in layout order, each return releases the frame */
+    for (int i = 0; i < blocks.size(); i++) {
+      BasicBlock block = blocks.get(i);
+      instructions.add(blockLabels.get(block));
+      nextBlock = i + 1 < blocks.size() ? blocks.get(i + 1) : null;
+      for (IRInstruction instruction : block.getInstructions()) {
+        visit(instruction);
+      }
+    }
+    instructions.add(new LTORG());
+
+    allocateRegisters(funcStart);
+  }
+
+  @Override
+  public Void visitBinary(Binary ins) {
+    Register dst = register(ins.getDef());
+    Binop operator = ins.getOperator();
+    switch (operator) {
+      case PLUS:
+      case MINUS:
+        instructions.addAll(binopInstruction.get(operator)
+            .binopAssemble(dst, register(ins.getLhs()), operand(ins.getRhs()), operator));
+        instructions.add(new BL(VS, THROW_OVERFLOW_ERROR.toString()));
+        routineLinker.link(THROW_OVERFLOW_ERROR);
+        break;
+      case MUL:
+        if (multiplyByConstant(dst, ins.getLhs(), ins.getRhs())
+            || multiplyByConstant(dst, ins.getRhs(), ins.getLhs())) {
+          break;
+        }
+        /* SMULL leaves the high word in the second register, which has to be the sign of the low word */
+        Register high = pseudoRegAllocator.create();
+        move(dst, ins.getLhs());
+        move(high, ins.getRhs());
+        instructions.addAll(binopInstruction.get(operator)
+            .binopAssemble(dst, dst, new Operand2(high), operator));
+        instructions.add(new Cmp(high, new Operand2(dst, ASR, ARMInstructionGenerator.ASR_SHIFT_CONST)));
+        instructions.add(new BL(NE, THROW_OVERFLOW_ERROR.toString()));
+        routineLinker.link(THROW_OVERFLOW_ERROR);
+        break;
+      case DIV:
+      case MOD:
+        if (ins.getRhs() instanceof Constant && divideByConstant(dst, ins.getLhs(),
+            ((Constant) ins.getRhs()).getVal(), operator == Binop.MOD)) {
+          break;
+        }
+        if (optimizeSize) {
+          move(dst, ins.getLhs());
+          instructions.addAll(binopInstruction.get(operator)
+              .binopAssemble(dst, dst, operand(ins.getRhs()), operator));
+          routineLinker.link(CHECK_DIVIDE_BY_ZERO);
+          break;
+        }
+        throwIf(ins.getRhs(), EQ, 0, THROW_DIVIDE_BY_ZERO_ERROR);
+        move(dst, ins.getLhs());
+        instructions.addAll(
+            UncheckedDivModAsm.binopAssemble(dst, dst, operand(ins.getRhs()), operator));
+        break;
+      case AND:
+      case OR:
+        instructions.addAll(binopInstruction.get(operator)
+            .binopAssemble(dst, register(ins.getLhs()), operand(ins.getRhs()), operator));
+        break;
+      default:
+        instructions.add(new Cmp(register(ins.getLhs()), operand(ins.getRhs())));
+        if (flagConditions.containsKey(ins.getDef())) {
+          break;
+        }
+        instructions.add(new Mov(dst, new Operand2(FALSE)));
+        instructions.add(new Mov(dst, new Operand2(TRUE), Mov.binOpMovMap.get(operator)));
+    }
+    return null;
+  }
+
+  @Override
+  public Void visitUnary(Unary ins) {
+    Register dst = register(ins.getDef());
+    instructions.addAll(unopInstruction.get(ins.getOperator())
+        .unopAssemble(dst, register(ins.getSrc())));
+    if (ins.getOperator() == Unop.MINUS) {
+      instructions.add(new BL(VS, THROW_OVERFLOW_ERROR.toString()));
+      routineLinker.link(THROW_OVERFLOW_ERROR);
+    }
+    return null;
+  }
+
+  @Override
+  public Void visitMove(Move ins) {
+    move(register(ins.getDef()), ins.getSrc());
+    return null;
+  }
+
+  @Override
+  public Void visitLoad(Load ins) {
+    MemoryAccess access = ins.getAccess();
+    instructions.add(new LDR(register(ins.getDef()), address(access),
+        access.getSize() > 1 ? LDR : LDRSB));
+    return null;
+  }
+
+  @Override
+  public Void visitStore(Store ins) {
+    MemoryAccess access = ins.getAccess();
+    Register src = register(ins.getSrc());
+    instructions.add(new STR(src, address(access), access.getSize() > 1 ? STR : STRB));
+    return null;
+  }
+
+  @Override
+  public Void visitAddressOf(AddressOf ins) {
+    Register dst = register(ins.getDef());
+    MemoryAccess access = ins.getAccess();
+    if (access instanceof StackSlotAccess) {
+      instructions.add(new Add(dst, SP, new Operand2(slotOffset(((StackSlotAccess) access).getSlot()))));
+    } else if (access instanceof PairElementAccess) {
+      PairElementAccess element = (PairElementAccess) access;
+      instructions.add(new Add(dst, register(element.getPair()),
+          new Operand2(pairElementOffset(element))));
+    } else if (access instanceof ArrayElementAccess) {
+      arrayElementAddress(dst, (ArrayElementAccess) access);
+    } else {
+      instructions.add(new Mov(dst, new Operand2(register(((ArrayLengthAccess) access).getArray()))));
+    }
+    return null;
+  }
+
+  @Override
+  public Void visitLoadString(LoadString ins) {
+    Label msgLabel = msgLabelGenerator.getLabel();
+    dataSegmentMessages.put(msgLabel, ins.getLiteral());
+    instructions.add(new LDR(register(ins.getDef()), new LabelAddressing(msgLabel)));
+    return null;
+  }
+
+  @Override
+  public Void visitNewPair(NewPair ins) {
+    /* a pair is a single block of two words holding the elements themselves */
+    Register pair = register(ins.getDef());
+    instructions.addAll(ImmediateLegalizer.materialize(r0, 2 * WORD_SIZE));
+    allocate(ALLOC_PAIR);
+    instructions.add(new Mov(pair, new Operand2(r0)));
+    instructions.add(new STR(register(ins.getFst()), new AddressingMode2(OFFSET, pair),
+        ins.getFstSize() > 1 ? STR : STRB));
+    instructions.add(new STR(register(ins.getSnd()), new AddressingMode2(OFFSET, pair, WORD_SIZE),
+        ins.getSndSize() > 1 ? STR : STRB));
+    return null;
+  }
+
+  @Override
+  public Void visitNewArray(NewArray ins) {
+    /* the first word of an array is its length */
+    if (ins.getSlot() != null) {
+      instructions.add(new Add(register(ins.getDef()), SP, new Operand2(slotOffset(ins.getSlot()))));
+      return null;
+    }
+    instructions.addAll(ImmediateLegalizer.materialize(r0,
+        ins.getLength() * ins.getElemSize() + POINTER_SIZE));
+    allocate(ALLOC_ARRAY);
+    instructions.add(new Mov(register(ins.getDef()), new Operand2(r0)));
+    return null;
+  }
+
+  @Override
+  public Void visitCall(Call ins) {
+    /* the arguments after the first MAX_REGISTER_PARAMS go to an outgoing area reserved at once,
+     * the first one at the lowest address */
+    List<Value> args = ins.getArgs();
+    int paramSize = 0;
+    for (int i = MAX_REGISTER_PARAMS; i < args.size(); i++) {
+      paramSize += ins.getArgSizes().get(i);
+    }
+    changeStack(paramSize, true);
+    int offset = 0;
+    for (int i = MAX_REGISTER_PARAMS; i < args.size(); i++) {
+      int size = ins.getArgSizes().get(i);
+      instructions.add(new STR(register(args.get(i)), new AddressingMode2(OFFSET, SP, offset),
+          size > 1 ? STR : STRB));
+      offset += size;
+    }
+
+    /* the first arguments in r0 - r3, after anything that could need a register for a constant */
+    for (int i = 0; i < Math.min(args.size(), MAX_REGISTER_PARAMS); i++) {
+      move(RegisterAllocator.PARAM_REGISTERS.get(i), args.get(i));
+    }
+    instructions.add(new BL(ins.getFunction()));
+    changeStack(paramSize, false);
+    instructions.add(new Mov(register(ins.getDef()), new Operand2(r0)));
+    return null;
+  }
+
+  @Override
+  public Void visitRoutineCall(RoutineCall ins) {
+    List<Register> argRegisters = List.of(r0, r1);
+    for (int i = 0; i < ins.getArgs().size(); i++) {
+      move(argRegisters.get(i), ins.getArgs().get(i));
+    }
+    RoutineInstruction routine = ins.getRoutine();
+    if (arenaAlloc && (routine == FREE_ARRAY || routine == FREE_PAIR)) {
+      routine = routine == FREE_ARRAY ? ARENA_FREE_ARRAY : ARENA_FREE_PAIR;
+    }
+    instructions.add(new BL(routine.toString()));
+    routineLinker.link(routine);
+    return null;
+  }
+
+  @Override
+  public Void visitCheckNull(CheckNull ins) {
+    if (optimizeSize) {
+      move(r0, ins.getPair());
+      instructions.add(new BL(CHECK_NULL_POINTER.toString()));
+      routineLinker.link(CHECK_NULL_POINTER);
+      return null;
+    }
+    throwIf(ins.getPair(), EQ, 0, THROW_NULL_REFERENCE_ERROR);
+    return null;
+  }
+
+  @Override
+  public Void visitCheckBounds(CheckBounds ins) {
+    if (optimizeSize) {
+      move(r0, ins.getIndex());
+      move(r1, ins.getArray());
+      instructions.add(new BL(CHECK_ARRAY_BOUND.toString()));
+      routineLinker.link(CHECK_ARRAY_BOUND);
+      return null;
+    }
+    throwIf(ins.getIndex(), LT, 0, THROW_NEGATIVE_INDEX_ERROR);
+    /* unsigned, a negative index has already failed */
+    PseudoRegister length = pseudoRegAllocator.create();
+    instructions.add(new LDR(length, new AddressingMode2(OFFSET, register(ins.getArray()))));
+    instructions.add(new Cmp(length, operand(ins.getIndex())));
+    instructions.add(new BL(LS, THROW_INDEX_TOO_LARGE_ERROR.toString()));
+    routineLinker.link(THROW_INDEX_TOO_LARGE_ERROR);
+    return null;
+  }
+
+  @Override
+  public Void visitJump(Jump ins) {
+    jump(ins.getTarget());
+    return null;
+  }
+
+  @Override
+  public Void visitBranch(Branch ins) {
+    if (ins.getCond() instanceof Constant) {
+      jump(((Constant) ins.getCond()).getVal() != FALSE ? ins.getIfTrue() : ins.getIfFalse());
+      return null;
+    }
+
+    Cond cond = flagConditions.get(ins.getCond());
+    if (cond == null) {
+      instructions.add(new Cmp(register(ins.getCond()), new Operand2(FALSE)));
+      cond = NE;
+    }
+    if (ins.getIfTrue() == nextBlock) {
+      instructions.add(new B(cond.inverse(), blockLabels.get(ins.getIfFalse()).getName()));
+    } else {
+      instructions.add(new B(cond, blockLabels.get(ins.getIfTrue()).getName()));
+      jump(ins.getIfFalse());
+    }
+    return null;
+  }
+
+  @Override
+  public Void visitReturn(Return ins) {
+    move(r0, ins.getValue());
+    changeStack(frameSize, false);
+    instructions.add(new Pop(Collections.singletonList(PC)));
+    return null;
+  }
+
+  @Override
+  public Void visitTailCall(TailCall ins) {
+    /* release the frame and restore lr, so that the callee returns straight to our caller */
+    for (int i = 0; i < ins.getArgs().size(); i++) {
+      move(RegisterAllocator.PARAM_REGISTERS.get(i), ins.getArgs().get(i));
+    }
+    changeStack(frameSize, false);
+    instructions.add(new Pop(Collections.singletonList(LR)));
+    instructions.add(new B(NULL, ins.getFunction()));
+    return null;
+  }
+
+  @Override
+  public Void visitExit(Exit ins) {
+    move(r0, ins.getCode());
+    instructions.add(new BL(EXIT.toString()));
+    return null;
+  }
+
+  @Override
+  public Void visitPhi(Phi ins) {
+    throw new IllegalStateException("phi " + ins + " has to be removed before lowering");
+  }
+
+  /* below are helper functions used in this class */
+  /* a comparison can leave its result in the flags when the branch ending its block is its only
+   * use, and only moves, which do not change the flags, are between them */
+  private void findFlagConditions(IRFunction function) {
+    flagConditions.clear();
+    Map<Value, Integer> useCounts = new HashMap<>();
+    for (BasicBlock block : function.getBlocks()) {
+      for (IRInstruction ins : block.getInstructions()) {
+        ins.getUses().forEach(use -> useCounts.merge(use, 1, Integer::sum));
+      }
+    }
+
+    for (BasicBlock block : function.getBlocks()) {
+      List<IRInstruction> body = block.getInstructions();
+      if (body.isEmpty() || !(body.get(body.size() - 1) instanceof Branch)) {
+        continue;
+      }
+      Value cond = ((Branch) body.get(body.size() - 1)).getCond();
+      int i = body.size() - 2;
+      while (i >= 0 && body.get(i) instanceof Move) {
+        i--;
+      }
+      if (i < 0 || !(body.get(i) instanceof Binary) || useCounts.get(cond) != 1) {
+        continue;
+      }
+      Binary compare = (Binary) body.get(i);
+      if (compare.getDef().equals(cond) && binopCondMap.containsKey(compare.getOperator())) {
+        flagConditions.put(compare.getDef(), binopCondMap.get(compare.getOperator()));
+      }
+    }
+  }
+
+  /* call the error stub when value is equal to (EQ) or less than (LT) bound, a constant value is
+   * compared here: it either always calls the stub or never does */
+  private void throwIf(Value value, Cond cond, int bound, RoutineInstruction error) {
+    if (value instanceof Constant) {
+      int val = ((Constant) value).getVal();
+      if (cond == EQ ? val != bound : val >= bound) {
+        return;
+      }
+      instructions.add(new BL(error.toString()));
+    } else {
+      instructions.add(new Cmp(register(value), new Operand2(bound)));
+      instructions.add(new BL(cond, error.toString()));
+    }
+    routineLinker.link(error);
+  }
+
+  /* dst = x * c for the constants c that shifts and adds multiply by no slower than SMULL and its
+   * check: 0, 1, -1, 2^k and 2^k + 1. Shifting left by k overflows exactly when shifting the
+   * result back right does not give x, and x * (2^k + 1) overflows exactly when x * 2^k or the
+   * addition of x does. False when c is any other value */
+  private boolean multiplyByConstant(Register dst, Value x, Value c) {
+    if (!(c instanceof Constant) || x instanceof Constant) {
+      return false;
+    }
+    int val = ((Constant) c).getVal();
+    Register src = register(x);
+    if (val == 0 || val == 1) {
+      move(dst, val == 0 ? c : x);
+      return true;
+    } else if (val == -1) {
+      instructions.add(new Rsb(dst, src, new Operand2(0)));
+      instructions.add(new BL(VS, THROW_OVERFLOW_ERROR.toString()));
+    } else if (val > 0 && Integer.bitCount(val) == 1) {
+      Register shifted = shiftLeftChecked(src, Integer.numberOfTrailingZeros(val));
+      instructions.add(new Mov(dst, new Operand2(shifted)));
+    } else if (val > 0 && Integer.bitCount(val - 1) == 1) {
+      Register shifted = shiftLeftChecked(src, Integer.numberOfTrailingZeros(val - 1));
+      instructions.add(new Add(dst, src, new Operand2(shifted), S));
+      instructions.add(new BL(VS, THROW_OVERFLOW_ERROR.toString()));
+    } else {
+      return false;
+    }
+    routineLinker.link(THROW_OVERFLOW_ERROR);
+    return true;
+  }
+
+  /* a new register holding src << k, calling the overflow stub when bits are shifted out */
+  private Register shiftLeftChecked(Register src, int k) {
+    Register shifted = pseudoRegAllocator.create();
+    instructions.add(new Mov(shifted, new Operand2(src, LSL, k)));
+    instructions.add(new Cmp(src, new Operand2(shifted, ASR, k)));
+    instructions.add(new BL(NE, THROW_OVERFLOW_ERROR.toString()));
+    return shifted;
+  }
+
+  /* dst = x / c or x % c for a constant c, rounding towards zero as __aeabi_idivmod does, so
+   * without the divide by zero check. A power of two is a shift after adding 2^k - 1 to negative
+   * dividends, any other c a multiplication by its magic reciprocal (Hacker's Delight, 10-1).
+   * The remainder has the sign of x, so it is the same for c and -c. False when c is 0 or the
+   * smallest int, and for the longer reciprocal sequence when optimising for size */
+  private boolean divideByConstant(Register dst, Value x, int c, boolean isMod) {
+    int divisor = Math.abs(c);
+    if (c == 0 || c == Integer.MIN_VALUE
+        || (optimizeSize && Integer.bitCount(divisor) != 1)) {
+      return false;
+    }
+    Register src = register(x);
+    if (divisor == 1) {
+      if (isMod) {
+        move(dst, new Constant(0));
+      } else if (c == 1) {
+        move(dst, x);
+      } else {
+        /* the smallest int divided by -1 stays the smallest int, as the library call leaves it */
+        instructions.add(new Rsb(dst, src, new Operand2(0)));
+      }
+      return true;
+    }
+
+    Register quotient = pseudoRegAllocator.create();
+    if (Integer.bitCount(divisor) == 1) {
+      int k = Integer.numberOfTrailingZeros(divisor);
+      instructions.add(new Mov(quotient, new Operand2(src, ASR, WORD_BITS - 1)));
+      instructions.add(new Add(quotient, src, new Operand2(quotient, LSR, WORD_BITS - k)));
+      if (isMod) {
+        instructions.add(new Mov(quotient, new Operand2(quotient, ASR, k)));
+        instructions.add(new Sub(dst, src, new Operand2(quotient, LSL, k)));
+        return true;
+      }
+      instructions.add(new Mov(quotient, new Operand2(quotient, ASR, k)));
+    } else {
+      int[] magic = magic(divisor);
+      /* SMULL leaves the high word of x * magic in the register of the magic number */
+      Register low = pseudoRegAllocator.create();
+      instructions.addAll(ImmediateLegalizer.materialize(quotient, magic[0]));
+      instructions.add(new Mov(low, new Operand2(src)));
+      instructions.add(new SMull(low, low, new Operand2(quotient)));
+      if (magic[0] < 0) {
+        instructions.add(new Add(quotient, quotient, new Operand2(src)));
+      }
+      if (magic[1] != 0) {
+        instructions.add(new Mov(quotient, new Operand2(quotient, ASR, magic[1])));
+      }
+      instructions.add(new Add(quotient, quotient, new Operand2(src, LSR, WORD_BITS - 1)));
+      if (isMod) {
+        Register product = pseudoRegAllocator.create();
+        instructions.addAll(ImmediateLegalizer.materialize(product, divisor));
+        instructions.add(new Mul(product, quotient, new Operand2(product)));
+        instructions.add(new Sub(dst, src, new Operand2(product)));
+        return true;
+      }
+    }
+    if (c < 0) {
+      instructions.add(new Rsb(dst, quotient, new Operand2(0)));
+    } else {
+      instructions.add(new Mov(dst, new Operand2(quotient)));
+    }
+    return true;
+  }
+
+  /* the magic number and shift dividing by 2 <= divisor < 2^31 (Hacker's Delight, figure 10-1),
+   * the magic number taken as a signed int */
+  private static int[] magic(int divisor) {
+    long twoPow31 = 1L << (WORD_BITS - 1);
+    long anc = twoPow31 - 1 - twoPow31 % divisor;
+    int p = WORD_BITS - 1;
+    long q1 = twoPow31 / anc;
+    long r1 = twoPow31 - q1 * anc;
+    long q2 = twoPow31 / divisor;
+    long r2 = twoPow31 - q2 * divisor;
+    long delta;
+    do {
+      p++;
+      q1 *= 2;
+      r1 *= 2;
+      if (r1 >= anc) {
+        q1++;
+        r1 -= anc;
+      }
+      q2 *= 2;
+      r2 *= 2;
+      if (r2 >= divisor) {
+        q2++;
+        r2 -= divisor;
+      }
+      delta = divisor - r2;
+    } while (q1 < delta || (q1 == delta && r1 == 0));
+    return new int[] {(int) (q2 + 1), p - WORD_BITS};
+  }
+
+  private PseudoRegister register(VirtualRegister reg) {
+    return registers.computeIfAbsent(reg, r -> pseudoRegAllocator.create());
+  }
+
+  /* the register holding value, constants are loaded into a new pseudo register */
+  private Register register(Value value) {
+    if (value instanceof VirtualRegister) {
+      return register((VirtualRegister) value);
+    }
+    Register reg = pseudoRegAllocator.create();
+    move(reg, value);
+    return reg;
+  }
+
+  /* constants that encode are used as immediates, anything else goes through a register */
+  private Operand2 operand(Value value) {
+    if (isImmediate(value)) {
+      return new Operand2(((Constant) value).getVal());
+    }
+    return new Operand2(register(value));
+  }
+
+  private void move(Register dst, Value value) {
+    if (value instanceof Constant) {
+      instructions.addAll(ImmediateLegalizer.materialize(dst, ((Constant) value).getVal()));
+    } else {
+      instructions.add(new Mov(dst, operand(value)));
+    }
+  }
+
+  private static boolean isImmediate(Value value) {
+    return value instanceof Constant && ImmediateLegalizer.isEncodable(((Constant) value).getVal());
+  }
+
+  private void jump(BasicBlock target) {
+    if (target != nextBlock) {
+      instructions.add(new B(NULL, blockLabels.get(target).getName()));
+    }
+  }
+
+  /* reserve (or release) bytes of stack, in steps the immediate operand can encode */
+  private void changeStack(int bytes, boolean isReserve) {
+    instructions.addAll(ImmediateLegalizer.changeStack(bytes, isReserve));
+  }
+
+  private int slotOffset(StackSlot slot) {
+    return slot.getId() * WORD_SIZE;
+  }
+
+  private AddressingMode2 address(MemoryAccess access) {
+    if (access instanceof StackSlotAccess) {
+      return new AddressingMode2(OFFSET, SP, slotOffset(((StackSlotAccess) access).getSlot()));
+    }
+    if (access instanceof PairElementAccess) {
+      PairElementAccess element = (PairElementAccess) access;
+      return new AddressingMode2(OFFSET, register(element.getPair()), pairElementOffset(element));
+    }
+    if (access instanceof ArrayElementAccess) {
+      ArrayElementAccess elem = (ArrayElementAccess) access;
+      if (elem.getIndex() instanceof Constant) {
+        int offset = POINTER_SIZE + ((Constant) elem.getIndex()).getVal() * elem.getSize();
+        if (offset <= MAX_OFFSET) {
+          return new AddressingMode2(OFFSET, register(elem.getArray()), offset);
+        }
+      }
+      PseudoRegister addr = pseudoRegAllocator.create();
+      arrayElementAddress(addr, elem);
+      return new AddressingMode2(OFFSET, addr);
+    }
+    return new AddressingMode2(OFFSET, register(((ArrayLengthAccess) access).getArray()));
+  }
+
+  /* the fst element is the first word of the pair, the snd element the second */
+  private static int pairElementOffset(PairElementAccess access) {
+    return access.isFirst() ? 0 : WORD_SIZE;
+  }
+
+  private void arrayElementAddress(Register dst, ArrayElementAccess access) {
+    instructions.add(new Add(dst, register(access.getArray()), new Operand2(POINTER_SIZE)));
+    instructions.add(new Add(dst, dst, new Operand2(register(access.getIndex()), LSL,
+        access.getSize() / 2)));
+  }
+
+  /* call malloc for the r0 bytes, or the arena allocator routine for this kind of object */
+  private void allocate(RoutineInstruction arenaRoutine) {
+    if (arenaAlloc) {
+      instructions.add(new BL(arenaRoutine.toString()));
+      routineLinker.link(arenaRoutine);
+    } else {
+      instructions.add(new BL(MALLOC.toString()));
+    }
+  }
+
+  /* replace the pseudo registers of the function starting at funcStart with ARM registers */
+  private void allocateRegisters(int funcStart) {
+    List<Instruction> function = instructions.subList(funcStart, instructions.size());
+    long start = System.nanoTime();
+    List<Instruction> allocated = registerAllocator.allocate(function);
+    registerAllocationTime += System.nanoTime() - start;
+    function.clear();
+    instructions.addAll(allocated);
+  }
+
+  /* below are getter and setter of this class */
+
+  public List<Instruction> getInstructions() {
+    instructions.addAll(routineLinker.getRoutines());
+    return instructions;
+  }
+
+  public RegisterAllocator getRegisterAllocator() {
+    return registerAllocator;
+  }
+
+  public long getRegisterAllocationTime() {
+    return registerAllocationTime;
+  }
+
+  public Map<Label, String> getDataSegmentMessages() {
+    return dataSegmentMessages;
+  }
+}
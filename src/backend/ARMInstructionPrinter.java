@@ -1,7 +1,6 @@
 package backend;
 
 import backend.directives.*;
-import backend.instructions.Instruction;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -26,15 +25,6 @@ public class ARMInstructionPrinter {
     return program.toString();
   }
 
-  /* not used, might be used in optimisation */
-  public List<Instruction> constantEvaluation() {
-    return null;
-  }
-
-  public List<Instruction> constantPropagation() {
-    return null;
-  }
-
   public enum OptimizationLevel {
     NONE, CONSTANT_EVAL, CONSTANT_PROPAGATION, CONTROL_FLOW_ANALYSIS, DEAD_CODE_ELIM, PEEPHOLE
   }
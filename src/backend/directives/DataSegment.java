@@ -1,7 +1,10 @@
 package backend.directives;
 
+import static utils.Utils.MSG_HEADER;
+
 import backend.instructions.Label;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -42,18 +45,34 @@ public class DataSegment implements Directive {
   }
 
 
+  /* messages with the same content are emitted once, under all their labels. Only the read-only
+   * msg_ labels are merged: p_arena_state is written at run time, so it is never merged with
+   * anything. A message cannot share the end of a longer one, as its length has to come right
+   * before its characters */
   @Override
   public List<String> toStringList() {
     List<String> list = new ArrayList<>();
     list.add("\t.data\n\n");
+    Map<String, List<Label>> labels = new LinkedHashMap<>();
     for (Entry<Label, String> e : messages.entrySet()) {
-      list.add("\t" + e.getKey().assemble());
-      list.add("\t\t.word " + realLength(e.getValue()) + "\n\t\t.ascii " + e.getValue());
+      if (e.getKey().getName().startsWith(MSG_HEADER)) {
+        labels.computeIfAbsent(e.getValue(), v -> new ArrayList<>()).add(e.getKey());
+      } else {
+        addEntry(list, List.of(e.getKey()), e.getValue());
+      }
     }
+    labels.forEach((msg, msgLabels) -> addEntry(list, msgLabels, msg));
 
     return list;
   }
 
+  private void addEntry(List<String> list, List<Label> labels, String msg) {
+    for (Label label : labels) {
+      list.add("\t" + label.assemble());
+    }
+    list.add("\t\t.word " + realLength(msg) + "\n\t\t.ascii " + msg);
+  }
+
   @Override
   public int getIndentationLevel() {
     return 1;
@@ -19,6 +19,14 @@ public class B extends Instruction {
     this.label = new Label(label);
   }
 
+  public Label getLabel() {
+    return label;
+  }
+
+  public Cond getCond() {
+    return cond;
+  }
+
   @Override
   public String assemble() {
     return "B" + cond + " " + label.getName();
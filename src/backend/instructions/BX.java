@@ -0,0 +1,34 @@
+package backend.instructions;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+import utils.backend.register.Register;
+
+public class BX extends Instruction {
+
+  /* BX <Rm>, used as BX lr to return from a function without a frame */
+  private Register Rm;
+
+  public BX(Register Rm) {
+    this.Rm = Rm;
+  }
+
+  public Register getRm() {
+    return Rm;
+  }
+
+  @Override
+  public List<Register> getUses() {
+    return List.of(Rm);
+  }
+
+  @Override
+  public void replaceRegisters(UnaryOperator<Register> f) {
+    Rm = f.apply(Rm);
+  }
+
+  @Override
+  public String assemble() {
+    return "BX " + Rm;
+  }
+}
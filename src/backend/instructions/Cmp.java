@@ -1,19 +1,51 @@
 package backend.instructions;
 
 import backend.instructions.operand.Operand2;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
 import utils.backend.register.Register;
 
 public class Cmp extends Instruction {
 
   /* CMP{cond} <Rn>, <operand2> */
-  private final Register Rd;
-  private final Operand2 operand2;
+  private Register Rd;
+  private Operand2 operand2;
 
   public Cmp(Register Rd, Operand2 operand2) {
     this.Rd = Rd;
     this.operand2 = operand2;
   }
 
+  public Register getRd() {
+    return Rd;
+  }
+
+  public Operand2 getOperand2() {
+    return operand2;
+  }
+
+  @Override
+  public boolean setsFlags() {
+    return true;
+  }
+
+  @Override
+  public List<Register> getUses() {
+    List<Register> uses = new ArrayList<>();
+    uses.add(Rd);
+    if (operand2.getRegister() != null) {
+      uses.add(operand2.getRegister());
+    }
+    return uses;
+  }
+
+  @Override
+  public void replaceRegisters(UnaryOperator<Register> f) {
+    Rd = f.apply(Rd);
+    operand2 = operand2.replaceRegister(f);
+  }
+
   @Override
   public String assemble() {
     return "CMP " + Rd + ", " + operand2;
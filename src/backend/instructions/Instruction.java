@@ -1,5 +1,9 @@
 package backend.instructions;
 
+import java.util.List;
+import java.util.function.UnaryOperator;
+import utils.backend.register.Register;
+
 public abstract class Instruction {
 
   public abstract String assemble();
@@ -7,4 +11,23 @@ public abstract class Instruction {
   public int getIndentationLevel() {
     return 2;
   }
+
+  /* registers read by this instruction, used by register allocation */
+  public List<Register> getUses() {
+    return List.of();
+  }
+
+  /* registers written by this instruction, used by register allocation */
+  public List<Register> getDefs() {
+    return List.of();
+  }
+
+  /* whether this instruction updates the condition flags */
+  public boolean setsFlags() {
+    return false;
+  }
+
+  /* replace every register read or written by this instruction with f(register) */
+  public void replaceRegisters(UnaryOperator<Register> f) {
+  }
 }
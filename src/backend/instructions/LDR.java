@@ -1,12 +1,16 @@
 package backend.instructions;
 
 import backend.instructions.addressing.Addressing;
+import backend.instructions.addressing.AddressingMode2;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
 import utils.backend.register.Register;
 
 public class LDR extends Instruction {
 
-  private final Register register;
-  private final Addressing addr;
+  private Register register;
+  private Addressing addr;
   private final LdrMode mode;
   public LDR(Register register, Addressing addr, LdrMode mode) {
     this.register = register;
@@ -18,6 +22,48 @@ public class LDR extends Instruction {
     this(register, addr, LdrMode.LDR);
   }
 
+  public Register getRegister() {
+    return register;
+  }
+
+  public Addressing getAddr() {
+    return addr;
+  }
+
+  public LdrMode getMode() {
+    return mode;
+  }
+
+  /* LDREQ, LDRNE, LDRLT and LDRCS only load when the condition holds */
+  public boolean isConditional() {
+    return mode != LdrMode.LDR && mode != LdrMode.LDRB && mode != LdrMode.LDRSB;
+  }
+
+  @Override
+  public List<Register> getUses() {
+    List<Register> uses = new ArrayList<>(addr.getRegisters());
+    if (isConditional()) {
+      uses.add(register);
+    }
+    return uses;
+  }
+
+  @Override
+  public List<Register> getDefs() {
+    List<Register> defs = new ArrayList<>();
+    defs.add(register);
+    if (addr instanceof AddressingMode2 && ((AddressingMode2) addr).isWriteBack()) {
+      defs.add(((AddressingMode2) addr).getRn());
+    }
+    return defs;
+  }
+
+  @Override
+  public void replaceRegisters(UnaryOperator<Register> f) {
+    register = f.apply(register);
+    addr = addr.replaceRegisters(f);
+  }
+
   @Override
   public String assemble() {
     StringBuilder str = new StringBuilder();
@@ -9,7 +9,10 @@ import static frontend.node.expr.BinopNode.Binop.LESS_EQUAL;
 
 import backend.instructions.operand.Operand2;
 import frontend.node.expr.BinopNode;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 import utils.backend.register.Register;
 
 public class Mov extends Instruction {
@@ -34,8 +37,8 @@ public class Mov extends Instruction {
       EQUAL, MovType.MOVEQ,
       INEQUAL, MovType.MOVNE);
 
-  private final Register Rd;
-  private final Operand2 operand2;
+  private Register Rd;
+  private Operand2 operand2;
   private final MovType type;
 
   public Mov(Register Rd, Operand2 operand2, MovType type) {
@@ -48,6 +51,47 @@ public class Mov extends Instruction {
     this(Rd, operand2, MovType.MOV);
   }
 
+  public Register getRd() {
+    return Rd;
+  }
+
+  public Operand2 getOperand2() {
+    return operand2;
+  }
+
+  public MovType getType() {
+    return type;
+  }
+
+  /* MOVGT, MOVEQ, ... only move when the condition holds */
+  public boolean isConditional() {
+    return type != MovType.MOV;
+  }
+
+  @Override
+  public List<Register> getUses() {
+    List<Register> uses = new ArrayList<>();
+    if (operand2.getRegister() != null) {
+      uses.add(operand2.getRegister());
+    }
+    /* a conditional move keeps the old value of Rd when the condition fails */
+    if (type != MovType.MOV) {
+      uses.add(Rd);
+    }
+    return uses;
+  }
+
+  @Override
+  public List<Register> getDefs() {
+    return List.of(Rd);
+  }
+
+  @Override
+  public void replaceRegisters(UnaryOperator<Register> f) {
+    Rd = f.apply(Rd);
+    operand2 = operand2.replaceRegister(f);
+  }
+
   @Override
   public String assemble() {
     return type + " " + Rd + ", " + operand2;
@@ -0,0 +1,52 @@
+package backend.instructions;
+
+import backend.instructions.operand.Operand2;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import utils.backend.register.Register;
+
+public class Mvn extends Instruction {
+
+  private Register Rd;
+  private Operand2 operand2;
+
+  /* MVN <Rd>, <operand2>, moves the bitwise complement of operand2 */
+  public Mvn(Register Rd, Operand2 operand2) {
+    this.Rd = Rd;
+    this.operand2 = operand2;
+  }
+
+  public Register getRd() {
+    return Rd;
+  }
+
+  public Operand2 getOperand2() {
+    return operand2;
+  }
+
+  @Override
+  public List<Register> getUses() {
+    List<Register> uses = new ArrayList<>();
+    if (operand2.getRegister() != null) {
+      uses.add(operand2.getRegister());
+    }
+    return uses;
+  }
+
+  @Override
+  public List<Register> getDefs() {
+    return List.of(Rd);
+  }
+
+  @Override
+  public void replaceRegisters(UnaryOperator<Register> f) {
+    Rd = f.apply(Rd);
+    operand2 = operand2.replaceRegister(f);
+  }
+
+  @Override
+  public String assemble() {
+    return "MVN " + Rd + ", " + operand2;
+  }
+}
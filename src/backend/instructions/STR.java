@@ -1,12 +1,16 @@
 package backend.instructions;
 
 import backend.instructions.addressing.Addressing;
+import backend.instructions.addressing.AddressingMode2;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
 import utils.backend.register.Register;
 
 public class STR extends Instruction {
 
-  private final Register srcReg;
-  private final Addressing addr;
+  private Register srcReg;
+  private Addressing addr;
   private final StrMode mode;
 
   public STR(Register srcReg, Addressing addr, StrMode mode) {
@@ -19,6 +23,39 @@ public class STR extends Instruction {
     this(srcReg, addr, StrMode.STR);
   }
 
+  public Register getSrcReg() {
+    return srcReg;
+  }
+
+  public Addressing getAddr() {
+    return addr;
+  }
+
+  public StrMode getMode() {
+    return mode;
+  }
+
+  @Override
+  public List<Register> getUses() {
+    List<Register> uses = new ArrayList<>(addr.getRegisters());
+    uses.add(srcReg);
+    return uses;
+  }
+
+  @Override
+  public List<Register> getDefs() {
+    if (addr instanceof AddressingMode2 && ((AddressingMode2) addr).isWriteBack()) {
+      return List.of(((AddressingMode2) addr).getRn());
+    }
+    return List.of();
+  }
+
+  @Override
+  public void replaceRegisters(UnaryOperator<Register> f) {
+    srcReg = f.apply(srcReg);
+    addr = addr.replaceRegisters(f);
+  }
+
   @Override
   public String assemble() {
     return mode.name() + " " + srcReg + ", " + addr;
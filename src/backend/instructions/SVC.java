@@ -0,0 +1,31 @@
+package backend.instructions;
+
+import static utils.backend.register.ARMConcreteRegister.r0;
+import static utils.backend.register.ARMConcreteRegister.r1;
+import static utils.backend.register.ARMConcreteRegister.r2;
+import static utils.backend.register.ARMConcreteRegister.r3;
+import static utils.backend.register.ARMConcreteRegister.r4;
+import static utils.backend.register.ARMConcreteRegister.r5;
+import static utils.backend.register.ARMConcreteRegister.r7;
+
+import java.util.List;
+import utils.backend.register.Register;
+
+public class SVC extends Instruction {
+
+  /* SVC #0, a Linux system call: the number in r7, arguments in r0 - r5, the result in r0 */
+  @Override
+  public String assemble() {
+    return "SVC #0";
+  }
+
+  @Override
+  public List<Register> getUses() {
+    return List.of(r0, r1, r2, r3, r4, r5, r7);
+  }
+
+  @Override
+  public List<Register> getDefs() {
+    return List.of(r0);
+  }
+}
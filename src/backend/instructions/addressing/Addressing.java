@@ -1,7 +1,21 @@
 package backend.instructions.addressing;
 
+import java.util.List;
+import java.util.function.UnaryOperator;
+import utils.backend.register.Register;
+
 public abstract class Addressing {
 
+  /* registers read to compute the address */
+  public List<Register> getRegisters() {
+    return List.of();
+  }
+
+  /* addressing is immutable, a new addressing is returned if any register changed */
+  public Addressing replaceRegisters(UnaryOperator<Register> f) {
+    return this;
+  }
+
   @Override
   public String toString() {
     return "[need to override toString()!]";
@@ -2,6 +2,10 @@ package backend.instructions.addressing;
 
 import backend.instructions.operand.Immediate;
 import backend.instructions.operand.Immediate.BitNum;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
 import utils.backend.register.Register;
 
 public class AddressingMode2 extends Addressing {
@@ -52,6 +56,64 @@ public class AddressingMode2 extends Addressing {
     this(mode, Rn, null, null, null);
   }
 
+  public AddrMode2 getMode() {
+    return mode;
+  }
+
+  public Register getRn() {
+    return Rn;
+  }
+
+  public Register getRm() {
+    return Rm;
+  }
+
+  public Immediate getImmed() {
+    return immed;
+  }
+
+  public AddrMode2Operator getOperator() {
+    return operator;
+  }
+
+  /* PREINDEX and POSTINDEX write the updated address back to Rn */
+  public boolean isWriteBack() {
+    return mode != AddrMode2.OFFSET;
+  }
+
+  @Override
+  public List<Register> getRegisters() {
+    List<Register> list = new ArrayList<>();
+    if (Rn != null) {
+      list.add(Rn);
+    }
+    if (Rm != null) {
+      list.add(Rm);
+    }
+    return list;
+  }
+
+  @Override
+  public Addressing replaceRegisters(UnaryOperator<Register> f) {
+    return new AddressingMode2(mode, Rn == null ? null : f.apply(Rn), Rm == null ? null : f.apply(Rm),
+        operator, immed);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof AddressingMode2)) {
+      return false;
+    }
+    AddressingMode2 other = (AddressingMode2) obj;
+    return mode == other.mode && Objects.equals(Rn, other.Rn) && Objects.equals(Rm, other.Rm)
+        && operator == other.operator && Objects.equals(immed, other.immed);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(mode, Rn, Rm, operator, immed);
+  }
+
   @Override
   public String toString() {
     StringBuilder str = new StringBuilder();
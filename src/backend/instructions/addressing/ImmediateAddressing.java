@@ -12,6 +12,20 @@ public class ImmediateAddressing extends Addressing {
     this.immed = new Immediate(val, BitNum.CONST16);
   }
 
+  public Immediate getImmed() {
+    return immed;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof ImmediateAddressing && ((ImmediateAddressing) obj).immed.equals(immed);
+  }
+
+  @Override
+  public int hashCode() {
+    return immed.hashCode();
+  }
+
   @Override
   public String toString() {
     if (immed.isChar()) {
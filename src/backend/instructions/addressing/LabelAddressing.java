@@ -15,6 +15,17 @@ public class LabelAddressing extends Addressing {
     return label;
   }
 
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof LabelAddressing
+        && ((LabelAddressing) obj).label.getName().equals(label.getName());
+  }
+
+  @Override
+  public int hashCode() {
+    return label.getName().hashCode();
+  }
+
   @Override
   public String toString() {
     return "=" + label.getName();
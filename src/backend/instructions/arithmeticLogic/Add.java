@@ -21,6 +21,15 @@ public class Add extends ArithmeticLogic {
     this.cond = cond;
   }
 
+  public Cond getCond() {
+    return cond;
+  }
+
+  @Override
+  public boolean setsFlags() {
+    return cond == Cond.S;
+  }
+
   @Override
   public String assemble() {
     return "ADD" + cond + " " + Rd + ", " + Rn + ", " + operand2;
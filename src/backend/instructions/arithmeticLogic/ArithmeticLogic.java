@@ -17,6 +17,7 @@ import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 import utils.backend.Cond;
 import utils.backend.register.ARMConcreteRegister;
 import utils.backend.register.ARMRegisterLabel;
@@ -37,8 +38,13 @@ public abstract class ArithmeticLogic extends Instruction {
     return List.of(m.get(b));
   };
 
-  public static final BinopAssemble DivModAsm = (rd, rn, op2, b) -> {
-    /* op2 will not be used here */
+  public static final BinopAssemble DivModAsm = (rd, rn, op2, b) -> divMod(rd, op2, b, true);
+
+  /* the same without calling p_check_divide_by_zero, for a divisor already compared with 0 */
+  public static final BinopAssemble UncheckedDivModAsm =
+      (rd, rn, op2, b) -> divMod(rd, op2, b, false);
+
+  private static List<Instruction> divMod(Register rd, Operand2 op2, Binop b, boolean checked) {
     List<Instruction> list = new ArrayList<>();
 
     Register r0 = new ARMConcreteRegister(ARMRegisterLabel.R0);
@@ -47,7 +53,9 @@ public abstract class ArithmeticLogic extends Instruction {
 
     list.add(new Mov(r0, dividend));
     list.add(new Mov(r1, op2));
-    list.add(new BL("p_check_divide_by_zero"));
+    if (checked) {
+      list.add(new BL("p_check_divide_by_zero"));
+    }
     if (b.equals(Binop.DIV)) {
       list.add(new BL("__aeabi_idiv"));
       list.add(new Mov(rd, new Operand2(r0)));
@@ -58,7 +66,7 @@ public abstract class ArithmeticLogic extends Instruction {
     }
 
     return list;
-  };
+  }
 
   public static final BinopAssemble CmpAsm = (rd, rn, op2, b) -> {
     List<Instruction> list = new ArrayList<>();
@@ -134,4 +142,38 @@ public abstract class ArithmeticLogic extends Instruction {
     Rn = rn;
     this.operand2 = operand2;
   }
+
+  public Register getRd() {
+    return Rd;
+  }
+
+  public Register getRn() {
+    return Rn;
+  }
+
+  public Operand2 getOperand2() {
+    return operand2;
+  }
+
+  @Override
+  public List<Register> getUses() {
+    List<Register> uses = new ArrayList<>();
+    uses.add(Rn);
+    if (operand2.getRegister() != null) {
+      uses.add(operand2.getRegister());
+    }
+    return uses;
+  }
+
+  @Override
+  public List<Register> getDefs() {
+    return List.of(Rd);
+  }
+
+  @Override
+  public void replaceRegisters(UnaryOperator<Register> f) {
+    Rd = f.apply(Rd);
+    Rn = f.apply(Rn);
+    operand2 = operand2.replaceRegister(f);
+  }
 }
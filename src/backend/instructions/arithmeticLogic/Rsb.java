@@ -12,6 +12,15 @@ public class Rsb extends ArithmeticLogic {
     mode = RsbMode.RSBS;
   }
 
+  public RsbMode getMode() {
+    return mode;
+  }
+
+  @Override
+  public boolean setsFlags() {
+    return mode == RsbMode.RSBS;
+  }
+
   @Override
   public String assemble() {
     return mode + " " + Rd + ", " + Rn + ", " + operand2;
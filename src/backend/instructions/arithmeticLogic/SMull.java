@@ -1,6 +1,7 @@
 package backend.instructions.arithmeticLogic;
 
 import backend.instructions.operand.Operand2;
+import java.util.List;
 import utils.backend.register.Register;
 
 public class SMull extends ArithmeticLogic {
@@ -10,6 +11,17 @@ public class SMull extends ArithmeticLogic {
     super(rd, rn, op2);
   }
 
+  /* both Rd and the register in operand2 are read and then overwritten by the 64-bit result */
+  @Override
+  public List<Register> getUses() {
+    return List.of(Rd, operand2.getRegister());
+  }
+
+  @Override
+  public List<Register> getDefs() {
+    return List.of(Rd, operand2.getRegister());
+  }
+
   @Override
   public String assemble() {
     return "SMULL " + Rd + ", " + operand2 + ", " + Rd + ", " + operand2;
@@ -20,6 +20,15 @@ public class Sub extends ArithmeticLogic {
     this.cond = cond;
   }
 
+  public Cond getCond() {
+    return cond;
+  }
+
+  @Override
+  public boolean setsFlags() {
+    return cond == Cond.S;
+  }
+
   @Override
   public String assemble() {
     return "SUB" + cond + " " + Rd + ", " + Rn + ", " + operand2;
@@ -13,6 +13,10 @@ public class Push extends Instruction {
     this.reglist = reglist;
   }
 
+  public List<Register> getRegList() {
+    return reglist;
+  }
+
   @Override
   public String assemble() {
     return "PUSH {" + reglist.stream().map(Register::toString).reduce((i, j) -> i + ", " + j).get()
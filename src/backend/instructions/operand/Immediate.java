@@ -27,6 +27,17 @@ public class Immediate {
     return bitNum;
   }
 
+  /* immediates are equal when they encode the same value, however they are printed */
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof Immediate && ((Immediate) obj).val == val;
+  }
+
+  @Override
+  public int hashCode() {
+    return Integer.hashCode(val);
+  }
+
   @Override
   public String toString() {
     if (isChar) {
@@ -1,6 +1,8 @@
 package backend.instructions.operand;
 
 import backend.instructions.operand.Immediate.BitNum;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
 import utils.backend.register.Register;
 
 /* operand specified as Table 1-14 in ARM spec */
@@ -37,6 +39,38 @@ public class Operand2 {
     this(Rm, operator, null);
   }
 
+  public Register getRegister() {
+    return Rm;
+  }
+
+  public Immediate getImmed() {
+    return immed;
+  }
+
+  public Operand2Operator getOperator() {
+    return operator;
+  }
+
+  /* operand2 is immutable, as it can be shared by several instructions */
+  public Operand2 replaceRegister(UnaryOperator<Register> f) {
+    return Rm == null ? this : new Operand2(f.apply(Rm), operator, immed);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof Operand2)) {
+      return false;
+    }
+    Operand2 other = (Operand2) obj;
+    return Objects.equals(Rm, other.Rm) && operator == other.operator
+        && Objects.equals(immed, other.immed);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(Rm, operator, immed);
+  }
+
   @Override
   public String toString() {
     StringBuilder res = new StringBuilder();
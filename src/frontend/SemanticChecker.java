@@ -5,8 +5,11 @@ import frontend.antlr.WACCParserBaseVisitor;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import org.antlr.v4.runtime.tree.ParseTree;
 
 import frontend.node.FuncNode;
 import frontend.node.Node;
@@ -47,12 +50,17 @@ public class SemanticChecker extends WACCParserBaseVisitor<Node> {
   /* record whether a skipable semantic error is found in visiting to support checking of multiple errors */
   private boolean semanticError;
 
+  /* the names read into by the function (or main) being visited, variables are kept in registers
+     and only these get a slot in the stack frame, which read goes through */
+  private Set<String> readTargets;
+
   /* constructor of SemanticChecker */
   public SemanticChecker() {
     currSymbolTable = null;
     globalFuncTable = new HashMap<>();
     isMainFunction = false;
     expectedFunctionReturn = null;
+    readTargets = new HashSet<>();
   }
 
   @Override
@@ -99,6 +107,7 @@ public class SemanticChecker extends WACCParserBaseVisitor<Node> {
 
     /* visit the body of the program and create the root SymbolTable here */
     isMainFunction = true;
+    readTargets = findReadTargets(ctx.stat());
     currSymbolTable = new SymbolTable(currSymbolTable);
     StatNode body = visit(ctx.stat()).asStatNode();
     if (!(body instanceof ScopeNode)) {
@@ -124,6 +133,7 @@ public class SemanticChecker extends WACCParserBaseVisitor<Node> {
 
     /* visit the function body */
     expectedFunctionReturn = funcNode.getReturnType();
+    readTargets = findReadTargets(ctx.stat());
     currSymbolTable = new SymbolTable(currSymbolTable);
 
     /* initialise as -4 byte in order to leave space for PUSH {lr}, 
@@ -132,11 +142,21 @@ public class SemanticChecker extends WACCParserBaseVisitor<Node> {
     List<IdentNode> params = funcNode.getParamList();
     int paramNum = params.size();
 
-    for (int i = paramNum - 1; i >= 0; i--) {
+    /* parameters passed on the stack are above lr, the ones passed in registers get a slot in the
+       function's own frame like a local variable, when they are read into */
+    for (int i = paramNum - 1; i >= MAX_REGISTER_PARAMS; i--) {
       IdentNode param = params.get(i);
       tempStackAddr += param.getType().getSize();
       currSymbolTable.add(param.getName(), param, tempStackAddr);
     }
+    for (int i = 0; i < Math.min(paramNum, MAX_REGISTER_PARAMS); i++) {
+      IdentNode param = params.get(i);
+      if (readTargets.contains(param.getName())) {
+        currSymbolTable.add(param.getName(), param);
+      } else {
+        currSymbolTable.addWithoutSlot(param.getName(), param);
+      }
+    }
 
     StatNode functionBody = visit(ctx.stat()).asStatNode();
     functionBody.setScope(currSymbolTable);
@@ -151,6 +171,19 @@ public class SemanticChecker extends WACCParserBaseVisitor<Node> {
     return enclosedBody;
   }
 
+  /* the identifiers read into anywhere in stat, whichever scope declares them */
+  private static Set<String> findReadTargets(ParseTree tree) {
+    Set<String> targets = new HashSet<>();
+    if (tree instanceof ReadStatContext
+        && ((ReadStatContext) tree).assign_lhs() instanceof IdentContext) {
+      targets.add(((ReadStatContext) tree).assign_lhs().getText());
+    }
+    for (int i = 0; i < tree.getChildCount(); i++) {
+      targets.addAll(findReadTargets(tree.getChild(i)));
+    }
+    return targets;
+  }
+
   /* =========================================================
    *                   Statement Visitors
    * =========================================================
@@ -214,8 +247,8 @@ public class SemanticChecker extends WACCParserBaseVisitor<Node> {
     currSymbolTable = currSymbolTable.getParentSymbolTable();
 
     StatNode node = (body instanceof ScopeNode) ?
-            new WhileNode(condition, body) :
-            new WhileNode(condition, new ScopeNode(body));
+            new WhileNode(condition, body, ctx.getStart().getLine()) :
+            new WhileNode(condition, new ScopeNode(body), ctx.getStart().getLine());
     node.setScope(currSymbolTable);
 
     return node;
@@ -325,7 +358,8 @@ public class SemanticChecker extends WACCParserBaseVisitor<Node> {
       expr.setType(varType);
     }
 
-    semanticError |= currSymbolTable.add(varName, expr);
+    semanticError |= readTargets.contains(varName) ? currSymbolTable.add(varName, expr)
+        : currSymbolTable.addWithoutSlot(varName, expr);
 
     StatNode node = new DeclareNode(varName, expr);
     node.setScope(currSymbolTable);
@@ -6,6 +6,7 @@ import frontend.type.Type;
 import utils.NodeVisitor;
 import java.util.List;
 
+import static utils.Utils.MAX_REGISTER_PARAMS;
 import static utils.Utils.POINTER_SIZE;
 
 public class FuncNode implements Node {
@@ -46,10 +47,12 @@ public class FuncNode implements Node {
     return parameters;
   }
 
+  /* bytes of the parameters the caller passes on the stack, the ones after the first
+   * MAX_REGISTER_PARAMS, which are passed in registers */
   public int paramListStackSize() {
     int size = 0;
-    for (IdentNode ident : parameters) {
-      size += ident.getType().getSize();
+    for (int i = MAX_REGISTER_PARAMS; i < parameters.size(); i++) {
+      size += parameters.get(i).getType().getSize();
     }
     return size;
   }
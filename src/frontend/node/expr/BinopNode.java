@@ -65,6 +65,13 @@ public class BinopNode extends ExprNode {
     this.operator = operator;
   }
 
+  /* && and || only evaluate expr2 when expr1 does not decide the result, unless expr2 is a literal
+   * or a variable, which is cheaper to evaluate than to branch over */
+  public boolean isShortCircuit() {
+    return (operator == Binop.AND || operator == Binop.OR)
+        && !(expr2 instanceof BoolNode || expr2 instanceof IdentNode);
+  }
+
   @Override
   public <T> T accept(NodeVisitor<T> visitor) {
     return visitor.visitBinopNode(this);
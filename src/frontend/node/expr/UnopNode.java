@@ -44,6 +44,10 @@ public class UnopNode extends ExprNode {
     return expr;
   }
 
+  public void setExpr(ExprNode expr) {
+    this.expr = expr;
+  }
+
   @Override
   public <T> T accept(NodeVisitor<T> visitor) {
     return visitor.visitUnopNode(this);
@@ -11,7 +11,7 @@ public class AssignNode extends StatNode {
    */
 
   private final ExprNode lhs;
-  private final ExprNode rhs;
+  private ExprNode rhs;
 
   public AssignNode(ExprNode lhs, ExprNode rhs) {
     this.lhs = lhs;
@@ -26,6 +26,10 @@ public class AssignNode extends StatNode {
     return rhs;
   }
 
+  public void setRhs(ExprNode rhs) {
+    this.rhs = rhs;
+  }
+
   @Override
   public <T> T accept(NodeVisitor<T> visitor) {
     return visitor.visitAssignNode(this);
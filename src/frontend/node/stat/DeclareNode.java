@@ -12,7 +12,7 @@ public class DeclareNode extends StatNode {
    */
 
   private final String identifier;
-  private final ExprNode rhs;
+  private ExprNode rhs;
 
   public DeclareNode(String identifier, ExprNode rhs) {
     this.identifier = identifier;
@@ -27,6 +27,10 @@ public class DeclareNode extends StatNode {
     return rhs;
   }
 
+  public void setRhs(ExprNode rhs) {
+    this.rhs = rhs;
+  }
+
   @Override
   public <T> T accept(NodeVisitor<T> visitor) {
     return visitor.visitDeclareNode(this);
@@ -10,7 +10,7 @@ public class ExitNode extends StatNode {
    * Example: exit -1
    */
 
-  private final ExprNode value;
+  private ExprNode value;
 
   public ExitNode(ExprNode value) {
     this.value = value;
@@ -21,6 +21,10 @@ public class ExitNode extends StatNode {
     return value;
   }
 
+  public void setValue(ExprNode value) {
+    this.value = value;
+  }
+
   @Override
   public <T> T accept(NodeVisitor<T> visitor) {
     return visitor.visitExitNode(this);
@@ -9,7 +9,7 @@ public class IfNode extends StatNode {
    * Represent an if-else statement, with condition and if-body, else-body recorded
    */
 
-  private final ExprNode cond;
+  private ExprNode cond;
   private final StatNode ifBody;
   private final StatNode elseBody;
 
@@ -30,6 +30,10 @@ public class IfNode extends StatNode {
     return cond;
   }
 
+  public void setCond(ExprNode cond) {
+    this.cond = cond;
+  }
+
   public StatNode getIfBody() {
     return ifBody;
   }
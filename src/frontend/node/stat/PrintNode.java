@@ -10,7 +10,7 @@ public class PrintNode extends StatNode {
    * Example: print <expr>
    */
 
-  private final ExprNode expr;
+  private ExprNode expr;
 
   public PrintNode(ExprNode expr) {
     this.expr = expr;
@@ -20,6 +20,10 @@ public class PrintNode extends StatNode {
     return expr;
   }
 
+  public void setExpr(ExprNode expr) {
+    this.expr = expr;
+  }
+
   @Override
   public <T> T accept(NodeVisitor<T> visitor) {
     return visitor.visitPrintNode(this);
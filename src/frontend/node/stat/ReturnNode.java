@@ -10,7 +10,7 @@ public class ReturnNode extends StatNode {
    * Example: return x, return 'a', return 1
    */
 
-  private final ExprNode expr;
+  private ExprNode expr;
 
   public ReturnNode(ExprNode expr) {
     this.expr = expr;
@@ -21,6 +21,10 @@ public class ReturnNode extends StatNode {
     return expr;
   }
 
+  public void setExpr(ExprNode expr) {
+    this.expr = expr;
+  }
+
   @Override
   public <T> T accept(NodeVisitor<T> visitor) {
     return visitor.visitReturnNode(this);
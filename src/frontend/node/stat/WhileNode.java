@@ -9,22 +9,33 @@ public class WhileNode extends StatNode {
    * Represent a while-loop node, with condition and body recorded
    */
 
-  private final ExprNode cond;
+  private ExprNode cond;
   private final StatNode body;
+  /* the line of the source file the loop starts on */
+  private final int line;
 
-  public WhileNode(ExprNode cond, StatNode body) {
+  public WhileNode(ExprNode cond, StatNode body, int line) {
     this.cond = cond;
     this.body = body;
+    this.line = line;
   }
 
   public ExprNode getCond() {
     return cond;
   }
 
+  public void setCond(ExprNode cond) {
+    this.cond = cond;
+  }
+
   public StatNode getBody() {
     return body;
   }
 
+  public int getLine() {
+    return line;
+  }
+
   @Override
   public <T> T accept(NodeVisitor<T> visitor) {
     return visitor.visitWhileNode(this);
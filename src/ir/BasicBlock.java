@@ -0,0 +1,57 @@
+package ir;
+
+import ir.instructions.IRInstruction;
+import ir.instructions.Terminator;
+import java.util.ArrayList;
+import java.util.List;
+
+/* a straight line sequence of instructions, only the last one (the terminator) transfers control */
+public class BasicBlock {
+
+  private final String name;
+  private final List<IRInstruction> instructions;
+  /* the source line of the while loop whose body starts with this block, 0 for other blocks */
+  private int sourceLine;
+
+  public BasicBlock(String name) {
+    this.name = name;
+    this.instructions = new ArrayList<>();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getSourceLine() {
+    return sourceLine;
+  }
+
+  public void setSourceLine(int sourceLine) {
+    this.sourceLine = sourceLine;
+  }
+
+  public List<IRInstruction> getInstructions() {
+    return instructions;
+  }
+
+  public void add(IRInstruction instruction) {
+    instructions.add(instruction);
+  }
+
+  public boolean isTerminated() {
+    return !instructions.isEmpty() && instructions.get(instructions.size() - 1) instanceof Terminator;
+  }
+
+  public Terminator getTerminator() {
+    return isTerminated() ? (Terminator) instructions.get(instructions.size() - 1) : null;
+  }
+
+  public List<BasicBlock> getSuccessors() {
+    return isTerminated() ? getTerminator().getSuccessors() : List.of();
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
@@ -0,0 +1,30 @@
+package ir;
+
+/* an integer constant, bools and chars are represented by their integer value */
+public class Constant implements Value {
+
+  private final int val;
+
+  public Constant(int val) {
+    this.val = val;
+  }
+
+  public int getVal() {
+    return val;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof Constant && ((Constant) obj).val == val;
+  }
+
+  @Override
+  public int hashCode() {
+    return Integer.hashCode(val);
+  }
+
+  @Override
+  public String toString() {
+    return Integer.toString(val);
+  }
+}
@@ -0,0 +1,154 @@
+package ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/* dominators of the blocks of a function (Cooper, Harvey and Kennedy), with dominance frontiers */
+public class DominatorTree {
+
+  private final BasicBlock entry;
+  private final List<BasicBlock> reversePostorder;
+  private final Map<BasicBlock, Integer> order;
+  private final Map<BasicBlock, List<BasicBlock>> preds;
+  private final Map<BasicBlock, BasicBlock> idom;
+  private final Map<BasicBlock, List<BasicBlock>> children;
+  private final Map<BasicBlock, Set<BasicBlock>> frontiers;
+
+  public DominatorTree(IRFunction function) {
+    this.entry = function.getEntry();
+    this.reversePostorder = reversePostorder(entry);
+    this.order = new HashMap<>();
+    for (int i = 0; i < reversePostorder.size(); i++) {
+      order.put(reversePostorder.get(i), i);
+    }
+
+    /* only the edges between reachable blocks count */
+    this.preds = new HashMap<>();
+    for (BasicBlock block : reversePostorder) {
+      preds.putIfAbsent(block, new ArrayList<>());
+      for (BasicBlock succ : block.getSuccessors()) {
+        preds.computeIfAbsent(succ, b -> new ArrayList<>()).add(block);
+      }
+    }
+
+    /* iterate in reverse postorder until no immediate dominator changes */
+    this.idom = new HashMap<>();
+    idom.put(entry, entry);
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (BasicBlock block : reversePostorder.subList(1, reversePostorder.size())) {
+        BasicBlock newIdom = null;
+        for (BasicBlock pred : preds.get(block)) {
+          if (idom.containsKey(pred)) {
+            newIdom = newIdom == null ? pred : intersect(pred, newIdom);
+          }
+        }
+        if (newIdom != idom.get(block)) {
+          idom.put(block, newIdom);
+          changed = true;
+        }
+      }
+    }
+
+    this.children = new HashMap<>();
+    for (BasicBlock block : reversePostorder) {
+      children.put(block, new ArrayList<>());
+    }
+    for (BasicBlock block : reversePostorder.subList(1, reversePostorder.size())) {
+      children.get(idom.get(block)).add(block);
+    }
+
+    /* a join point is in the frontier of every block between its predecessors and its idom */
+    this.frontiers = new HashMap<>();
+    for (BasicBlock block : reversePostorder) {
+      frontiers.put(block, new LinkedHashSet<>());
+    }
+    for (BasicBlock block : reversePostorder) {
+      if (preds.get(block).size() < 2) {
+        continue;
+      }
+      for (BasicBlock pred : preds.get(block)) {
+        BasicBlock runner = pred;
+        while (runner != idom.get(block)) {
+          frontiers.get(runner).add(block);
+          runner = idom.get(runner);
+        }
+      }
+    }
+  }
+
+  private BasicBlock intersect(BasicBlock b1, BasicBlock b2) {
+    while (b1 != b2) {
+      while (order.get(b1) > order.get(b2)) {
+        b1 = idom.get(b1);
+      }
+      while (order.get(b2) > order.get(b1)) {
+        b2 = idom.get(b2);
+      }
+    }
+    return b1;
+  }
+
+  private static List<BasicBlock> reversePostorder(BasicBlock entry) {
+    List<BasicBlock> postorder = new ArrayList<>();
+    Set<BasicBlock> visited = new LinkedHashSet<>();
+    /* each frame holds a block and the index of the next successor to visit */
+    Deque<Object[]> stack = new ArrayDeque<>();
+    visited.add(entry);
+    stack.push(new Object[]{entry, 0});
+    while (!stack.isEmpty()) {
+      Object[] frame = stack.peek();
+      BasicBlock block = (BasicBlock) frame[0];
+      int next = (int) frame[1];
+      List<BasicBlock> succs = block.getSuccessors();
+      if (next < succs.size()) {
+        frame[1] = next + 1;
+        if (visited.add(succs.get(next))) {
+          stack.push(new Object[]{succs.get(next), 0});
+        }
+      } else {
+        postorder.add(block);
+        stack.pop();
+      }
+    }
+    Collections.reverse(postorder);
+    return postorder;
+  }
+
+  /* the reachable blocks, every block coming after its dominators */
+  public List<BasicBlock> getReversePostorder() {
+    return reversePostorder;
+  }
+
+  public List<BasicBlock> getPredecessors(BasicBlock block) {
+    return preds.get(block);
+  }
+
+  /* the immediate dominator of block, null for the entry */
+  public BasicBlock getIdom(BasicBlock block) {
+    return block == entry ? null : idom.get(block);
+  }
+
+  public List<BasicBlock> getChildren(BasicBlock block) {
+    return children.get(block);
+  }
+
+  public Set<BasicBlock> getFrontier(BasicBlock block) {
+    return frontiers.get(block);
+  }
+
+  public boolean dominates(BasicBlock dominator, BasicBlock block) {
+    while (block != dominator && block != entry) {
+      block = idom.get(block);
+    }
+    return block == dominator;
+  }
+}
@@ -0,0 +1,123 @@
+package ir;
+
+import ir.instructions.IRInstruction;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/* a WACC function (or main) as a list of basic blocks, the first block being the entry */
+public class IRFunction {
+
+  /* the label of the function in the assembly, e.g. f_foo */
+  private final String name;
+  private final List<VirtualRegister> params;
+  /* bytes taken by each parameter on the stack, 1 for chars and bools */
+  private final List<Integer> paramSizes;
+  private final List<BasicBlock> blocks;
+  private final List<StackSlot> slots;
+  private int registerCount;
+  private int blockCount;
+
+  public IRFunction(String name) {
+    this.name = name;
+    this.params = new ArrayList<>();
+    this.paramSizes = new ArrayList<>();
+    this.blocks = new ArrayList<>();
+    this.slots = new ArrayList<>();
+    this.registerCount = 0;
+    this.blockCount = 0;
+  }
+
+  public VirtualRegister newRegister() {
+    return new VirtualRegister(registerCount++);
+  }
+
+  /* create a block without adding it to the function, so that blocks can be laid out in any order */
+  public BasicBlock newBlock() {
+    return new BasicBlock(name + "." + blockCount++);
+  }
+
+  public StackSlot newSlot() {
+    StackSlot slot = new StackSlot(slots.size());
+    slots.add(slot);
+    return slot;
+  }
+
+  public void addParam(VirtualRegister param, int size) {
+    params.add(param);
+    paramSizes.add(size);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public List<VirtualRegister> getParams() {
+    return params;
+  }
+
+  public List<Integer> getParamSizes() {
+    return paramSizes;
+  }
+
+  /* blocks in layout order, a block falls through to the next one when it jumps there */
+  public List<BasicBlock> getBlocks() {
+    return blocks;
+  }
+
+  public BasicBlock getEntry() {
+    return blocks.get(0);
+  }
+
+  public List<StackSlot> getSlots() {
+    return slots;
+  }
+
+  public int getRegisterCount() {
+    return registerCount;
+  }
+
+  public Map<BasicBlock, List<BasicBlock>> getPredecessors() {
+    Map<BasicBlock, List<BasicBlock>> preds = new HashMap<>();
+    for (BasicBlock block : blocks) {
+      preds.putIfAbsent(block, new ArrayList<>());
+      for (BasicBlock succ : block.getSuccessors()) {
+        preds.computeIfAbsent(succ, b -> new ArrayList<>()).add(block);
+      }
+    }
+    return preds;
+  }
+
+  /* drop the blocks that cannot be reached from the entry, keeping the layout order of the others */
+  public void removeUnreachableBlocks() {
+    Set<BasicBlock> reached = new LinkedHashSet<>();
+    Deque<BasicBlock> worklist = new ArrayDeque<>();
+    reached.add(getEntry());
+    worklist.push(getEntry());
+    while (!worklist.isEmpty()) {
+      for (BasicBlock succ : worklist.pop().getSuccessors()) {
+        if (reached.add(succ)) {
+          worklist.push(succ);
+        }
+      }
+    }
+    blocks.retainAll(reached);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder res = new StringBuilder(name).append(params).append(":\n");
+    for (BasicBlock block : blocks) {
+      res.append(block.getName()).append(":\n");
+      for (IRInstruction instruction : block.getInstructions()) {
+        res.append("\t").append(instruction).append("\n");
+      }
+    }
+    return res.toString();
+  }
+}
@@ -0,0 +1,476 @@
+package ir;
+
+import static utils.Utils.RoutineInstruction.*;
+import static utils.Utils.*;
+
+import frontend.node.*;
+import frontend.node.expr.*;
+import frontend.node.expr.BinopNode.Binop;
+import frontend.node.expr.UnopNode.Unop;
+import frontend.node.stat.*;
+import frontend.type.Type;
+import ir.instructions.*;
+import ir.memory.ArrayElementAccess;
+import ir.memory.ArrayLengthAccess;
+import ir.memory.MemoryAccess;
+import ir.memory.PairElementAccess;
+import ir.memory.StackSlotAccess;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import utils.NodeVisitor;
+import utils.Utils.RoutineInstruction;
+import utils.frontend.symbolTable.Symbol;
+
+/* translate the AST into three-address IR, every expression returns the value holding its result */
+public class IRGenerator implements NodeVisitor<Value> {
+
+  /* used for mapping type with its print routine function */
+  private final Map<Type, RoutineInstruction> typeRoutineMap = Map.of(
+      INT_BASIC_TYPE, PRINT_INT,
+      CHAR_BASIC_TYPE, PRINT_CHAR,
+      BOOL_BASIC_TYPE, PRINT_BOOL,
+      STRING_BASIC_TYPE, PRINT_STRING,
+      CHAR_ARRAY_TYPE, PRINT_STRING,
+      ARRAY_TYPE, PRINT_REFERENCE,
+      PAIR_TYPE, PRINT_REFERENCE
+  );
+  private final IRProgram program;
+  /* the function being translated, and the block new instructions are appended to */
+  private IRFunction currFunction;
+  private BasicBlock currBlock;
+  /* every local variable and parameter lives in one virtual register of its function */
+  private Map<Symbol, VirtualRegister> variables;
+  /* the variables read by a read statement also need a stack slot to pass their address */
+  private Map<Symbol, StackSlot> variableSlots;
+
+  public IRGenerator() {
+    program = new IRProgram();
+  }
+
+  @Override
+  public Value visit(Node node) {
+    return node.accept(this);
+  }
+
+  @Override
+  public Value visitArrayElemNode(ArrayElemNode node) {
+    return load(arrayElementAccess(node));
+  }
+
+  @Override
+  public Value visitArrayNode(ArrayNode node) {
+    List<Value> elems = new ArrayList<>();
+    for (ExprNode elem : node.getContent()) {
+      elems.add(visit(elem));
+    }
+
+    VirtualRegister array = currFunction.newRegister();
+    int elemSize = node.getContentSize();
+    add(new NewArray(array, node.getLength(), elemSize));
+    for (int i = 0; i < elems.size(); i++) {
+      add(new Store(elems.get(i), new ArrayElementAccess(array, new Constant(i), elemSize)));
+    }
+    add(new Store(new Constant(node.getLength()), new ArrayLengthAccess(array)));
+    return array;
+  }
+
+  @Override
+  public Value visitBinopNode(BinopNode node) {
+    ExprNode expr1 = node.getExpr1();
+    ExprNode expr2 = node.getExpr2();
+    Value v1, v2;
+
+    if (node.isShortCircuit()) {
+      /* expr1 is the result unless it is TRUE for && or FALSE for ||, then expr2 is */
+      BasicBlock rhsBlock = currFunction.newBlock();
+      BasicBlock exitBlock = currFunction.newBlock();
+      VirtualRegister dst = currFunction.newRegister();
+      v1 = visit(expr1);
+      add(new Move(dst, v1));
+      terminate(node.getOperator() == Binop.AND ? new Branch(v1, rhsBlock, exitBlock)
+          : new Branch(v1, exitBlock, rhsBlock));
+
+      startBlock(rhsBlock);
+      add(new Move(dst, visit(expr2)));
+      terminate(new Jump(exitBlock));
+
+      startBlock(exitBlock);
+      return dst;
+    }
+
+    /* same evaluation order as ARMInstructionGenerator, heavier operand first */
+    if (expr1.getWeight() >= expr2.getWeight()) {
+      v1 = visit(expr1);
+      v2 = visit(expr2);
+    } else {
+      v2 = visit(expr2);
+      v1 = visit(expr1);
+    }
+
+    VirtualRegister dst = currFunction.newRegister();
+    add(new Binary(dst, node.getOperator(), v1, v2));
+    return dst;
+  }
+
+  @Override
+  public Value visitBoolNode(BoolNode node) {
+    return new Constant(node.getVal() ? TRUE : FALSE);
+  }
+
+  @Override
+  public Value visitCharNode(CharNode node) {
+    return new Constant(node.getAsciiValue());
+  }
+
+  @Override
+  public Value visitIntegerNode(IntegerNode node) {
+    return new Constant(node.getVal());
+  }
+
+  @Override
+  public Value visitFunctionCallNode(FunctionCallNode node) {
+    /* arguments are evaluated from the last one, as they are pushed in that order */
+    List<ExprNode> params = node.getParams();
+    List<Value> args = new ArrayList<>(Collections.nCopies(params.size(), null));
+    List<Integer> argSizes = new ArrayList<>();
+    for (int i = params.size() - 1; i >= 0; i--) {
+      args.set(i, visit(params.get(i)));
+    }
+    for (ExprNode param : params) {
+      argSizes.add(sizeOf(param.getType()));
+    }
+
+    VirtualRegister dst = currFunction.newRegister();
+    add(new Call(dst, FUNC_HEADER + node.getFunction().getFunctionName(), args, argSizes));
+    return dst;
+  }
+
+  @Override
+  public Value visitIdentNode(IdentNode node) {
+    return variable(node.getSymbol());
+  }
+
+  @Override
+  public Value visitPairElemNode(PairElemNode node) {
+    return load(pairElementAccess(node, sizeOf(node.getType())));
+  }
+
+  @Override
+  public Value visitPairNode(PairNode node) {
+    /* null is a pair without children */
+    if (node.getFst() == null || node.getSnd() == null) {
+      return new Constant(0);
+    }
+
+    Value fst = visit(node.getFst());
+    Value snd = visit(node.getSnd());
+    VirtualRegister pair = currFunction.newRegister();
+    add(new NewPair(pair, fst, sizeOf(node.getFst().getType()), snd,
+        sizeOf(node.getSnd().getType())));
+    return pair;
+  }
+
+  @Override
+  public Value visitStringNode(StringNode node) {
+    VirtualRegister dst = currFunction.newRegister();
+    add(new LoadString(dst, node.getString()));
+    return dst;
+  }
+
+  @Override
+  public Value visitUnopNode(UnopNode node) {
+    Value src = visit(node.getExpr());
+    Unop operator = node.getOperator();
+
+    /* chars and ints have the same representation */
+    if (operator == Unop.ORD || operator == Unop.CHR) {
+      return src;
+    }
+    if (operator == Unop.LEN) {
+      return load(new ArrayLengthAccess(src));
+    }
+
+    VirtualRegister dst = currFunction.newRegister();
+    add(new Unary(dst, operator, src));
+    return dst;
+  }
+
+  @Override
+  public Value visitAssignNode(AssignNode node) {
+    /* the rhs is evaluated before the address of the lhs */
+    Value value = visit(node.getRhs());
+    ExprNode lhs = node.getLhs();
+    int size = sizeOf(node.getRhs().getType());
+
+    if (lhs instanceof IdentNode) {
+      add(new Move(variable(((IdentNode) lhs).getSymbol()), value));
+    } else if (lhs instanceof ArrayElemNode) {
+      add(new Store(value, arrayElementAccess((ArrayElemNode) lhs)));
+    } else {
+      add(new Store(value, pairElementAccess((PairElemNode) lhs, size)));
+    }
+    return null;
+  }
+
+  @Override
+  public Value visitDeclareNode(DeclareNode node) {
+    Value value = visit(node.getRhs());
+    Symbol symbol = node.getScope().lookup(node.getIdentifier());
+    add(new Move(variable(symbol), value));
+    return null;
+  }
+
+  @Override
+  public Value visitExitNode(ExitNode node) {
+    terminate(new Exit(visit(node.getValue())));
+    return null;
+  }
+
+  @Override
+  public Value visitFreeNode(FreeNode node) {
+    Value value = visit(node.getExpr());
+    Type type = node.getExpr().getType();
+    RoutineInstruction routine = type.equalToType(ARRAY_TYPE) ? FREE_ARRAY : FREE_PAIR;
+    add(new RoutineCall(routine, List.of(value)));
+    return null;
+  }
+
+  @Override
+  public Value visitIfNode(IfNode node) {
+    BasicBlock ifBlock = currFunction.newBlock();
+    BasicBlock elseBlock = currFunction.newBlock();
+    BasicBlock exitBlock = currFunction.newBlock();
+
+    branchOnCondition(node.getCond(), ifBlock, elseBlock);
+
+    startBlock(ifBlock);
+    visit(node.getIfBody());
+    terminate(new Jump(exitBlock));
+
+    startBlock(elseBlock);
+    visit(node.getElseBody());
+    terminate(new Jump(exitBlock));
+
+    startBlock(exitBlock);
+    return null;
+  }
+
+  @Override
+  public Value visitPrintlnNode(PrintlnNode node) {
+    visitPrintNode(new PrintNode(node.getExpr()));
+    add(new RoutineCall(PRINT_LN, List.of()));
+    return null;
+  }
+
+  @Override
+  public Value visitPrintNode(PrintNode node) {
+    Value value = visit(node.getExpr());
+    add(new RoutineCall(typeRoutineMap.get(node.getExpr().getType()), List.of(value)));
+    return null;
+  }
+
+  @Override
+  public Value visitReadNode(ReadNode node) {
+    ExprNode target = node.getInputExpr();
+    Type type = target.getType();
+    RoutineInstruction routine = type.equalToType(INT_BASIC_TYPE) ? READ_INT : READ_CHAR;
+    int size = sizeOf(type);
+
+    /* a variable is read through its stack slot, which holds the old value in case the read fails */
+    if (target instanceof IdentNode) {
+      Symbol symbol = ((IdentNode) target).getSymbol();
+      StackSlotAccess slot = new StackSlotAccess(
+          variableSlots.computeIfAbsent(symbol, s -> currFunction.newSlot()), size);
+      add(new Store(variable(symbol), slot));
+      VirtualRegister addr = currFunction.newRegister();
+      add(new AddressOf(addr, slot));
+      add(new RoutineCall(routine, List.of(addr)));
+      add(new Load(variable(symbol), slot));
+      return null;
+    }
+
+    VirtualRegister addr = currFunction.newRegister();
+    if (target instanceof ArrayElemNode) {
+      add(new AddressOf(addr, arrayElementAccess((ArrayElemNode) target)));
+    } else {
+      add(new AddressOf(addr, pairElementAccess((PairElemNode) target, size)));
+    }
+    add(new RoutineCall(routine, List.of(addr)));
+    return null;
+  }
+
+  @Override
+  public Value visitReturnNode(ReturnNode node) {
+    terminate(new Return(visit(node.getExpr())));
+    return null;
+  }
+
+  @Override
+  public Value visitScopeNode(ScopeNode node) {
+    for (StatNode stat : node.getBody()) {
+      visit(stat);
+    }
+    return null;
+  }
+
+  @Override
+  public Value visitSkipNode(SkipNode node) {
+    return null;
+  }
+
+  @Override
+  public Value visitWhileNode(WhileNode node) {
+    BasicBlock bodyBlock = currFunction.newBlock();
+    BasicBlock testBlock = currFunction.newBlock();
+    BasicBlock exitBlock = currFunction.newBlock();
+    bodyBlock.setSourceLine(node.getLine());
+
+    /* the condition is tested in front of the loop and at its bottom, so the body is the header of
+     * the loop and code hoisted in front of the body only runs when the body does */
+    branchOnCondition(node.getCond(), bodyBlock, exitBlock);
+
+    startBlock(bodyBlock);
+    visit(node.getBody());
+    terminate(new Jump(testBlock));
+
+    startBlock(testBlock);
+    branchOnCondition(node.getCond(), bodyBlock, exitBlock);
+
+    startBlock(exitBlock);
+    return null;
+  }
+
+  @Override
+  public Value visitFuncNode(FuncNode node) {
+    startFunction(FUNC_HEADER + node.getFunctionName());
+
+    for (IdentNode param : node.getParamList()) {
+      Symbol symbol = node.getFunctionBody().getScope().lookup(param.getName());
+      currFunction.addParam(variable(symbol), sizeOf(param.getType()));
+    }
+    visit(node.getFunctionBody());
+
+    /* every path of a function body ends with return or exit, so this block is unreachable */
+    terminate(new Return(new Constant(0)));
+    endFunction();
+    program.addFunction(currFunction);
+    return null;
+  }
+
+  @Override
+  public Value visitProgramNode(ProgramNode node) {
+    for (FuncNode func : node.getFunctions().values()) {
+      visitFuncNode(func);
+    }
+
+    startFunction(MAIN_BODY_NAME);
+    visit(node.getBody());
+    terminate(new Return(new Constant(0)));
+    endFunction();
+    program.setMain(currFunction);
+    return null;
+  }
+
+  /* below are helper functions used in this class */
+  private void startFunction(String name) {
+    currFunction = new IRFunction(name);
+    variables = new HashMap<>();
+    variableSlots = new HashMap<>();
+    currBlock = null;
+    startBlock(currFunction.newBlock());
+  }
+
+  private void endFunction() {
+    currFunction.removeUnreachableBlocks();
+  }
+
+  /* lay out block after the current one, jumping to it if the current block is not terminated */
+  private void startBlock(BasicBlock block) {
+    if (currBlock != null && !currBlock.isTerminated()) {
+      currBlock.add(new Jump(block));
+    }
+    currFunction.getBlocks().add(block);
+    currBlock = block;
+  }
+
+  private void add(IRInstruction instruction) {
+    if (currBlock == null) {
+      startBlock(currFunction.newBlock());
+    }
+    currBlock.add(instruction);
+  }
+
+  /* end the current block, anything translated afterwards goes into a block that no branch targets */
+  private void terminate(Terminator terminator) {
+    add(terminator);
+    currBlock = null;
+  }
+
+  /* end the current block going to ifTrue or ifFalse depending on cond: && and || test their
+   * operands in separate blocks instead of combining them, and ! swaps the targets */
+  private void branchOnCondition(ExprNode cond, BasicBlock ifTrue, BasicBlock ifFalse) {
+    if (cond instanceof UnopNode && ((UnopNode) cond).getOperator() == Unop.NOT) {
+      branchOnCondition(((UnopNode) cond).getExpr(), ifFalse, ifTrue);
+      return;
+    }
+    Binop operator = cond instanceof BinopNode ? ((BinopNode) cond).getOperator() : null;
+    if (operator != Binop.AND && operator != Binop.OR) {
+      terminate(new Branch(visit(cond), ifTrue, ifFalse));
+      return;
+    }
+
+    BinopNode node = (BinopNode) cond;
+    BasicBlock rhsBlock = currFunction.newBlock();
+    if (operator == Binop.AND) {
+      branchOnCondition(node.getExpr1(), rhsBlock, ifFalse);
+    } else {
+      branchOnCondition(node.getExpr1(), ifTrue, rhsBlock);
+    }
+    startBlock(rhsBlock);
+    branchOnCondition(node.getExpr2(), ifTrue, ifFalse);
+  }
+
+  private VirtualRegister load(MemoryAccess access) {
+    VirtualRegister dst = currFunction.newRegister();
+    add(new Load(dst, access));
+    return dst;
+  }
+
+  private VirtualRegister variable(Symbol symbol) {
+    return variables.computeIfAbsent(symbol, s -> currFunction.newRegister());
+  }
+
+  /* evaluate the indices one by one, checking each against the bounds of the array it indexes */
+  private ArrayElementAccess arrayElementAccess(ArrayElemNode node) {
+    Value array = variable(node.getSymbol());
+    Value index = null;
+    for (int i = 0; i < node.getDepth(); i++) {
+      Value next = visit(node.getIndex().get(i));
+      /* the outer dimensions hold pointers to the inner arrays */
+      if (i > 0) {
+        array = load(new ArrayElementAccess(array, index, POINTER_SIZE));
+      }
+      index = next;
+      add(new CheckBounds(array, index));
+    }
+    return new ArrayElementAccess(array, index, sizeOf(node.getType()));
+  }
+
+  private PairElementAccess pairElementAccess(PairElemNode node, int size) {
+    Value pair = visit(node.getPair());
+    add(new CheckNull(pair));
+    return new PairElementAccess(pair, node.isFirst(), size);
+  }
+
+  /* the type of an element of a nested pair is not known, but it is then a pair pointer */
+  private static int sizeOf(Type type) {
+    return type == null ? WORD_SIZE : type.getSize();
+  }
+
+  public IRProgram getProgram() {
+    return program;
+  }
+}
@@ -0,0 +1,38 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class IRProgram {
+
+  private final List<IRFunction> functions;
+  private IRFunction main;
+
+  public IRProgram() {
+    this.functions = new ArrayList<>();
+  }
+
+  public void addFunction(IRFunction function) {
+    functions.add(function);
+  }
+
+  public void setMain(IRFunction main) {
+    this.main = main;
+  }
+
+  /* the WACC functions, not including main */
+  public List<IRFunction> getFunctions() {
+    return functions;
+  }
+
+  public IRFunction getMain() {
+    return main;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder res = new StringBuilder();
+    functions.forEach(function -> res.append(function).append("\n"));
+    return res.append(main).toString();
+  }
+}
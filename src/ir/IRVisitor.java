@@ -0,0 +1,49 @@
+package ir;
+
+import ir.instructions.*;
+
+public interface IRVisitor<T> {
+
+  default T visit(IRInstruction instruction) {
+    return instruction.accept(this);
+  }
+
+  T visitBinary(Binary instruction);
+
+  T visitUnary(Unary instruction);
+
+  T visitMove(Move instruction);
+
+  T visitLoad(Load instruction);
+
+  T visitStore(Store instruction);
+
+  T visitAddressOf(AddressOf instruction);
+
+  T visitLoadString(LoadString instruction);
+
+  T visitNewPair(NewPair instruction);
+
+  T visitNewArray(NewArray instruction);
+
+  T visitCall(Call instruction);
+
+  T visitRoutineCall(RoutineCall instruction);
+
+  T visitCheckNull(CheckNull instruction);
+
+  T visitCheckBounds(CheckBounds instruction);
+
+  T visitJump(Jump instruction);
+
+  T visitBranch(Branch instruction);
+
+  T visitReturn(Return instruction);
+
+  T visitTailCall(TailCall instruction);
+
+  T visitExit(Exit instruction);
+
+  T visitPhi(Phi instruction);
+
+}
@@ -0,0 +1,145 @@
+package ir;
+
+import ir.instructions.IRInstruction;
+import ir.instructions.Jump;
+import ir.instructions.Phi;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/* a natural loop: a header dominating a predecessor (the back edge), with the blocks reaching that
+ * predecessor without going through the header. Back edges to the same header make one loop */
+public class Loop {
+
+  private final BasicBlock header;
+  private final Set<BasicBlock> blocks;
+  /* the innermost loop containing this one, null for an outermost loop */
+  private Loop parent;
+
+  private Loop(BasicBlock header) {
+    this.header = header;
+    this.blocks = new LinkedHashSet<>();
+    blocks.add(header);
+  }
+
+  /* the loops of a function, inner loops before the loops containing them */
+  public static List<Loop> findLoops(DominatorTree dominators) {
+    Map<BasicBlock, Loop> loops = new LinkedHashMap<>();
+    for (BasicBlock block : dominators.getReversePostorder()) {
+      for (BasicBlock pred : dominators.getPredecessors(block)) {
+        if (dominators.dominates(block, pred)) {
+          loops.computeIfAbsent(block, Loop::new).addBody(pred, dominators);
+        }
+      }
+    }
+
+    List<Loop> res = new ArrayList<>(loops.values());
+    res.sort(Comparator.comparingInt(loop -> loop.blocks.size()));
+    for (int i = 0; i < res.size(); i++) {
+      for (Loop outer : res.subList(i + 1, res.size())) {
+        if (outer.blocks.contains(res.get(i).header)) {
+          res.get(i).parent = outer;
+          break;
+        }
+      }
+    }
+    return res;
+  }
+
+  /* add the blocks from which the back edge source can be reached without passing the header */
+  private void addBody(BasicBlock source, DominatorTree dominators) {
+    Deque<BasicBlock> worklist = new ArrayDeque<>();
+    if (blocks.add(source)) {
+      worklist.push(source);
+    }
+    while (!worklist.isEmpty()) {
+      for (BasicBlock pred : dominators.getPredecessors(worklist.pop())) {
+        if (blocks.add(pred)) {
+          worklist.push(pred);
+        }
+      }
+    }
+  }
+
+  public BasicBlock getHeader() {
+    return header;
+  }
+
+  public Set<BasicBlock> getBlocks() {
+    return blocks;
+  }
+
+  public Loop getParent() {
+    return parent;
+  }
+
+  /* the block every entry into the loop goes through, in front of the header: the only block
+   * outside the loop entering it if that one just jumps to the header, a new block otherwise.
+   * Null when the header is entered from more than one block, which while loops never are */
+  public BasicBlock getPreheader(IRFunction function) {
+    List<BasicBlock> entries = new ArrayList<>();
+    for (BasicBlock pred : function.getPredecessors().get(header)) {
+      if (!blocks.contains(pred)) {
+        entries.add(pred);
+      }
+    }
+    if (entries.size() != 1) {
+      return null;
+    }
+    BasicBlock entry = entries.get(0);
+    if (entry.getTerminator() instanceof Jump) {
+      return entry;
+    }
+
+    BasicBlock preheader = function.newBlock();
+    preheader.add(new Jump(header));
+    entry.getTerminator().replaceSuccessor(header, preheader);
+    for (IRInstruction ins : header.getInstructions()) {
+      if (ins instanceof Phi) {
+        Map<BasicBlock, Value> incoming = ((Phi) ins).getIncoming();
+        incoming.put(preheader, incoming.remove(entry));
+      }
+    }
+    List<BasicBlock> functionBlocks = function.getBlocks();
+    functionBlocks.add(functionBlocks.indexOf(header), preheader);
+    for (Loop outer = parent; outer != null; outer = outer.parent) {
+      outer.blocks.add(preheader);
+    }
+    return preheader;
+  }
+
+  public boolean contains(BasicBlock block) {
+    return blocks.contains(block);
+  }
+
+  /* 1 for an outermost loop */
+  public int getDepth() {
+    int depth = 1;
+    for (Loop loop = parent; loop != null; loop = loop.parent) {
+      depth++;
+    }
+    return depth;
+  }
+
+  /* the number of loops around each block of the function, blocks outside loops are left out */
+  public static Map<BasicBlock, Integer> loopDepths(List<Loop> loops) {
+    Map<BasicBlock, Integer> depths = new LinkedHashMap<>();
+    for (Loop loop : loops) {
+      for (BasicBlock block : loop.blocks) {
+        depths.merge(block, 1, Integer::sum);
+      }
+    }
+    return depths;
+  }
+
+  @Override
+  public String toString() {
+    return "loop " + header.getName();
+  }
+}
@@ -0,0 +1,20 @@
+package ir;
+
+/* a word on the stack frame of a function, used for the variables whose address is taken by read */
+public class StackSlot {
+
+  private final int id;
+
+  public StackSlot(int id) {
+    this.id = id;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  @Override
+  public String toString() {
+    return "slot" + id;
+  }
+}
@@ -0,0 +1,6 @@
+package ir;
+
+/* an operand of an IR instruction, either a virtual register or an integer constant */
+public interface Value {
+
+}
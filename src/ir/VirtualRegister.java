@@ -0,0 +1,20 @@
+package ir;
+
+/* a register of an IR function, there is no limit on how many registers a function uses */
+public class VirtualRegister implements Value {
+
+  private final int id;
+
+  public VirtualRegister(int id) {
+    this.id = id;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  @Override
+  public String toString() {
+    return "%" + id;
+  }
+}
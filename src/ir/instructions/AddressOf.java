@@ -0,0 +1,48 @@
+package ir.instructions;
+
+import ir.IRVisitor;
+import ir.Value;
+import ir.VirtualRegister;
+import ir.memory.MemoryAccess;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/* dst = the address of access, used to pass the destination of a read */
+public class AddressOf extends IRInstruction {
+
+  private final MemoryAccess access;
+
+  public AddressOf(VirtualRegister dst, MemoryAccess access) {
+    super(dst);
+    this.access = access;
+  }
+
+  public MemoryAccess getAccess() {
+    return access;
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return access.getUses();
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+    access.replaceUses(f);
+  }
+
+  @Override
+  public boolean hasSideEffects() {
+    return false;
+  }
+
+  @Override
+  public <T> T accept(IRVisitor<T> visitor) {
+    return visitor.visitAddressOf(this);
+  }
+
+  @Override
+  public String toString() {
+    return dst + " = address " + access;
+  }
+}
@@ -0,0 +1,75 @@
+package ir.instructions;
+
+import frontend.node.expr.BinopNode.Binop;
+import ir.IRVisitor;
+import ir.Value;
+import ir.VirtualRegister;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/* dst = lhs op rhs, arithmetic raises a runtime error on overflow and on division by zero */
+public class Binary extends IRInstruction {
+
+  private final Binop operator;
+  private Value lhs;
+  private Value rhs;
+
+  public Binary(VirtualRegister dst, Binop operator, Value lhs, Value rhs) {
+    super(dst);
+    this.operator = operator;
+    this.lhs = lhs;
+    this.rhs = rhs;
+  }
+
+  public Binop getOperator() {
+    return operator;
+  }
+
+  public Value getLhs() {
+    return lhs;
+  }
+
+  public Value getRhs() {
+    return rhs;
+  }
+
+  /* whether the operation can end the program with a runtime error */
+  public boolean canThrow() {
+    switch (operator) {
+      case PLUS:
+      case MINUS:
+      case MUL:
+      case DIV:
+      case MOD:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return List.of(lhs, rhs);
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+    lhs = f.apply(lhs);
+    rhs = f.apply(rhs);
+  }
+
+  @Override
+  public boolean hasSideEffects() {
+    return canThrow();
+  }
+
+  @Override
+  public <T> T accept(IRVisitor<T> visitor) {
+    return visitor.visitBinary(this);
+  }
+
+  @Override
+  public String toString() {
+    return dst + " = " + lhs + " " + operator + " " + rhs;
+  }
+}
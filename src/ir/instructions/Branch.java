@@ -0,0 +1,68 @@
+package ir.instructions;
+
+import ir.BasicBlock;
+import ir.IRVisitor;
+import ir.Value;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/* go to ifTrue if cond is non zero, to ifFalse otherwise */
+public class Branch extends Terminator {
+
+  private Value cond;
+  private BasicBlock ifTrue;
+  private BasicBlock ifFalse;
+
+  public Branch(Value cond, BasicBlock ifTrue, BasicBlock ifFalse) {
+    this.cond = cond;
+    this.ifTrue = ifTrue;
+    this.ifFalse = ifFalse;
+  }
+
+  public Value getCond() {
+    return cond;
+  }
+
+  public BasicBlock getIfTrue() {
+    return ifTrue;
+  }
+
+  public BasicBlock getIfFalse() {
+    return ifFalse;
+  }
+
+  @Override
+  public List<BasicBlock> getSuccessors() {
+    return List.of(ifTrue, ifFalse);
+  }
+
+  @Override
+  public void replaceSuccessor(BasicBlock from, BasicBlock to) {
+    if (ifTrue == from) {
+      ifTrue = to;
+    }
+    if (ifFalse == from) {
+      ifFalse = to;
+    }
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return List.of(cond);
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+    cond = f.apply(cond);
+  }
+
+  @Override
+  public <T> T accept(IRVisitor<T> visitor) {
+    return visitor.visitBranch(this);
+  }
+
+  @Override
+  public String toString() {
+    return "branch " + cond + ", " + ifTrue.getName() + ", " + ifFalse.getName();
+  }
+}
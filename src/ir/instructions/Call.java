@@ -0,0 +1,57 @@
+package ir.instructions;
+
+import ir.IRVisitor;
+import ir.Value;
+import ir.VirtualRegister;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/* dst = call of a WACC function, argSizes gives the bytes each argument takes on the stack */
+public class Call extends IRInstruction {
+
+  private final String function;
+  private final List<Value> args;
+  private final List<Integer> argSizes;
+
+  public Call(VirtualRegister dst, String function, List<Value> args, List<Integer> argSizes) {
+    super(dst);
+    this.function = function;
+    this.args = new ArrayList<>(args);
+    this.argSizes = argSizes;
+  }
+
+  public String getFunction() {
+    return function;
+  }
+
+  public List<Value> getArgs() {
+    return args;
+  }
+
+  public List<Integer> getArgSizes() {
+    return argSizes;
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return args;
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+    args.replaceAll(f);
+  }
+
+  @Override
+  public <T> T accept(IRVisitor<T> visitor) {
+    return visitor.visitCall(this);
+  }
+
+  @Override
+  public String toString() {
+    return dst + " = call " + function + "("
+        + args.stream().map(Value::toString).collect(Collectors.joining(", ")) + ")";
+  }
+}
@@ -0,0 +1,48 @@
+package ir.instructions;
+
+import ir.IRVisitor;
+import ir.Value;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/* raise a runtime error if index is negative or not smaller than the length of array */
+public class CheckBounds extends IRInstruction {
+
+  private Value array;
+  private Value index;
+
+  public CheckBounds(Value array, Value index) {
+    super(null);
+    this.array = array;
+    this.index = index;
+  }
+
+  public Value getArray() {
+    return array;
+  }
+
+  public Value getIndex() {
+    return index;
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return List.of(array, index);
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+    array = f.apply(array);
+    index = f.apply(index);
+  }
+
+  @Override
+  public <T> T accept(IRVisitor<T> visitor) {
+    return visitor.visitCheckBounds(this);
+  }
+
+  @Override
+  public String toString() {
+    return "checkbounds " + array + "[" + index + "]";
+  }
+}
@@ -0,0 +1,41 @@
+package ir.instructions;
+
+import ir.IRVisitor;
+import ir.Value;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/* raise a runtime error if the pair is null */
+public class CheckNull extends IRInstruction {
+
+  private Value pair;
+
+  public CheckNull(Value pair) {
+    super(null);
+    this.pair = pair;
+  }
+
+  public Value getPair() {
+    return pair;
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return List.of(pair);
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+    pair = f.apply(pair);
+  }
+
+  @Override
+  public <T> T accept(IRVisitor<T> visitor) {
+    return visitor.visitCheckNull(this);
+  }
+
+  @Override
+  public String toString() {
+    return "checknull " + pair;
+  }
+}
@@ -0,0 +1,50 @@
+package ir.instructions;
+
+import ir.BasicBlock;
+import ir.IRVisitor;
+import ir.Value;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/* end the program with the given exit code, nothing after it in the block can be reached */
+public class Exit extends Terminator {
+
+  private Value code;
+
+  public Exit(Value code) {
+    this.code = code;
+  }
+
+  public Value getCode() {
+    return code;
+  }
+
+  @Override
+  public List<BasicBlock> getSuccessors() {
+    return List.of();
+  }
+
+  @Override
+  public void replaceSuccessor(BasicBlock from, BasicBlock to) {
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return List.of(code);
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+    code = f.apply(code);
+  }
+
+  @Override
+  public <T> T accept(IRVisitor<T> visitor) {
+    return visitor.visitExit(this);
+  }
+
+  @Override
+  public String toString() {
+    return "exit " + code;
+  }
+}
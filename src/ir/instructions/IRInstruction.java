@@ -0,0 +1,37 @@
+package ir.instructions;
+
+import ir.IRVisitor;
+import ir.Value;
+import ir.VirtualRegister;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/* a three-address instruction, reading values and writing at most one virtual register */
+public abstract class IRInstruction {
+
+  /* the register written by the instruction, null if it writes none */
+  protected VirtualRegister dst;
+
+  protected IRInstruction(VirtualRegister dst) {
+    this.dst = dst;
+  }
+
+  public VirtualRegister getDef() {
+    return dst;
+  }
+
+  public void setDef(VirtualRegister dst) {
+    this.dst = dst;
+  }
+
+  public abstract List<Value> getUses();
+
+  public abstract void replaceUses(UnaryOperator<Value> f);
+
+  /* false if the instruction can be removed when its result is not used */
+  public boolean hasSideEffects() {
+    return true;
+  }
+
+  public abstract <T> T accept(IRVisitor<T> visitor);
+}
@@ -0,0 +1,51 @@
+package ir.instructions;
+
+import ir.BasicBlock;
+import ir.IRVisitor;
+import ir.Value;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+public class Jump extends Terminator {
+
+  private BasicBlock target;
+
+  public Jump(BasicBlock target) {
+    this.target = target;
+  }
+
+  public BasicBlock getTarget() {
+    return target;
+  }
+
+  @Override
+  public List<BasicBlock> getSuccessors() {
+    return List.of(target);
+  }
+
+  @Override
+  public void replaceSuccessor(BasicBlock from, BasicBlock to) {
+    if (target == from) {
+      target = to;
+    }
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return List.of();
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+  }
+
+  @Override
+  public <T> T accept(IRVisitor<T> visitor) {
+    return visitor.visitJump(this);
+  }
+
+  @Override
+  public String toString() {
+    return "jump " + target.getName();
+  }
+}
@@ -0,0 +1,48 @@
+package ir.instructions;
+
+import ir.IRVisitor;
+import ir.Value;
+import ir.VirtualRegister;
+import ir.memory.MemoryAccess;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/* dst = the value at access, sign extended if it is a byte */
+public class Load extends IRInstruction {
+
+  private final MemoryAccess access;
+
+  public Load(VirtualRegister dst, MemoryAccess access) {
+    super(dst);
+    this.access = access;
+  }
+
+  public MemoryAccess getAccess() {
+    return access;
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return access.getUses();
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+    access.replaceUses(f);
+  }
+
+  @Override
+  public boolean hasSideEffects() {
+    return false;
+  }
+
+  @Override
+  public <T> T accept(IRVisitor<T> visitor) {
+    return visitor.visitLoad(this);
+  }
+
+  @Override
+  public String toString() {
+    return dst + " = load" + access.getSize() + " " + access;
+  }
+}
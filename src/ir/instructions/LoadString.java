@@ -0,0 +1,46 @@
+package ir.instructions;
+
+import ir.IRVisitor;
+import ir.Value;
+import ir.VirtualRegister;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/* dst = the address of a string literal, kept as written in the source so it can go to .data */
+public class LoadString extends IRInstruction {
+
+  private final String literal;
+
+  public LoadString(VirtualRegister dst, String literal) {
+    super(dst);
+    this.literal = literal;
+  }
+
+  public String getLiteral() {
+    return literal;
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return List.of();
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+  }
+
+  @Override
+  public boolean hasSideEffects() {
+    return false;
+  }
+
+  @Override
+  public <T> T accept(IRVisitor<T> visitor) {
+    return visitor.visitLoadString(this);
+  }
+
+  @Override
+  public String toString() {
+    return dst + " = string " + literal;
+  }
+}
@@ -0,0 +1,46 @@
+package ir.instructions;
+
+import ir.IRVisitor;
+import ir.Value;
+import ir.VirtualRegister;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+public class Move extends IRInstruction {
+
+  private Value src;
+
+  public Move(VirtualRegister dst, Value src) {
+    super(dst);
+    this.src = src;
+  }
+
+  public Value getSrc() {
+    return src;
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return List.of(src);
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+    src = f.apply(src);
+  }
+
+  @Override
+  public boolean hasSideEffects() {
+    return false;
+  }
+
+  @Override
+  public <T> T accept(IRVisitor<T> visitor) {
+    return visitor.visitMove(this);
+  }
+
+  @Override
+  public String toString() {
+    return dst + " = " + src;
+  }
+}
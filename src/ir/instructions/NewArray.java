@@ -0,0 +1,64 @@
+package ir.instructions;
+
+import ir.IRVisitor;
+import ir.StackSlot;
+import ir.Value;
+import ir.VirtualRegister;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/* dst = space for an array of length elements, the length and the elements are stored separately */
+public class NewArray extends IRInstruction {
+
+  private final int length;
+  private final int elemSize;
+  /* the first of the frame slots holding the array when it never leaves the function, null for an
+   * array on the heap */
+  private StackSlot slot;
+
+  public NewArray(VirtualRegister dst, int length, int elemSize) {
+    super(dst);
+    this.length = length;
+    this.elemSize = elemSize;
+  }
+
+  public int getLength() {
+    return length;
+  }
+
+  public int getElemSize() {
+    return elemSize;
+  }
+
+  public StackSlot getSlot() {
+    return slot;
+  }
+
+  public void setSlot(StackSlot slot) {
+    this.slot = slot;
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return List.of();
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+  }
+
+  @Override
+  public boolean hasSideEffects() {
+    return false;
+  }
+
+  @Override
+  public <T> T accept(IRVisitor<T> visitor) {
+    return visitor.visitNewArray(this);
+  }
+
+  @Override
+  public String toString() {
+    return dst + " = newarray " + length + " x " + elemSize + (slot == null ? "" : " at " + slot);
+  }
+}
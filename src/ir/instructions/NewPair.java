@@ -0,0 +1,66 @@
+package ir.instructions;
+
+import ir.IRVisitor;
+import ir.Value;
+import ir.VirtualRegister;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/* dst = newpair(fst, snd), the sizes of the elements decide whether they are stored as bytes */
+public class NewPair extends IRInstruction {
+
+  private Value fst;
+  private Value snd;
+  private final int fstSize;
+  private final int sndSize;
+
+  public NewPair(VirtualRegister dst, Value fst, int fstSize, Value snd, int sndSize) {
+    super(dst);
+    this.fst = fst;
+    this.fstSize = fstSize;
+    this.snd = snd;
+    this.sndSize = sndSize;
+  }
+
+  public Value getFst() {
+    return fst;
+  }
+
+  public Value getSnd() {
+    return snd;
+  }
+
+  public int getFstSize() {
+    return fstSize;
+  }
+
+  public int getSndSize() {
+    return sndSize;
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return List.of(fst, snd);
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+    fst = f.apply(fst);
+    snd = f.apply(snd);
+  }
+
+  @Override
+  public boolean hasSideEffects() {
+    return false;
+  }
+
+  @Override
+  public <T> T accept(IRVisitor<T> visitor) {
+    return visitor.visitNewPair(this);
+  }
+
+  @Override
+  public String toString() {
+    return dst + " = newpair(" + fst + ", " + snd + ")";
+  }
+}
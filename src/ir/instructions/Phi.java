@@ -0,0 +1,59 @@
+package ir.instructions;
+
+import ir.BasicBlock;
+import ir.IRVisitor;
+import ir.Value;
+import ir.VirtualRegister;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/* dst = the value coming from the predecessor control arrived from, only exists in SSA form
+ * and always at the start of its block */
+public class Phi extends IRInstruction {
+
+  private final Map<BasicBlock, Value> incoming;
+
+  public Phi(VirtualRegister dst) {
+    super(dst);
+    this.incoming = new LinkedHashMap<>();
+  }
+
+  public Map<BasicBlock, Value> getIncoming() {
+    return incoming;
+  }
+
+  public void setIncoming(BasicBlock pred, Value value) {
+    incoming.put(pred, value);
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return new ArrayList<>(incoming.values());
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+    incoming.replaceAll((pred, value) -> f.apply(value));
+  }
+
+  @Override
+  public boolean hasSideEffects() {
+    return false;
+  }
+
+  @Override
+  public <T> T accept(IRVisitor<T> visitor) {
+    return visitor.visitPhi(this);
+  }
+
+  @Override
+  public String toString() {
+    return dst + " = phi(" + incoming.entrySet().stream()
+        .map(e -> e.getKey().getName() + ": " + e.getValue())
+        .collect(Collectors.joining(", ")) + ")";
+  }
+}
@@ -0,0 +1,49 @@
+package ir.instructions;
+
+import ir.BasicBlock;
+import ir.IRVisitor;
+import ir.Value;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+public class Return extends Terminator {
+
+  private Value value;
+
+  public Return(Value value) {
+    this.value = value;
+  }
+
+  public Value getValue() {
+    return value;
+  }
+
+  @Override
+  public List<BasicBlock> getSuccessors() {
+    return List.of();
+  }
+
+  @Override
+  public void replaceSuccessor(BasicBlock from, BasicBlock to) {
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return List.of(value);
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+    value = f.apply(value);
+  }
+
+  @Override
+  public <T> T accept(IRVisitor<T> visitor) {
+    return visitor.visitReturn(this);
+  }
+
+  @Override
+  public String toString() {
+    return "return " + value;
+  }
+}
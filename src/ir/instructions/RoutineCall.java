@@ -0,0 +1,51 @@
+package ir.instructions;
+
+import ir.IRVisitor;
+import ir.Value;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import utils.Utils.RoutineInstruction;
+
+/* call of a runtime routine (print, read, free), arguments are passed in r0 and r1 */
+public class RoutineCall extends IRInstruction {
+
+  private final RoutineInstruction routine;
+  private final List<Value> args;
+
+  public RoutineCall(RoutineInstruction routine, List<Value> args) {
+    super(null);
+    this.routine = routine;
+    this.args = new ArrayList<>(args);
+  }
+
+  public RoutineInstruction getRoutine() {
+    return routine;
+  }
+
+  public List<Value> getArgs() {
+    return args;
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return args;
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+    args.replaceAll(f);
+  }
+
+  @Override
+  public <T> T accept(IRVisitor<T> visitor) {
+    return visitor.visitRoutineCall(this);
+  }
+
+  @Override
+  public String toString() {
+    return routine + "("
+        + args.stream().map(Value::toString).collect(Collectors.joining(", ")) + ")";
+  }
+}
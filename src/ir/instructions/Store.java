@@ -0,0 +1,52 @@
+package ir.instructions;
+
+import ir.IRVisitor;
+import ir.Value;
+import ir.memory.MemoryAccess;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+public class Store extends IRInstruction {
+
+  private Value src;
+  private final MemoryAccess access;
+
+  public Store(Value src, MemoryAccess access) {
+    super(null);
+    this.src = src;
+    this.access = access;
+  }
+
+  public Value getSrc() {
+    return src;
+  }
+
+  public MemoryAccess getAccess() {
+    return access;
+  }
+
+  @Override
+  public List<Value> getUses() {
+    List<Value> uses = new ArrayList<>();
+    uses.add(src);
+    uses.addAll(access.getUses());
+    return uses;
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+    src = f.apply(src);
+    access.replaceUses(f);
+  }
+
+  @Override
+  public <T> T accept(IRVisitor<T> visitor) {
+    return visitor.visitStore(this);
+  }
+
+  @Override
+  public String toString() {
+    return "store" + access.getSize() + " " + src + ", " + access;
+  }
+}
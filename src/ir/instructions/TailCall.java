@@ -0,0 +1,66 @@
+package ir.instructions;
+
+import ir.BasicBlock;
+import ir.IRVisitor;
+import ir.Value;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/* return the result of calling a WACC function, which then returns to the caller directly instead
+ * of through a new frame below the current one */
+public class TailCall extends Terminator {
+
+  private final String function;
+  private final List<Value> args;
+  private final List<Integer> argSizes;
+
+  public TailCall(String function, List<Value> args, List<Integer> argSizes) {
+    this.function = function;
+    this.args = new ArrayList<>(args);
+    this.argSizes = argSizes;
+  }
+
+  public String getFunction() {
+    return function;
+  }
+
+  public List<Value> getArgs() {
+    return args;
+  }
+
+  public List<Integer> getArgSizes() {
+    return argSizes;
+  }
+
+  @Override
+  public List<BasicBlock> getSuccessors() {
+    return List.of();
+  }
+
+  @Override
+  public void replaceSuccessor(BasicBlock from, BasicBlock to) {
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return args;
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+    args.replaceAll(f);
+  }
+
+  @Override
+  public <T> T accept(IRVisitor<T> visitor) {
+    return visitor.visitTailCall(this);
+  }
+
+  @Override
+  public String toString() {
+    return "tailcall " + function + "("
+        + args.stream().map(Value::toString).collect(Collectors.joining(", ")) + ")";
+  }
+}
@@ -0,0 +1,22 @@
+package ir.instructions;
+
+import ir.BasicBlock;
+import ir.VirtualRegister;
+import java.util.List;
+
+/* the last instruction of every basic block, transferring control to its successors */
+public abstract class Terminator extends IRInstruction {
+
+  protected Terminator() {
+    super(null);
+  }
+
+  public abstract List<BasicBlock> getSuccessors();
+
+  public abstract void replaceSuccessor(BasicBlock from, BasicBlock to);
+
+  @Override
+  public void setDef(VirtualRegister dst) {
+    throw new UnsupportedOperationException("a terminator writes no register");
+  }
+}
@@ -0,0 +1,54 @@
+package ir.instructions;
+
+import frontend.node.expr.UnopNode.Unop;
+import ir.IRVisitor;
+import ir.Value;
+import ir.VirtualRegister;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/* dst = op src, for NOT and MINUS, negation raises a runtime error on overflow */
+public class Unary extends IRInstruction {
+
+  private final Unop operator;
+  private Value src;
+
+  public Unary(VirtualRegister dst, Unop operator, Value src) {
+    super(dst);
+    this.operator = operator;
+    this.src = src;
+  }
+
+  public Unop getOperator() {
+    return operator;
+  }
+
+  public Value getSrc() {
+    return src;
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return List.of(src);
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+    src = f.apply(src);
+  }
+
+  @Override
+  public boolean hasSideEffects() {
+    return operator == Unop.MINUS;
+  }
+
+  @Override
+  public <T> T accept(IRVisitor<T> visitor) {
+    return visitor.visitUnary(this);
+  }
+
+  @Override
+  public String toString() {
+    return dst + " = " + operator + " " + src;
+  }
+}
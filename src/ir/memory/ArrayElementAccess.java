@@ -0,0 +1,42 @@
+package ir.memory;
+
+import ir.Value;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/* the element at index of an array, the index must have been checked against the array bounds */
+public class ArrayElementAccess extends MemoryAccess {
+
+  private Value array;
+  private Value index;
+
+  public ArrayElementAccess(Value array, Value index, int size) {
+    super(size);
+    this.array = array;
+    this.index = index;
+  }
+
+  public Value getArray() {
+    return array;
+  }
+
+  public Value getIndex() {
+    return index;
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return List.of(array, index);
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+    array = f.apply(array);
+    index = f.apply(index);
+  }
+
+  @Override
+  public String toString() {
+    return array + "[" + index + "]";
+  }
+}
@@ -0,0 +1,37 @@
+package ir.memory;
+
+import static utils.Utils.WORD_SIZE;
+
+import ir.Value;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/* the length stored in the first word of an array */
+public class ArrayLengthAccess extends MemoryAccess {
+
+  private Value array;
+
+  public ArrayLengthAccess(Value array) {
+    super(WORD_SIZE);
+    this.array = array;
+  }
+
+  public Value getArray() {
+    return array;
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return List.of(array);
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+    array = f.apply(array);
+  }
+
+  @Override
+  public String toString() {
+    return "len " + array;
+  }
+}
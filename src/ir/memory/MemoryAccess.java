@@ -0,0 +1,25 @@
+package ir.memory;
+
+import ir.Value;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/* the location read by a Load or written by a Store, together with the number of bytes accessed */
+public abstract class MemoryAccess {
+
+  protected final int size;
+
+  protected MemoryAccess(int size) {
+    this.size = size;
+  }
+
+  /* 1 for chars and bools, 4 for everything else */
+  public int getSize() {
+    return size;
+  }
+
+  /* the values needed to compute the address */
+  public abstract List<Value> getUses();
+
+  public abstract void replaceUses(UnaryOperator<Value> f);
+}
@@ -0,0 +1,41 @@
+package ir.memory;
+
+import ir.Value;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/* the fst or snd element of a pair, the pair must have been checked against null */
+public class PairElementAccess extends MemoryAccess {
+
+  private Value pair;
+  private final boolean isFirst;
+
+  public PairElementAccess(Value pair, boolean isFirst, int size) {
+    super(size);
+    this.pair = pair;
+    this.isFirst = isFirst;
+  }
+
+  public Value getPair() {
+    return pair;
+  }
+
+  public boolean isFirst() {
+    return isFirst;
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return List.of(pair);
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+    pair = f.apply(pair);
+  }
+
+  @Override
+  public String toString() {
+    return (isFirst ? "fst " : "snd ") + pair;
+  }
+}
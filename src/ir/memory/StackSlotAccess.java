@@ -0,0 +1,34 @@
+package ir.memory;
+
+import ir.StackSlot;
+import ir.Value;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+public class StackSlotAccess extends MemoryAccess {
+
+  private final StackSlot slot;
+
+  public StackSlotAccess(StackSlot slot, int size) {
+    super(size);
+    this.slot = slot;
+  }
+
+  public StackSlot getSlot() {
+    return slot;
+  }
+
+  @Override
+  public List<Value> getUses() {
+    return List.of();
+  }
+
+  @Override
+  public void replaceUses(UnaryOperator<Value> f) {
+  }
+
+  @Override
+  public String toString() {
+    return "[" + slot + "]";
+  }
+}
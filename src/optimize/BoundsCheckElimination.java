@@ -0,0 +1,677 @@
+package optimize;
+
+import frontend.node.expr.BinopNode.Binop;
+import frontend.node.expr.UnopNode.Unop;
+import ir.BasicBlock;
+import ir.Constant;
+import ir.DominatorTree;
+import ir.IRFunction;
+import ir.Loop;
+import ir.Value;
+import ir.VirtualRegister;
+import ir.instructions.Binary;
+import ir.instructions.Branch;
+import ir.instructions.Call;
+import ir.instructions.CheckBounds;
+import ir.instructions.CheckNull;
+import ir.instructions.IRInstruction;
+import ir.instructions.Load;
+import ir.instructions.Move;
+import ir.instructions.NewArray;
+import ir.instructions.Phi;
+import ir.instructions.RoutineCall;
+import ir.instructions.Unary;
+import ir.memory.ArrayLengthAccess;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/* remove the bounds checks an integer range analysis proves unnecessary, and check the indices of
+ * a counting loop once in front of it instead of on every iteration. Works on SSA form.
+ * Every integer register gets an interval: phis are widened when they keep growing and narrowed by
+ * the conditions of the branches leading to them. Upper bounds relative to the length of an array
+ * come from conditions like i < len a and from the checks already made, so walking the dominator
+ * tree a check whose index is known to be in bounds is removed.
+ * A loop counting i up by one while i < n, entered only when init < n, indexes a[i + c] from
+ * a[init + c] to a[n - 1 + c]. When nothing else in the loop can fail or be observed, checking
+ * these two indices in the preheader fails exactly when the loop would, with the same error */
+public class BoundsCheckElimination {
+
+  /* times a phi may grow before its growing bounds are widened to the limits of an int */
+  private static final int WIDENING_DELAY = 2;
+  /* how far back conditions and additions of constants are followed */
+  private static final int MAX_DEPTH = 8;
+
+  private final IRFunction function;
+  private final DominatorTree dominators;
+  private final Map<VirtualRegister, IRInstruction> defs;
+  private final Map<VirtualRegister, BasicBlock> defBlocks;
+  private final Map<Value, Range> ranges;
+  /* for phis, the arrays they index in bounds, see Facts.margins */
+  private final Map<Value, Map<Value, Long>> phiMargins;
+
+  public BoundsCheckElimination(IRFunction function) {
+    this.function = function;
+    this.dominators = new DominatorTree(function);
+    this.defs = new HashMap<>();
+    this.defBlocks = new HashMap<>();
+    this.ranges = new HashMap<>();
+    this.phiMargins = new HashMap<>();
+  }
+
+  public void eliminate() {
+    for (BasicBlock block : dominators.getReversePostorder()) {
+      for (IRInstruction ins : block.getInstructions()) {
+        if (ins.getDef() != null) {
+          defs.put(ins.getDef(), ins);
+          defBlocks.put(ins.getDef(), block);
+        }
+      }
+    }
+    computeRanges();
+    computePhiMargins();
+    removeChecks(function.getEntry(), new Facts());
+
+    /* the new preheaders are not in the dominator tree, so loops are only changed once all of
+     * them have been looked at */
+    List<Loop> loops = Loop.findLoops(dominators);
+    Set<Loop> outerLoops = new HashSet<>();
+    loops.forEach(loop -> outerLoops.add(loop.getParent()));
+    List<Runnable> hoists = new ArrayList<>();
+    for (Loop loop : loops) {
+      Runnable hoist = outerLoops.contains(loop) ? null : checkHoisting(loop);
+      if (hoist != null) {
+        hoists.add(hoist);
+      }
+    }
+    hoists.forEach(Runnable::run);
+  }
+
+  /* iterate over the blocks until no range changes, widening the phis that keep growing, then
+   * narrow the widened ranges with one more pass */
+  private void computeRanges() {
+    Map<IRInstruction, Integer> updates = new HashMap<>();
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (BasicBlock block : dominators.getReversePostorder()) {
+        for (IRInstruction ins : block.getInstructions()) {
+          if (ins.getDef() == null) {
+            continue;
+          }
+          Range old = ranges.get(ins.getDef());
+          Range range = evaluate(ins, block);
+          range = range == null ? old : range.union(old);
+          if (range == null || range.equals(old)) {
+            continue;
+          }
+          if (old != null && ins instanceof Phi
+              && updates.merge(ins, 1, Integer::sum) > WIDENING_DELAY) {
+            range = old.widen(range);
+          }
+          ranges.put(ins.getDef(), range);
+          changed = true;
+        }
+      }
+    }
+    for (BasicBlock block : dominators.getReversePostorder()) {
+      for (IRInstruction ins : block.getInstructions()) {
+        Range range = ins.getDef() == null ? null : evaluate(ins, block);
+        if (range != null) {
+          Range narrowed = range.intersect(ranges.get(ins.getDef()));
+          ranges.put(ins.getDef(), narrowed == null ? range : narrowed);
+        }
+      }
+    }
+  }
+
+  /* the range of the result of an instruction from the ranges of its operands, null while some
+   * operand has no range yet */
+  private Range evaluate(IRInstruction ins, BasicBlock block) {
+    if (ins instanceof Move) {
+      return range(((Move) ins).getSrc());
+    } else if (ins instanceof Phi) {
+      Range res = null;
+      for (Entry<BasicBlock, Value> incoming : ((Phi) ins).getIncoming().entrySet()) {
+        Range range = range(incoming.getValue());
+        for (Condition cond : edgeConditions(incoming.getKey(), block, MAX_DEPTH)) {
+          range = range == null ? null : cond.refine(incoming.getValue(), range, this);
+        }
+        res = range == null ? res : range.union(res);
+      }
+      return res;
+    } else if (ins instanceof Unary) {
+      Unary unary = (Unary) ins;
+      Range src = range(unary.getSrc());
+      if (unary.getOperator() != Unop.MINUS) {
+        return Range.BOOL;
+      }
+      return src == null ? null : new Range(-src.hi, -src.lo).clamp();
+    } else if (ins instanceof Binary) {
+      Binary binary = (Binary) ins;
+      Range lhs = range(binary.getLhs());
+      Range rhs = range(binary.getRhs());
+      if (!binary.canThrow()) {
+        return Range.BOOL;
+      } else if (lhs == null || rhs == null) {
+        return null;
+      }
+      Range exact = Range.exact(binary.getOperator(), lhs, rhs);
+      if (exact != null) {
+        return exact.clamp();
+      }
+      if (binary.getOperator() == Binop.MOD && rhs.lo > 0) {
+        return new Range(lhs.lo >= 0 ? 0 : 1 - rhs.hi, rhs.hi - 1);
+      }
+    }
+    return Range.FULL;
+  }
+
+  /* the range of a value, null while it is not computed yet, parameters can be anything */
+  private Range range(Value value) {
+    if (value instanceof Constant) {
+      long val = ((Constant) value).getVal();
+      return new Range(val, val);
+    }
+    return defs.containsKey(value) ? ranges.get(value) : Range.FULL;
+  }
+
+  /* whether an arithmetic instruction can overflow or divide by zero */
+  private boolean mayThrow(IRInstruction ins) {
+    if (ins instanceof Unary) {
+      Range src = range(((Unary) ins).getSrc());
+      return ((Unary) ins).getOperator() == Unop.MINUS
+          && (src == null || src.lo == Integer.MIN_VALUE);
+    }
+    Binary binary = (Binary) ins;
+    Range lhs = range(binary.getLhs());
+    Range rhs = range(binary.getRhs());
+    if (!binary.canThrow()) {
+      return false;
+    } else if (lhs == null || rhs == null) {
+      return true;
+    }
+    Range exact = Range.exact(binary.getOperator(), lhs, rhs);
+    if (exact != null) {
+      return !exact.equals(exact.clamp());
+    }
+    return rhs.lo <= 0 && rhs.hi >= 0
+        || lhs.lo == Integer.MIN_VALUE && rhs.lo <= -1 && rhs.hi >= -1;
+  }
+
+  /* the conditions known to hold when control goes from one block to the other, following the
+   * blocks entered from a single predecessor back at most depth edges */
+  private List<Condition> edgeConditions(BasicBlock from, BasicBlock to, int depth) {
+    List<Condition> conditions = new ArrayList<>();
+    for (int i = 0; i < depth && from != null; i++) {
+      if (from.getTerminator() instanceof Branch) {
+        Branch branch = (Branch) from.getTerminator();
+        if (branch.getIfTrue() != branch.getIfFalse()) {
+          addConditions(branch.getCond(), branch.getIfTrue() == to, conditions, 0);
+        }
+      }
+      List<BasicBlock> preds = dominators.getPredecessors(from);
+      to = from;
+      from = preds != null && preds.size() == 1 ? preds.get(0) : null;
+    }
+    return conditions;
+  }
+
+  private void addConditions(Value cond, boolean holds, List<Condition> conditions, int depth) {
+    IRInstruction def = defs.get(cond);
+    if (depth > MAX_DEPTH) {
+      return;
+    } else if (def instanceof Move) {
+      addConditions(((Move) def).getSrc(), holds, conditions, depth + 1);
+    } else if (def instanceof Unary && ((Unary) def).getOperator() == Unop.NOT) {
+      addConditions(((Unary) def).getSrc(), !holds, conditions, depth + 1);
+    } else if (def instanceof Binary) {
+      Binary binary = (Binary) def;
+      Value lhs = binary.getLhs();
+      Value rhs = binary.getRhs();
+      switch (binary.getOperator()) {
+        case AND:
+        case OR:
+          if (holds == (binary.getOperator() == Binop.AND)) {
+            addConditions(lhs, holds, conditions, depth + 1);
+            addConditions(rhs, holds, conditions, depth + 1);
+          }
+          break;
+        case LESS:
+          conditions.add(holds ? new Condition(lhs, true, rhs) : new Condition(rhs, false, lhs));
+          break;
+        case LESS_EQUAL:
+          conditions.add(holds ? new Condition(lhs, false, rhs) : new Condition(rhs, true, lhs));
+          break;
+        case GREATER:
+          conditions.add(holds ? new Condition(rhs, true, lhs) : new Condition(lhs, false, rhs));
+          break;
+        case GREATER_EQUAL:
+          conditions.add(holds ? new Condition(rhs, false, lhs) : new Condition(lhs, true, rhs));
+          break;
+        case EQUAL:
+        case INEQUAL:
+          if (holds == (binary.getOperator() == Binop.EQUAL)) {
+            conditions.add(new Condition(lhs, false, rhs));
+            conditions.add(new Condition(rhs, false, lhs));
+          }
+          break;
+        default:
+      }
+    }
+  }
+
+  /* the array and the constant k of a value equal to len array - k, null if it is not one */
+  private Entry<Value, Long> lengthOf(Value value, int depth) {
+    IRInstruction def = defs.get(value);
+    if (depth > MAX_DEPTH || def == null) {
+      return null;
+    } else if (def instanceof Load && ((Load) def).getAccess() instanceof ArrayLengthAccess) {
+      return Map.entry(((ArrayLengthAccess) ((Load) def).getAccess()).getArray(), 0L);
+    } else if (def instanceof Move) {
+      return lengthOf(((Move) def).getSrc(), depth + 1);
+    }
+    Entry<Value, Long> offset = constantOffset(def);
+    Entry<Value, Long> length = offset == null ? null : lengthOf(offset.getKey(), depth + 1);
+    return length == null ? null
+        : Map.entry(length.getKey(), length.getValue() - offset.getValue());
+  }
+
+  /* the value and the constant c of an instruction computing value + c, null if it is not one */
+  private static Entry<Value, Long> constantOffset(IRInstruction def) {
+    if (!(def instanceof Binary)) {
+      return null;
+    }
+    Binary binary = (Binary) def;
+    Binop operator = binary.getOperator();
+    if (operator == Binop.PLUS && binary.getLhs() instanceof Constant) {
+      return Map.entry(binary.getRhs(), (long) ((Constant) binary.getLhs()).getVal());
+    } else if (operator == Binop.PLUS && binary.getRhs() instanceof Constant) {
+      return Map.entry(binary.getLhs(), (long) ((Constant) binary.getRhs()).getVal());
+    } else if (operator == Binop.MINUS && binary.getRhs() instanceof Constant) {
+      return Map.entry(binary.getLhs(), -(long) ((Constant) binary.getRhs()).getVal());
+    }
+    return null;
+  }
+
+  /* the largest k known to make value < len array - k, null if none is known */
+  private Long margin(Value value, Value array, Facts facts, int depth) {
+    Long best = facts.margins.getOrDefault(value, Map.of()).get(array);
+    best = max(best, phiMargins.getOrDefault(value, Map.of()).get(array));
+    IRInstruction arrayDef = defs.get(array);
+    Range range = range(value);
+    if (arrayDef instanceof NewArray && range != null) {
+      best = max(best, ((NewArray) arrayDef).getLength() - 1 - range.hi);
+    }
+    IRInstruction def = defs.get(value);
+    if (depth < MAX_DEPTH && def instanceof Move) {
+      best = max(best, margin(((Move) def).getSrc(), array, facts, depth + 1));
+    }
+    Entry<Value, Long> offset = depth < MAX_DEPTH ? constantOffset(def) : null;
+    if (offset != null) {
+      Long margin = margin(offset.getKey(), array, facts, depth + 1);
+      best = max(best, margin == null ? null : margin - offset.getValue());
+    }
+    return best;
+  }
+
+  /* the smallest value known for value */
+  private long lowerBound(Value value, Facts facts, int depth) {
+    Range range = range(value);
+    long best = range == null ? Integer.MIN_VALUE : range.lo;
+    best = Math.max(best, facts.lowerBounds.getOrDefault(value, (long) Integer.MIN_VALUE));
+    IRInstruction def = defs.get(value);
+    if (depth < MAX_DEPTH && def instanceof Move) {
+      best = Math.max(best, lowerBound(((Move) def).getSrc(), facts, depth + 1));
+    }
+    Entry<Value, Long> offset = depth < MAX_DEPTH ? constantOffset(def) : null;
+    if (offset != null) {
+      best = Math.max(best, lowerBound(offset.getKey(), facts, depth + 1) + offset.getValue());
+    }
+    return best;
+  }
+
+  private static Long max(Long a, Long b) {
+    return a == null ? b : b == null ? a : Long.valueOf(Math.max(a, b));
+  }
+
+  /* a phi indexes an array in bounds when every value coming in does, by the conditions on its
+   * edge or by itself. Repeated so that phis can rely on the phis computed before them */
+  private void computePhiMargins() {
+    boolean changed = true;
+    for (int round = 0; changed && round < MAX_DEPTH; round++) {
+      changed = false;
+      for (BasicBlock block : dominators.getReversePostorder()) {
+        for (IRInstruction ins : block.getInstructions()) {
+          if (ins instanceof Phi && phiMargins(block, (Phi) ins)) {
+            changed = true;
+          }
+        }
+      }
+    }
+  }
+
+  private boolean phiMargins(BasicBlock block, Phi phi) {
+    Map<Value, Long> res = null;
+    for (Entry<BasicBlock, Value> incoming : phi.getIncoming().entrySet()) {
+      Facts facts = new Facts();
+      for (Condition cond : edgeConditions(incoming.getKey(), block, MAX_DEPTH)) {
+        facts.add(cond, this);
+      }
+      Map<Value, Long> margins = new HashMap<>();
+      for (Value array : res == null ? arrays(facts) : res.keySet()) {
+        Long margin = margin(incoming.getValue(), array, facts, 0);
+        if (margin != null) {
+          margins.put(array, res == null ? margin : Math.min(margin, res.get(array)));
+        }
+      }
+      res = margins;
+    }
+    if (res == null || res.equals(phiMargins.get(phi.getDef()))) {
+      return false;
+    }
+    phiMargins.put(phi.getDef(), res);
+    return true;
+  }
+
+  private List<Value> arrays(Facts facts) {
+    List<Value> arrays = new ArrayList<>();
+    facts.margins.values().forEach(margins -> arrays.addAll(margins.keySet()));
+    phiMargins.values().forEach(margins -> arrays.addAll(margins.keySet()));
+    return arrays;
+  }
+
+  /* walk the dominator tree with the facts holding at the start of each block */
+  private void removeChecks(BasicBlock block, Facts facts) {
+    List<BasicBlock> preds = dominators.getPredecessors(block);
+    if (preds.size() == 1) {
+      for (Condition cond : edgeConditions(preds.get(0), block, 1)) {
+        facts.add(cond, this);
+      }
+    }
+    List<IRInstruction> instructions = block.getInstructions();
+    for (int i = 0; i < instructions.size(); i++) {
+      if (instructions.get(i) instanceof CheckBounds) {
+        CheckBounds check = (CheckBounds) instructions.get(i);
+        Long margin = margin(check.getIndex(), check.getArray(), facts, 0);
+        if (margin != null && margin >= 0 && lowerBound(check.getIndex(), facts, 0) >= 0) {
+          instructions.remove(i--);
+        } else {
+          facts.addCheck(check);
+        }
+      }
+    }
+    for (BasicBlock child : dominators.getChildren(block)) {
+      removeChecks(child, facts.copy());
+    }
+  }
+
+  /* the hoisting of the checks of an innermost loop counting up to a bound, null if the loop is
+   * not one or if something in it could be observed or fail before a check would. Inner loops
+   * are left out, as the checks must not fail where the loop would not end */
+  private Runnable checkHoisting(Loop loop) {
+    BasicBlock header = loop.getHeader();
+    List<BasicBlock> latches = new ArrayList<>();
+    List<BasicBlock> entries = new ArrayList<>();
+    for (BasicBlock pred : dominators.getPredecessors(header)) {
+      (loop.contains(pred) ? latches : entries).add(pred);
+    }
+    if (latches.size() != 1 || entries.size() != 1
+        || !(latches.get(0).getTerminator() instanceof Branch)) {
+      return null;
+    }
+    BasicBlock latch = latches.get(0);
+    BasicBlock entry = entries.get(0);
+    Branch test = (Branch) latch.getTerminator();
+    for (BasicBlock block : loop.getBlocks()) {
+      if (block.getSuccessors().isEmpty() || block != latch
+          && !block.getSuccessors().stream().allMatch(loop::contains)) {
+        return null;
+      }
+    }
+    if (test.getIfTrue() != header || loop.contains(test.getIfFalse())) {
+      return null;
+    }
+
+    /* the loop goes on while next < bound (or <=), next being the counter plus one */
+    List<Condition> continuing = new ArrayList<>();
+    addConditions(test.getCond(), true, continuing, 0);
+    if (continuing.size() != 1 || !isInvariant(continuing.get(0).rhs, loop)) {
+      return null;
+    }
+    Condition cond = continuing.get(0);
+    Phi counter = null;
+    for (IRInstruction ins : header.getInstructions()) {
+      Entry<Value, Long> step = ins instanceof Phi
+          ? constantOffset(defs.get(((Phi) ins).getIncoming().get(latch))) : null;
+      if (step != null && step.getKey() == ins.getDef() && step.getValue() == 1
+          && ((Phi) ins).getIncoming().get(latch) == cond.lhs) {
+        counter = (Phi) ins;
+      }
+    }
+    if (counter == null) {
+      return null;
+    }
+    Value init = counter.getIncoming().get(entry);
+    if (edgeConditions(entry, header, MAX_DEPTH).stream().noneMatch(
+        guard -> guard.lhs.equals(init) && guard.strict == cond.strict
+            && sameBound(guard.rhs, cond.rhs))) {
+      return null;
+    }
+
+    /* only the checks of the header, indexing with the counter, may fail in the loop */
+    List<CheckBounds> checks = new ArrayList<>();
+    List<Long> offsets = new ArrayList<>();
+    for (BasicBlock block : loop.getBlocks()) {
+      for (IRInstruction ins : block.getInstructions()) {
+        if (ins instanceof Call || ins instanceof RoutineCall || ins instanceof CheckNull
+            || (ins instanceof Binary || ins instanceof Unary) && mayThrow(ins)) {
+          return null;
+        }
+        if (ins instanceof CheckBounds) {
+          CheckBounds check = (CheckBounds) ins;
+          Entry<Value, Long> offset = check.getIndex() == counter.getDef()
+              ? Map.entry(check.getIndex(), 0L) : constantOffset(defs.get(check.getIndex()));
+          if (block != header || !isInvariant(check.getArray(), loop) || offset == null
+              || offset.getKey() != counter.getDef()) {
+            return null;
+          }
+          checks.add(check);
+          offsets.add(offset.getValue());
+        }
+      }
+    }
+    if (checks.isEmpty()) {
+      return null;
+    }
+
+    return () -> {
+      BasicBlock preheader = loop.getPreheader(function);
+      List<IRInstruction> code = preheader.getInstructions();
+      List<IRInstruction> hoisted = new ArrayList<>();
+      for (int i = 0; i < checks.size(); i++) {
+        Value index = add(init, offsets.get(i), hoisted);
+        hoisted.add(new CheckBounds(checks.get(i).getArray(), index));
+      }
+      Value last = cond.strict ? add(cond.rhs, -1, hoisted) : cond.rhs;
+      for (int i = 0; i < checks.size(); i++) {
+        Value index = add(last, offsets.get(i), hoisted);
+        hoisted.add(new CheckBounds(checks.get(i).getArray(), index));
+      }
+      code.addAll(code.size() - 1, hoisted);
+      header.getInstructions().removeAll(checks);
+    };
+  }
+
+  private boolean isInvariant(Value value, Loop loop) {
+    return value instanceof Constant || !loop.contains(defBlocks.get(value));
+  }
+
+  /* whether both values are the same bound, the length of the same array loaded twice being one */
+  private boolean sameBound(Value a, Value b) {
+    if (a.equals(b)) {
+      return true;
+    }
+    Entry<Value, Long> lengthA = lengthOf(a, 0);
+    return lengthA != null && lengthA.equals(lengthOf(b, 0));
+  }
+
+  /* value + c, computed by an instruction added to code unless both are constants */
+  private Value add(Value value, long c, List<IRInstruction> code) {
+    if (c == 0) {
+      return value;
+    } else if (value instanceof Constant) {
+      return new Constant((int) (((Constant) value).getVal() + c));
+    }
+    VirtualRegister sum = function.newRegister();
+    code.add(new Binary(sum, c > 0 ? Binop.PLUS : Binop.MINUS, value,
+        new Constant((int) Math.abs(c))));
+    return sum;
+  }
+
+  /* lhs < rhs if strict, lhs <= rhs otherwise */
+  private static class Condition {
+
+    private final Value lhs;
+    private final boolean strict;
+    private final Value rhs;
+
+    private Condition(Value lhs, boolean strict, Value rhs) {
+      this.lhs = lhs;
+      this.strict = strict;
+      this.rhs = rhs;
+    }
+
+    /* the range of value where the condition holds, null if it cannot */
+    private Range refine(Value value, Range range, BoundsCheckElimination analysis) {
+      int gap = strict ? 1 : 0;
+      if (value.equals(lhs)) {
+        Range other = analysis.range(rhs);
+        return other == null ? range
+            : range.intersect(new Range(Integer.MIN_VALUE, other.hi - gap));
+      } else if (value.equals(rhs)) {
+        Range other = analysis.range(lhs);
+        return other == null ? range
+            : range.intersect(new Range(other.lo + gap, Integer.MAX_VALUE));
+      }
+      return range;
+    }
+  }
+
+  /* what is known at a point of the function besides the ranges */
+  private static class Facts {
+
+    /* the smallest value of some registers */
+    private final Map<Value, Long> lowerBounds;
+    /* for some values, the arrays with the largest k known to make value < len array - k, so
+     * that value indexes the array in bounds when k >= 0 and it is not negative */
+    private final Map<Value, Map<Value, Long>> margins;
+
+    private Facts() {
+      this.lowerBounds = new HashMap<>();
+      this.margins = new HashMap<>();
+    }
+
+    private Facts copy() {
+      Facts copy = new Facts();
+      copy.lowerBounds.putAll(lowerBounds);
+      margins.forEach((value, arrays) -> copy.margins.put(value, new LinkedHashMap<>(arrays)));
+      return copy;
+    }
+
+    private void add(Condition cond, BoundsCheckElimination analysis) {
+      int gap = cond.strict ? 1 : 0;
+      lowerBounds.merge(cond.rhs, analysis.lowerBound(cond.lhs, this, 0) + gap, Math::max);
+      Entry<Value, Long> length = analysis.lengthOf(cond.rhs, 0);
+      if (length != null) {
+        addMargin(cond.lhs, length.getKey(), length.getValue() + gap - 1);
+      }
+    }
+
+    /* after a check its index is in the bounds of its array */
+    private void addCheck(CheckBounds check) {
+      lowerBounds.merge(check.getIndex(), 0L, Math::max);
+      addMargin(check.getIndex(), check.getArray(), 0);
+    }
+
+    private void addMargin(Value value, Value array, long margin) {
+      margins.computeIfAbsent(value, v -> new LinkedHashMap<>()).merge(array, margin, Math::max);
+    }
+  }
+
+  /* the values an integer register can hold, both ends included */
+  private static final class Range {
+
+    private static final Range FULL = new Range(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    private static final Range BOOL = new Range(0, 1);
+
+    private final long lo;
+    private final long hi;
+
+    private Range(long lo, long hi) {
+      this.lo = lo;
+      this.hi = hi;
+    }
+
+    /* the result of an operation on any values of the ranges, may go beyond an int. Null for
+     * divisions, whose results are not contiguous */
+    private static Range exact(Binop operator, Range lhs, Range rhs) {
+      switch (operator) {
+        case PLUS:
+          return new Range(lhs.lo + rhs.lo, lhs.hi + rhs.hi);
+        case MINUS:
+          return new Range(lhs.lo - rhs.hi, lhs.hi - rhs.lo);
+        case MUL:
+          long[] products = {lhs.lo * rhs.lo, lhs.lo * rhs.hi, lhs.hi * rhs.lo, lhs.hi * rhs.hi};
+          long lo = products[0];
+          long hi = products[0];
+          for (long product : products) {
+            lo = Math.min(lo, product);
+            hi = Math.max(hi, product);
+          }
+          return new Range(lo, hi);
+        default:
+          return null;
+      }
+    }
+
+    /* an operation going beyond an int raises an overflow error, so gives no value there */
+    private Range clamp() {
+      return new Range(Math.max(lo, Integer.MIN_VALUE), Math.min(hi, Integer.MAX_VALUE));
+    }
+
+    private Range union(Range other) {
+      return other == null ? this : new Range(Math.min(lo, other.lo), Math.max(hi, other.hi));
+    }
+
+    /* null if no value is in both */
+    private Range intersect(Range other) {
+      if (other == null) {
+        return this;
+      }
+      Range res = new Range(Math.max(lo, other.lo), Math.min(hi, other.hi));
+      return res.lo > res.hi ? null : res;
+    }
+
+    /* the bounds of next going beyond this one jump to the limits of an int */
+    private Range widen(Range next) {
+      return new Range(next.lo < lo ? Integer.MIN_VALUE : lo,
+          next.hi > hi ? Integer.MAX_VALUE : hi);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Range && ((Range) obj).lo == lo && ((Range) obj).hi == hi;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(lo) * 31 + Long.hashCode(hi);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package optimize;
+
+import backend.instructions.B;
+import backend.instructions.Instruction;
+import backend.instructions.Label;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import utils.backend.Cond;
+import utils.backend.cfg.CodeBlock;
+import utils.backend.cfg.ControlFlowGraph;
+
+/* clean up the control flow of the translated program: branches to a branch go straight to its
+ * target, blocks that cannot be reached are removed, branches to the code that follows them anyway
+ * are removed, and so are labels nothing branches to. Repeated until nothing changes, as each of
+ * them can make the others applicable again */
+public class BranchSimplification {
+
+  public List<Instruction> simplify(List<Instruction> instructions) {
+    boolean changed = true;
+    while (changed) {
+      ControlFlowGraph cfg = new ControlFlowGraph(instructions);
+      changed = threadBranches(cfg);
+      changed |= removeUnreachableBlocks(cfg);
+      changed |= removeFallThroughBranches(cfg);
+      changed |= removeUnusedLabels(cfg);
+      instructions = cfg.toInstructions();
+    }
+    return instructions;
+  }
+
+  private boolean threadBranches(ControlFlowGraph cfg) {
+    boolean changed = false;
+    for (CodeBlock block : cfg.getBlocks()) {
+      B branch = block.getBranch();
+      if (branch == null) {
+        continue;
+      }
+      CodeBlock target = cfg.getBlock(branch.getLabel().getName());
+      if (target == null) {
+        continue;
+      }
+      CodeBlock finalTarget = finalTarget(cfg, target);
+      if (finalTarget != target) {
+        List<Instruction> instructions = block.getInstructions();
+        instructions.set(instructions.size() - 1,
+            new B(branch.getCond(), finalTarget.getLabel().getName()));
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  /* the labelled block control really continues in when entering target, skipping blocks that only
+   * have a label or only an unconditional branch */
+  private CodeBlock finalTarget(ControlFlowGraph cfg, CodeBlock target) {
+    Set<CodeBlock> visited = new HashSet<>();
+    while (visited.add(target)) {
+      CodeBlock next = null;
+      List<Instruction> instructions = target.getInstructions();
+      B branch = target.getBranch();
+      if (target.isEmpty() && target.getIndex() + 1 < cfg.getBlocks().size()) {
+        next = cfg.getBlocks().get(target.getIndex() + 1);
+      } else if (instructions.size() == 2 && branch != null && branch.getCond() == Cond.NULL) {
+        next = cfg.getBlock(branch.getLabel().getName());
+      }
+      if (next == null || next.getLabel() == null) {
+        break;
+      }
+      target = next;
+    }
+    return target;
+  }
+
+  private boolean removeUnreachableBlocks(ControlFlowGraph cfg) {
+    boolean changed = false;
+    for (CodeBlock block : cfg.getBlocks()) {
+      if (!cfg.isReachable(block) && !block.hasLiteralPool() && !block.getInstructions().isEmpty()) {
+        block.getInstructions().clear();
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  /* a branch is not needed if only labels are between it and its target */
+  private boolean removeFallThroughBranches(ControlFlowGraph cfg) {
+    boolean changed = false;
+    List<CodeBlock> blocks = cfg.getBlocks();
+    for (CodeBlock block : blocks) {
+      B branch = block.getBranch();
+      if (branch == null) {
+        continue;
+      }
+      for (int i = block.getIndex() + 1; i < blocks.size(); i++) {
+        CodeBlock next = blocks.get(i);
+        Label label = next.getLabel();
+        if (label != null && label.getName().equals(branch.getLabel().getName())) {
+          block.getInstructions().remove(block.getInstructions().size() - 1);
+          changed = true;
+          break;
+        }
+        if (!next.isEmpty()) {
+          break;
+        }
+      }
+    }
+    return changed;
+  }
+
+  private boolean removeUnusedLabels(ControlFlowGraph cfg) {
+    Set<String> targets = new HashSet<>();
+    for (CodeBlock block : cfg.getBlocks()) {
+      for (Instruction ins : block.getInstructions()) {
+        if (ins instanceof B) {
+          targets.add(((B) ins).getLabel().getName());
+        }
+      }
+    }
+
+    boolean changed = false;
+    for (CodeBlock block : cfg.getBlocks()) {
+      Label label = block.getLabel();
+      if (label != null && !cfg.isEntry(block) && !targets.contains(label.getName())) {
+        block.getInstructions().remove(0);
+        changed = true;
+      }
+    }
+    return changed;
+  }
+}
@@ -0,0 +1,285 @@
+package optimize;
+
+import frontend.node.FuncNode;
+import frontend.node.Node;
+import frontend.node.ProgramNode;
+import frontend.node.expr.*;
+import frontend.node.expr.UnopNode.Unop;
+import frontend.node.stat.*;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import utils.NodeVisitor;
+import utils.frontend.symbolTable.Symbol;
+
+public class ConstantEvaluation implements NodeVisitor<Node> {
+
+  /**
+   * Fold the operators whose operands are literals into a single literal before code generation.
+   * Every visit returns the node replacing the visited one; statements and non-constant
+   * expressions are updated in place, keeping their weights so that operands are evaluated in the
+   * same order as without folding. Operations raising a runtime error are left as they are.
+   *
+   * Example: 1 + 2 * 3 becomes 7, ord 'a' becomes 97, len a becomes 3 after int[] a = [1, 2, 3]
+   */
+
+  /* variables assigned after their declaration, whose array length is not known */
+  private final Set<Symbol> reassigned = new HashSet<>();
+
+  @Override
+  public Node visit(Node node) {
+    return node.accept(this);
+  }
+
+  private ExprNode fold(ExprNode expr) {
+    return expr == null ? null : visit(expr).asExprNode();
+  }
+
+  private void foldAll(List<ExprNode> exprs) {
+    exprs.replaceAll(this::fold);
+  }
+
+  /* the value of a literal, or null if expr is not one */
+  private static Integer valueOf(ExprNode expr) {
+    if (expr instanceof IntegerNode) {
+      return ((IntegerNode) expr).getVal();
+    } else if (expr instanceof BoolNode) {
+      return ((BoolNode) expr).getVal() ? 1 : 0;
+    } else if (expr instanceof CharNode) {
+      return ((CharNode) expr).getAsciiValue();
+    }
+    return null;
+  }
+
+  /* chars that can be written as a char immediate in the assembly */
+  private static boolean isPrintableChar(int val) {
+    return val >= ' ' && val <= '~' && val != '\'' && val != '\\';
+  }
+
+  private void findReassigned(StatNode stat) {
+    if (stat instanceof AssignNode && ((AssignNode) stat).getLhs() instanceof IdentNode) {
+      reassigned.add(((IdentNode) ((AssignNode) stat).getLhs()).getSymbol());
+    } else if (stat instanceof ScopeNode) {
+      ((ScopeNode) stat).getBody().forEach(this::findReassigned);
+    } else if (stat instanceof IfNode) {
+      findReassigned(((IfNode) stat).getIfBody());
+      findReassigned(((IfNode) stat).getElseBody());
+    } else if (stat instanceof WhileNode) {
+      findReassigned(((WhileNode) stat).getBody());
+    }
+  }
+
+  /* the length of the array literal expr evaluates to, or null if it is not known */
+  private Integer arrayLength(ExprNode expr) {
+    if (expr instanceof IdentNode) {
+      Symbol symbol = ((IdentNode) expr).getSymbol();
+      if (reassigned.contains(symbol)) {
+        return null;
+      }
+      expr = symbol.getExprNode();
+    }
+    return expr instanceof ArrayNode ? ((ArrayNode) expr).getLength() : null;
+  }
+
+  @Override
+  public Node visitArrayElemNode(ArrayElemNode node) {
+    foldAll(node.getIndex());
+    return node;
+  }
+
+  @Override
+  public Node visitArrayNode(ArrayNode node) {
+    for (int i = 0; i < node.getLength(); i++) {
+      node.setElem(i, fold(node.getElem(i)));
+    }
+    return node;
+  }
+
+  @Override
+  public Node visitBinopNode(BinopNode node) {
+    node.setExpr1(fold(node.getExpr1()));
+    node.setExpr2(fold(node.getExpr2()));
+    Integer lhs = valueOf(node.getExpr1());
+    Integer rhs = valueOf(node.getExpr2());
+    if (lhs == null || rhs == null) {
+      return node;
+    }
+
+    Integer result = ConstantFolding.fold(node.getOperator(), lhs, rhs);
+    if (result == null) {
+      return node;
+    }
+    switch (node.getOperator()) {
+      case PLUS:
+      case MINUS:
+      case MUL:
+      case DIV:
+      case MOD:
+        return new IntegerNode(result);
+      default:
+        return new BoolNode(result != 0);
+    }
+  }
+
+  @Override
+  public Node visitBoolNode(BoolNode node) {
+    return node;
+  }
+
+  @Override
+  public Node visitCharNode(CharNode node) {
+    return node;
+  }
+
+  @Override
+  public Node visitFunctionCallNode(FunctionCallNode node) {
+    foldAll(node.getParams());
+    return node;
+  }
+
+  @Override
+  public Node visitIdentNode(IdentNode node) {
+    return node;
+  }
+
+  @Override
+  public Node visitIntegerNode(IntegerNode node) {
+    return node;
+  }
+
+  @Override
+  public Node visitPairElemNode(PairElemNode node) {
+    return node;
+  }
+
+  @Override
+  public Node visitPairNode(PairNode node) {
+    node.setFst(fold(node.getFst()));
+    node.setSnd(fold(node.getSnd()));
+    return node;
+  }
+
+  @Override
+  public Node visitStringNode(StringNode node) {
+    return node;
+  }
+
+  @Override
+  public Node visitUnopNode(UnopNode node) {
+    node.setExpr(fold(node.getExpr()));
+    Unop operator = node.getOperator();
+    if (operator == Unop.LEN) {
+      Integer length = arrayLength(node.getExpr());
+      return length == null ? node : new IntegerNode(length);
+    }
+
+    Integer src = valueOf(node.getExpr());
+    Integer result = src == null ? null : ConstantFolding.fold(operator, src);
+    if (result == null) {
+      return node;
+    }
+    switch (operator) {
+      case NOT:
+        return new BoolNode(result != 0);
+      case CHR:
+        return isPrintableChar(result) ? new CharNode((char) (int) result) : node;
+      default:
+        return new IntegerNode(result);
+    }
+  }
+
+  @Override
+  public Node visitAssignNode(AssignNode node) {
+    visit(node.getLhs());
+    node.setRhs(fold(node.getRhs()));
+    return node;
+  }
+
+  @Override
+  public Node visitDeclareNode(DeclareNode node) {
+    node.setRhs(fold(node.getRhs()));
+    return node;
+  }
+
+  @Override
+  public Node visitExitNode(ExitNode node) {
+    node.setValue(fold(node.getValue()));
+    return node;
+  }
+
+  @Override
+  public Node visitFreeNode(FreeNode node) {
+    visit(node.getExpr());
+    return node;
+  }
+
+  @Override
+  public Node visitIfNode(IfNode node) {
+    node.setCond(fold(node.getCond()));
+    visit(node.getIfBody());
+    visit(node.getElseBody());
+    return node;
+  }
+
+  @Override
+  public Node visitPrintlnNode(PrintlnNode node) {
+    node.setExpr(fold(node.getExpr()));
+    return node;
+  }
+
+  @Override
+  public Node visitPrintNode(PrintNode node) {
+    node.setExpr(fold(node.getExpr()));
+    return node;
+  }
+
+  @Override
+  public Node visitReadNode(ReadNode node) {
+    visit(node.getInputExpr());
+    return node;
+  }
+
+  @Override
+  public Node visitReturnNode(ReturnNode node) {
+    node.setExpr(fold(node.getExpr()));
+    return node;
+  }
+
+  @Override
+  public Node visitScopeNode(ScopeNode node) {
+    node.getBody().forEach(this::visit);
+    return node;
+  }
+
+  @Override
+  public Node visitSkipNode(SkipNode node) {
+    return node;
+  }
+
+  @Override
+  public Node visitWhileNode(WhileNode node) {
+    node.setCond(fold(node.getCond()));
+    visit(node.getBody());
+    return node;
+  }
+
+  @Override
+  public Node visitFuncNode(FuncNode node) {
+    visit(node.getFunctionBody());
+    return node;
+  }
+
+  @Override
+  public Node visitProgramNode(ProgramNode node) {
+    for (FuncNode func : node.getFunctions().values()) {
+      findReassigned(func.getFunctionBody());
+    }
+    findReassigned(node.getBody());
+
+    for (FuncNode func : node.getFunctions().values()) {
+      visit(func);
+    }
+    visit(node.getBody());
+    return node;
+  }
+}
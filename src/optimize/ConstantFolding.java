@@ -0,0 +1,61 @@
+package optimize;
+
+import frontend.node.expr.BinopNode.Binop;
+import frontend.node.expr.UnopNode.Unop;
+
+/* evaluation of WACC operators on constants, shared by the AST and IR constant folding */
+public class ConstantFolding {
+
+  /* the result of the operation, null if it raises a runtime error, which then has to happen at runtime */
+  public static Integer fold(Binop operator, int lhs, int rhs) {
+    try {
+      switch (operator) {
+        case PLUS:
+          return Math.addExact(lhs, rhs);
+        case MINUS:
+          return Math.subtractExact(lhs, rhs);
+        case MUL:
+          return Math.multiplyExact(lhs, rhs);
+        case DIV:
+          return rhs == 0 || (lhs == Integer.MIN_VALUE && rhs == -1) ? null : lhs / rhs;
+        case MOD:
+          return rhs == 0 || (lhs == Integer.MIN_VALUE && rhs == -1) ? null : lhs % rhs;
+        case AND:
+          return lhs & rhs;
+        case OR:
+          return lhs | rhs;
+        case GREATER:
+          return lhs > rhs ? 1 : 0;
+        case GREATER_EQUAL:
+          return lhs >= rhs ? 1 : 0;
+        case LESS:
+          return lhs < rhs ? 1 : 0;
+        case LESS_EQUAL:
+          return lhs <= rhs ? 1 : 0;
+        case EQUAL:
+          return lhs == rhs ? 1 : 0;
+        case INEQUAL:
+          return lhs != rhs ? 1 : 0;
+        default:
+          return null;
+      }
+    } catch (ArithmeticException e) {
+      return null;
+    }
+  }
+
+  /* LEN has no constant operand, its folding is left to the caller */
+  public static Integer fold(Unop operator, int src) {
+    switch (operator) {
+      case NOT:
+        return src ^ 1;
+      case MINUS:
+        return src == Integer.MIN_VALUE ? null : -src;
+      case ORD:
+      case CHR:
+        return src;
+      default:
+        return null;
+    }
+  }
+}
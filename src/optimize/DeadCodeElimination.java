@@ -0,0 +1,56 @@
+package optimize;
+
+import ir.BasicBlock;
+import ir.IRFunction;
+import ir.Value;
+import ir.VirtualRegister;
+import ir.instructions.IRInstruction;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/* remove the instructions of a function in SSA form whose result is never needed: starting from the
+ * instructions with side effects, which include every operation that can raise a runtime error, the
+ * definitions of the registers they read are live, and so on. Everything else is dead, such as
+ * variables that are never read and the computations only they needed */
+public class DeadCodeElimination {
+
+  private final IRFunction function;
+
+  public DeadCodeElimination(IRFunction function) {
+    this.function = function;
+  }
+
+  public void eliminate() {
+    Map<VirtualRegister, IRInstruction> definitions = new HashMap<>();
+    Set<IRInstruction> live = new HashSet<>();
+    Deque<IRInstruction> worklist = new ArrayDeque<>();
+    for (BasicBlock block : function.getBlocks()) {
+      for (IRInstruction ins : block.getInstructions()) {
+        if (ins.getDef() != null) {
+          definitions.put(ins.getDef(), ins);
+        }
+        if (ins.hasSideEffects()) {
+          live.add(ins);
+          worklist.add(ins);
+        }
+      }
+    }
+
+    while (!worklist.isEmpty()) {
+      for (Value use : worklist.poll().getUses()) {
+        IRInstruction definition = definitions.get(use);
+        if (definition != null && live.add(definition)) {
+          worklist.add(definition);
+        }
+      }
+    }
+
+    for (BasicBlock block : function.getBlocks()) {
+      block.getInstructions().retainAll(live);
+    }
+  }
+}
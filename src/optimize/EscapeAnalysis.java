@@ -0,0 +1,250 @@
+package optimize;
+
+import static utils.Utils.POINTER_SIZE;
+import static utils.Utils.RoutineInstruction.PRINT_STRING;
+import static utils.Utils.WORD_SIZE;
+
+import ir.BasicBlock;
+import ir.Constant;
+import ir.DominatorTree;
+import ir.IRFunction;
+import ir.StackSlot;
+import ir.Value;
+import ir.VirtualRegister;
+import ir.instructions.AddressOf;
+import ir.instructions.CheckBounds;
+import ir.instructions.CheckNull;
+import ir.instructions.IRInstruction;
+import ir.instructions.Load;
+import ir.instructions.NewArray;
+import ir.instructions.NewPair;
+import ir.instructions.Phi;
+import ir.instructions.RoutineCall;
+import ir.instructions.Store;
+import ir.memory.ArrayElementAccess;
+import ir.memory.ArrayLengthAccess;
+import ir.memory.MemoryAccess;
+import ir.memory.PairElementAccess;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/* keep the pairs and arrays that never leave the function creating them off the heap. A pair only
+ * checked against null and accessed through its elements becomes two registers holding the
+ * elements, an array only indexed, bounds checked, measured or printed is given space in the stack
+ * frame. Anything else done with the reference (storing it, passing it to a call or a routine,
+ * returning, freeing, comparing it or merging it in a phi) lets it escape. Works on SSA form, where
+ * the reference is only defined by its allocation and every use of the object is a use of that
+ * register. An array allocated in a loop reuses its space on every iteration, the array of the
+ * previous iteration could only be reached through a phi */
+public class EscapeAnalysis {
+
+  /* the largest array given frame space, and the most space given to the arrays of a function,
+   * in bytes including their lengths, so that the frame stays within immediate offsets */
+  private static final int MAX_STACK_ARRAY_SIZE = 64;
+  private static final int MAX_STACK_ARRAYS_SIZE = 256;
+  /* value of an element on a path not through its allocation, such a path never reads it */
+  private static final Value UNDEFINED = new Constant(0);
+
+  private final IRFunction function;
+  private final DominatorTree dominators;
+  /* the instructions using each register, and the block of every instruction */
+  private final Map<Value, List<IRInstruction>> uses;
+  private final Map<IRInstruction, BasicBlock> blocks;
+  /* the value replacing the destination of each removed load of a pair element */
+  private final Map<Value, Value> replacements;
+  private int stackArraysSize;
+
+  public EscapeAnalysis(IRFunction function) {
+    this.function = function;
+    this.dominators = new DominatorTree(function);
+    this.uses = new HashMap<>();
+    this.blocks = new HashMap<>();
+    this.replacements = new HashMap<>();
+  }
+
+  public void allocate() {
+    List<NewPair> pairs = new ArrayList<>();
+    List<NewArray> arrays = new ArrayList<>();
+    for (BasicBlock block : dominators.getReversePostorder()) {
+      for (IRInstruction ins : block.getInstructions()) {
+        blocks.put(ins, block);
+        for (Value use : ins.getUses()) {
+          uses.computeIfAbsent(use, v -> new ArrayList<>()).add(ins);
+        }
+        if (ins instanceof NewPair) {
+          pairs.add((NewPair) ins);
+        } else if (ins instanceof NewArray) {
+          arrays.add((NewArray) ins);
+        }
+      }
+    }
+
+    for (NewArray array : arrays) {
+      int size = POINTER_SIZE + array.getLength() * array.getElemSize();
+      size = (size + WORD_SIZE - 1) / WORD_SIZE * WORD_SIZE;
+      if (size <= MAX_STACK_ARRAY_SIZE && stackArraysSize + size <= MAX_STACK_ARRAYS_SIZE
+          && isLocalArray(array.getDef())) {
+        /* slots are numbered in frame order, so consecutive slots make a single block */
+        StackSlot first = function.newSlot();
+        for (int i = WORD_SIZE; i < size; i += WORD_SIZE) {
+          function.newSlot();
+        }
+        array.setSlot(first);
+        stackArraysSize += size;
+      }
+    }
+
+    for (NewPair pair : pairs) {
+      if (isLocalPair(pair.getDef())) {
+        replaceElement(pair, true);
+        replaceElement(pair, false);
+        removeAllocation(pair);
+      }
+    }
+    if (!replacements.isEmpty()) {
+      for (BasicBlock block : function.getBlocks()) {
+        for (IRInstruction ins : block.getInstructions()) {
+          ins.replaceUses(this::replacement);
+        }
+      }
+    }
+  }
+
+  /* whether the array is only accessed through its elements and length, or printed as a string */
+  private boolean isLocalArray(VirtualRegister array) {
+    for (IRInstruction ins : uses.getOrDefault(array, List.of())) {
+      if (ins instanceof CheckBounds
+          || (ins instanceof RoutineCall && ((RoutineCall) ins).getRoutine() == PRINT_STRING)) {
+        continue;
+      }
+      MemoryAccess access = accessOf(ins);
+      if (!(access instanceof ArrayElementAccess || access instanceof ArrayLengthAccess)
+          || (ins instanceof Store && ((Store) ins).getSrc() == array)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /* whether the pair is only checked against null, or its elements loaded and stored. Reading
+   * into an element takes its address, which a register does not have */
+  private boolean isLocalPair(VirtualRegister pair) {
+    for (IRInstruction ins : uses.getOrDefault(pair, List.of())) {
+      if (ins instanceof CheckNull) {
+        continue;
+      }
+      if (ins instanceof AddressOf || !(accessOf(ins) instanceof PairElementAccess)
+          || (ins instanceof Store && ((Store) ins).getSrc() == pair)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static MemoryAccess accessOf(IRInstruction ins) {
+    if (ins instanceof Load) {
+      return ((Load) ins).getAccess();
+    } else if (ins instanceof Store) {
+      return ((Store) ins).getAccess();
+    } else if (ins instanceof AddressOf) {
+      return ((AddressOf) ins).getAccess();
+    }
+    return null;
+  }
+
+  /* turn the element of the pair into a value in SSA form: the stores to it are its definitions,
+   * with phis on the iterated dominance frontier of the blocks storing it, and its loads are
+   * replaced by the value reaching them. The allocation dominates every access, so only the
+   * blocks it strictly dominates need a phi, and all their predecessors are dominated by it too */
+  private void replaceElement(NewPair newPair, boolean isFirst) {
+    VirtualRegister pair = newPair.getDef();
+    BasicBlock allocBlock = blocks.get(newPair);
+    Set<BasicBlock> defBlocks = new LinkedHashSet<>();
+    defBlocks.add(allocBlock);
+    for (IRInstruction ins : uses.getOrDefault(pair, List.of())) {
+      if (ins instanceof Store && isElement(((Store) ins).getAccess(), pair, isFirst)) {
+        defBlocks.add(blocks.get(ins));
+      }
+    }
+
+    Map<BasicBlock, Phi> phis = new LinkedHashMap<>();
+    Deque<BasicBlock> worklist = new ArrayDeque<>(defBlocks);
+    while (!worklist.isEmpty()) {
+      for (BasicBlock join : dominators.getFrontier(worklist.pop())) {
+        if (join != allocBlock && dominators.dominates(allocBlock, join)
+            && !phis.containsKey(join)) {
+          Phi phi = new Phi(function.newRegister());
+          join.getInstructions().add(0, phi);
+          phis.put(join, phi);
+          if (defBlocks.add(join)) {
+            worklist.push(join);
+          }
+        }
+      }
+    }
+
+    /* the reverse postorder visits the immediate dominator of a block before the block */
+    Map<BasicBlock, Value> endValues = new HashMap<>();
+    for (BasicBlock block : dominators.getReversePostorder()) {
+      if (!dominators.dominates(allocBlock, block)) {
+        continue;
+      }
+      Value value = UNDEFINED;
+      if (phis.containsKey(block)) {
+        value = phis.get(block).getDef();
+      } else if (block != allocBlock) {
+        value = endValues.get(dominators.getIdom(block));
+      }
+      List<IRInstruction> instructions = block.getInstructions();
+      for (int i = 0; i < instructions.size(); i++) {
+        IRInstruction ins = instructions.get(i);
+        if (ins == newPair) {
+          value = isFirst ? newPair.getFst() : newPair.getSnd();
+        } else if (ins instanceof Store && isElement(((Store) ins).getAccess(), pair, isFirst)) {
+          value = ((Store) ins).getSrc();
+          instructions.remove(i--);
+        } else if (ins instanceof Load && isElement(((Load) ins).getAccess(), pair, isFirst)) {
+          replacements.put(ins.getDef(), value);
+          instructions.remove(i--);
+        }
+      }
+      endValues.put(block, value);
+    }
+
+    for (Map.Entry<BasicBlock, Phi> phi : phis.entrySet()) {
+      for (BasicBlock pred : dominators.getPredecessors(phi.getKey())) {
+        phi.getValue().setIncoming(pred, endValues.getOrDefault(pred, UNDEFINED));
+      }
+    }
+  }
+
+  private static boolean isElement(MemoryAccess access, Value pair, boolean isFirst) {
+    return access instanceof PairElementAccess && ((PairElementAccess) access).getPair() == pair
+        && ((PairElementAccess) access).isFirst() == isFirst;
+  }
+
+  /* with both elements in registers, the pair and its null checks are no longer needed */
+  private void removeAllocation(NewPair newPair) {
+    blocks.get(newPair).getInstructions().remove(newPair);
+    for (IRInstruction ins : uses.getOrDefault(newPair.getDef(), List.of())) {
+      if (ins instanceof CheckNull) {
+        blocks.get(ins).getInstructions().remove(ins);
+      }
+    }
+  }
+
+  /* a replaced load can be replaced by the destination of another one */
+  private Value replacement(Value value) {
+    while (replacements.containsKey(value)) {
+      value = replacements.get(value);
+    }
+    return value;
+  }
+}
@@ -0,0 +1,372 @@
+package optimize;
+
+import ir.BasicBlock;
+import ir.DominatorTree;
+import ir.IRFunction;
+import ir.IRProgram;
+import ir.IRVisitor;
+import ir.Loop;
+import ir.StackSlot;
+import ir.Value;
+import ir.VirtualRegister;
+import ir.instructions.AddressOf;
+import ir.instructions.Binary;
+import ir.instructions.Branch;
+import ir.instructions.Call;
+import ir.instructions.CheckBounds;
+import ir.instructions.CheckNull;
+import ir.instructions.Exit;
+import ir.instructions.IRInstruction;
+import ir.instructions.Jump;
+import ir.instructions.Load;
+import ir.instructions.LoadString;
+import ir.instructions.Move;
+import ir.instructions.NewArray;
+import ir.instructions.NewPair;
+import ir.instructions.Phi;
+import ir.instructions.Return;
+import ir.instructions.RoutineCall;
+import ir.instructions.Store;
+import ir.instructions.TailCall;
+import ir.instructions.Unary;
+import ir.memory.ArrayElementAccess;
+import ir.memory.ArrayLengthAccess;
+import ir.memory.MemoryAccess;
+import ir.memory.PairElementAccess;
+import ir.memory.StackSlotAccess;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/* copy the body of a function that is not recursive into its callers, with its own registers and
+ * stack slots, when it is small enough: a call in a loop runs more often, so the size allowed
+ * grows with the loop depth of the call, and a function called from one place is always copied.
+ * Callees are done before their callers, and functions no longer called are removed.
+ * Runs before SSA construction, the copies of the parameters then propagate like any other move */
+public class FunctionInlining {
+
+  /* instructions of a callee copied at a call outside loops */
+  private static final int SIZE_BUDGET = 24;
+  /* the budget is multiplied by this for every loop around the call, up to MAX_LOOP_DEPTH loops */
+  private static final int LOOP_WEIGHT = 2;
+  private static final int MAX_LOOP_DEPTH = 3;
+  /* a caller stops growing at this size, to keep register allocation fast */
+  private static final int MAX_CALLER_SIZE = 2000;
+
+  private final IRProgram program;
+  private final Map<String, IRFunction> functions;
+  /* the functions called by each function */
+  private final Map<String, Set<String>> callees;
+  private final Set<String> recursive;
+  /* the number of calls of each function in the program as generated */
+  private final Map<String, Integer> callSites;
+
+  public FunctionInlining(IRProgram program) {
+    this.program = program;
+    this.functions = new LinkedHashMap<>();
+    this.callees = new HashMap<>();
+    this.recursive = new HashSet<>();
+    this.callSites = new HashMap<>();
+  }
+
+  public void inline() {
+    for (IRFunction function : allFunctions()) {
+      functions.put(function.getName(), function);
+      Set<String> called = new LinkedHashSet<>();
+      for (BasicBlock block : function.getBlocks()) {
+        for (IRInstruction ins : block.getInstructions()) {
+          if (ins instanceof Call) {
+            called.add(((Call) ins).getFunction());
+            callSites.merge(((Call) ins).getFunction(), 1, Integer::sum);
+          }
+        }
+      }
+      callees.put(function.getName(), called);
+    }
+    for (String name : functions.keySet()) {
+      if (reachable(name).contains(name)) {
+        recursive.add(name);
+      }
+    }
+
+    for (IRFunction function : calleesFirst()) {
+      inlineCalls(function);
+    }
+    Set<String> used = reachable(program.getMain().getName());
+    program.getFunctions().removeIf(function -> !used.contains(function.getName()));
+  }
+
+  private List<IRFunction> allFunctions() {
+    List<IRFunction> res = new ArrayList<>(program.getFunctions());
+    res.add(program.getMain());
+    return res;
+  }
+
+  /* the functions called directly or indirectly from the given one */
+  private Set<String> reachable(String from) {
+    Set<String> reached = new LinkedHashSet<>();
+    Deque<String> worklist = new ArrayDeque<>(callees.get(from));
+    while (!worklist.isEmpty()) {
+      String name = worklist.pop();
+      if (reached.add(name)) {
+        worklist.addAll(callees.get(name));
+      }
+    }
+    return reached;
+  }
+
+  /* every function after the functions it calls, apart from calls within recursive cycles */
+  private List<IRFunction> calleesFirst() {
+    List<IRFunction> order = new ArrayList<>();
+    Set<String> visited = new HashSet<>();
+    for (String name : functions.keySet()) {
+      postorder(name, visited, order);
+    }
+    return order;
+  }
+
+  private void postorder(String name, Set<String> visited, List<IRFunction> order) {
+    if (!visited.add(name)) {
+      return;
+    }
+    for (String callee : callees.get(name)) {
+      postorder(callee, visited, order);
+    }
+    order.add(functions.get(name));
+  }
+
+  private void inlineCalls(IRFunction caller) {
+    Map<BasicBlock, Integer> loopDepths =
+        Loop.loopDepths(Loop.findLoops(new DominatorTree(caller)));
+    /* blocks are split at every inlined call, the rest of the block is looked at afterwards */
+    Deque<BasicBlock> worklist = new ArrayDeque<>(caller.getBlocks());
+    while (!worklist.isEmpty()) {
+      BasicBlock block = worklist.pop();
+      int loopDepth = loopDepths.getOrDefault(block, 0);
+      for (IRInstruction ins : block.getInstructions()) {
+        if (ins instanceof Call && shouldInline(caller, (Call) ins, loopDepth)) {
+          BasicBlock rest = inlineCall(caller, block, (Call) ins);
+          loopDepths.put(rest, loopDepth);
+          worklist.push(rest);
+          break;
+        }
+      }
+    }
+  }
+
+  private boolean shouldInline(IRFunction caller, Call call, int loopDepth) {
+    IRFunction callee = functions.get(call.getFunction());
+    if (callee == null || recursive.contains(callee.getName())
+        || size(caller) + size(callee) > MAX_CALLER_SIZE) {
+      return false;
+    }
+    int budget = SIZE_BUDGET;
+    for (int i = 0; i < Math.min(loopDepth, MAX_LOOP_DEPTH); i++) {
+      budget *= LOOP_WEIGHT;
+    }
+    return size(callee) <= budget || callSites.get(callee.getName()) == 1;
+  }
+
+  private static int size(IRFunction function) {
+    return function.getBlocks().stream().mapToInt(block -> block.getInstructions().size()).sum();
+  }
+
+  /* replace the call with a copy of the callee, its returns moving the result to the destination
+   * of the call and jumping to a new block holding the instructions after the call, returned */
+  private BasicBlock inlineCall(IRFunction caller, BasicBlock block, Call call) {
+    IRFunction callee = functions.get(call.getFunction());
+    BasicBlock rest = caller.newBlock();
+    List<IRInstruction> instructions = block.getInstructions();
+    List<IRInstruction> after =
+        instructions.subList(instructions.indexOf(call), instructions.size());
+    rest.getInstructions().addAll(after.subList(1, after.size()));
+    after.clear();
+
+    InstructionCopier copier = new InstructionCopier(caller);
+    for (int i = 0; i < callee.getParams().size(); i++) {
+      block.add(new Move(copier.register(callee.getParams().get(i)), call.getArgs().get(i)));
+    }
+    block.add(new Jump(copier.block(callee.getEntry())));
+
+    List<BasicBlock> copies = new ArrayList<>();
+    for (BasicBlock original : callee.getBlocks()) {
+      BasicBlock copy = copier.block(original);
+      for (IRInstruction ins : original.getInstructions()) {
+        if (ins instanceof Return) {
+          copy.add(new Move(call.getDef(), copier.value(((Return) ins).getValue())));
+          copy.add(new Jump(rest));
+        } else {
+          copy.add(copier.visit(ins));
+        }
+      }
+      copies.add(copy);
+    }
+    copies.add(rest);
+    List<BasicBlock> blocks = caller.getBlocks();
+    blocks.addAll(blocks.indexOf(block) + 1, copies);
+    return rest;
+  }
+
+  /* copies instructions of the callee into the caller, giving every register, block and stack slot
+   * of the callee a new one in the caller */
+  private static class InstructionCopier implements IRVisitor<IRInstruction> {
+
+    private final IRFunction caller;
+    private final Map<VirtualRegister, VirtualRegister> registers;
+    private final Map<BasicBlock, BasicBlock> blocks;
+    private final Map<StackSlot, StackSlot> slots;
+
+    private InstructionCopier(IRFunction caller) {
+      this.caller = caller;
+      this.registers = new HashMap<>();
+      this.blocks = new HashMap<>();
+      this.slots = new HashMap<>();
+    }
+
+    private VirtualRegister register(VirtualRegister reg) {
+      return reg == null ? null : registers.computeIfAbsent(reg, r -> caller.newRegister());
+    }
+
+    private Value value(Value value) {
+      return value instanceof VirtualRegister ? register((VirtualRegister) value) : value;
+    }
+
+    private List<Value> values(List<Value> values) {
+      return values.stream().map(this::value).collect(Collectors.toList());
+    }
+
+    private BasicBlock block(BasicBlock block) {
+      return blocks.computeIfAbsent(block, b -> {
+        BasicBlock copy = caller.newBlock();
+        copy.setSourceLine(b.getSourceLine());
+        return copy;
+      });
+    }
+
+    private MemoryAccess access(MemoryAccess access) {
+      if (access instanceof ArrayElementAccess) {
+        ArrayElementAccess element = (ArrayElementAccess) access;
+        return new ArrayElementAccess(value(element.getArray()), value(element.getIndex()),
+            element.getSize());
+      } else if (access instanceof ArrayLengthAccess) {
+        return new ArrayLengthAccess(value(((ArrayLengthAccess) access).getArray()));
+      } else if (access instanceof PairElementAccess) {
+        PairElementAccess element = (PairElementAccess) access;
+        return new PairElementAccess(value(element.getPair()), element.isFirst(),
+            element.getSize());
+      }
+      StackSlot slot = ((StackSlotAccess) access).getSlot();
+      return new StackSlotAccess(slots.computeIfAbsent(slot, s -> caller.newSlot()),
+          access.getSize());
+    }
+
+    @Override
+    public IRInstruction visitBinary(Binary instruction) {
+      return new Binary(register(instruction.getDef()), instruction.getOperator(),
+          value(instruction.getLhs()), value(instruction.getRhs()));
+    }
+
+    @Override
+    public IRInstruction visitUnary(Unary instruction) {
+      return new Unary(register(instruction.getDef()), instruction.getOperator(),
+          value(instruction.getSrc()));
+    }
+
+    @Override
+    public IRInstruction visitMove(Move instruction) {
+      return new Move(register(instruction.getDef()), value(instruction.getSrc()));
+    }
+
+    @Override
+    public IRInstruction visitLoad(Load instruction) {
+      return new Load(register(instruction.getDef()), access(instruction.getAccess()));
+    }
+
+    @Override
+    public IRInstruction visitStore(Store instruction) {
+      return new Store(value(instruction.getSrc()), access(instruction.getAccess()));
+    }
+
+    @Override
+    public IRInstruction visitAddressOf(AddressOf instruction) {
+      return new AddressOf(register(instruction.getDef()), access(instruction.getAccess()));
+    }
+
+    @Override
+    public IRInstruction visitLoadString(LoadString instruction) {
+      return new LoadString(register(instruction.getDef()), instruction.getLiteral());
+    }
+
+    @Override
+    public IRInstruction visitNewPair(NewPair instruction) {
+      return new NewPair(register(instruction.getDef()), value(instruction.getFst()),
+          instruction.getFstSize(), value(instruction.getSnd()), instruction.getSndSize());
+    }
+
+    @Override
+    public IRInstruction visitNewArray(NewArray instruction) {
+      return new NewArray(register(instruction.getDef()), instruction.getLength(),
+          instruction.getElemSize());
+    }
+
+    @Override
+    public IRInstruction visitCall(Call instruction) {
+      return new Call(register(instruction.getDef()), instruction.getFunction(),
+          values(instruction.getArgs()), instruction.getArgSizes());
+    }
+
+    @Override
+    public IRInstruction visitRoutineCall(RoutineCall instruction) {
+      return new RoutineCall(instruction.getRoutine(), values(instruction.getArgs()));
+    }
+
+    @Override
+    public IRInstruction visitCheckNull(CheckNull instruction) {
+      return new CheckNull(value(instruction.getPair()));
+    }
+
+    @Override
+    public IRInstruction visitCheckBounds(CheckBounds instruction) {
+      return new CheckBounds(value(instruction.getArray()), value(instruction.getIndex()));
+    }
+
+    @Override
+    public IRInstruction visitJump(Jump instruction) {
+      return new Jump(block(instruction.getTarget()));
+    }
+
+    @Override
+    public IRInstruction visitBranch(Branch instruction) {
+      return new Branch(value(instruction.getCond()), block(instruction.getIfTrue()),
+          block(instruction.getIfFalse()));
+    }
+
+    @Override
+    public IRInstruction visitReturn(Return instruction) {
+      throw new UnsupportedOperationException("a return is replaced by a jump to the caller");
+    }
+
+    @Override
+    public IRInstruction visitTailCall(TailCall instruction) {
+      throw new UnsupportedOperationException("tail calls are made after inlining");
+    }
+
+    @Override
+    public IRInstruction visitExit(Exit instruction) {
+      return new Exit(value(instruction.getCode()));
+    }
+
+    @Override
+    public IRInstruction visitPhi(Phi instruction) {
+      throw new UnsupportedOperationException("inlining runs before SSA construction");
+    }
+  }
+}
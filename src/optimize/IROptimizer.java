@@ -0,0 +1,62 @@
+package optimize;
+
+import backend.ARMInstructionPrinter.OptimizationLevel;
+import ir.IRFunction;
+import ir.IRProgram;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/* runs the IR passes enabled at the given optimization level over every function */
+public class IROptimizer {
+
+  private final OptimizationLevel optimizationLevel;
+  /* number of instructions hoisted out of the loops that hoisted any, by their description */
+  private final Map<String, Integer> hoistedInstructions;
+
+  public IROptimizer(OptimizationLevel optimizationLevel) {
+    this.optimizationLevel = optimizationLevel;
+    this.hoistedInstructions = new LinkedHashMap<>();
+  }
+
+  public void optimize(IRProgram program) {
+    /* the copied bodies leave phis of registers dead after the call, removed by dead code elim */
+    if (optimizationLevel.compareTo(OptimizationLevel.DEAD_CODE_ELIM) >= 0) {
+      new FunctionInlining(program).inline();
+    }
+    List<IRFunction> functions = new ArrayList<>(program.getFunctions());
+    functions.add(program.getMain());
+    for (IRFunction function : functions) {
+      optimize(function);
+    }
+  }
+
+  private void optimize(IRFunction function) {
+    if (optimizationLevel.compareTo(OptimizationLevel.CONSTANT_PROPAGATION) < 0) {
+      return;
+    }
+    if (optimizationLevel.compareTo(OptimizationLevel.CONTROL_FLOW_ANALYSIS) >= 0) {
+      new TailCallElimination(function).eliminate();
+    }
+    new SSAConstruction(function).construct();
+    new SparseConditionalConstantPropagation(function).propagate();
+    if (optimizationLevel.compareTo(OptimizationLevel.CONTROL_FLOW_ANALYSIS) >= 0) {
+      LoopInvariantCodeMotion codeMotion = new LoopInvariantCodeMotion(function);
+      codeMotion.move();
+      codeMotion.getHoisted().forEach((loop, count) ->
+          hoistedInstructions.merge(loop, count, Integer::sum));
+      new NullCheckElimination(function).eliminate();
+      new BoundsCheckElimination(function).eliminate();
+      new EscapeAnalysis(function).allocate();
+    }
+    if (optimizationLevel.compareTo(OptimizationLevel.DEAD_CODE_ELIM) >= 0) {
+      new DeadCodeElimination(function).eliminate();
+    }
+    new SSADestruction(function).destruct();
+  }
+
+  public Map<String, Integer> getHoistedInstructions() {
+    return hoistedInstructions;
+  }
+}
@@ -0,0 +1,46 @@
+package optimize;
+
+import backend.ARMInstructionPrinter.OptimizationLevel;
+import backend.instructions.Instruction;
+import backend.instructions.Label;
+import java.util.List;
+import java.util.Map;
+import optimize.peephole.PeepholeOptimizer;
+import utils.backend.ImmediateLegalizer;
+
+/* runs the passes enabled at the given optimization level over the translated program,
+ * after register allocation */
+public class InstructionOptimizer {
+
+  private final OptimizationLevel optimizationLevel;
+  private final PeepholeOptimizer peepholeOptimizer;
+
+  public InstructionOptimizer(OptimizationLevel optimizationLevel) {
+    this.optimizationLevel = optimizationLevel;
+    this.peepholeOptimizer = new PeepholeOptimizer();
+  }
+
+  /* the messages no longer used by the optimized program are removed from dataSegmentMessages */
+  public List<Instruction> optimize(List<Instruction> instructions,
+      Map<Label, String> dataSegmentMessages) {
+    if (optimizationLevel.compareTo(OptimizationLevel.CONTROL_FLOW_ANALYSIS) >= 0) {
+      instructions = new BranchSimplification().simplify(instructions);
+    }
+    if (optimizationLevel.compareTo(OptimizationLevel.DEAD_CODE_ELIM) >= 0) {
+      instructions = new UnusedRoutineElimination().eliminate(instructions, dataSegmentMessages);
+    }
+    if (optimizationLevel.compareTo(OptimizationLevel.CONTROL_FLOW_ANALYSIS) >= 0) {
+      instructions = new LeafFrameElision().elide(instructions);
+    }
+    if (optimizationLevel.compareTo(OptimizationLevel.PEEPHOLE) >= 0) {
+      instructions = peepholeOptimizer.optimize(instructions);
+    }
+    /* at every level, the constants and offsets have to encode whatever the passes made of them */
+    return ImmediateLegalizer.legalize(instructions);
+  }
+
+  /* the peephole rules applied at least once with how often, empty below PEEPHOLE */
+  public Map<String, Integer> getPeepholeRuleCounts() {
+    return peepholeOptimizer.getRuleCounts();
+  }
+}
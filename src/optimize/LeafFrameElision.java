@@ -0,0 +1,143 @@
+package optimize;
+
+import static utils.Utils.FUNC_HEADER;
+import static utils.Utils.RoutineInstruction.THROW_DIVIDE_BY_ZERO_ERROR;
+import static utils.Utils.RoutineInstruction.THROW_INDEX_TOO_LARGE_ERROR;
+import static utils.Utils.RoutineInstruction.THROW_NEGATIVE_INDEX_ERROR;
+import static utils.Utils.RoutineInstruction.THROW_NULL_REFERENCE_ERROR;
+import static utils.Utils.RoutineInstruction.THROW_OVERFLOW_ERROR;
+import static utils.Utils.RoutineInstruction.THROW_RUNTIME_ERROR;
+import static utils.Utils.SystemCallInstruction.EXIT;
+import static utils.backend.register.ARMConcreteRegister.LR;
+import static utils.backend.register.ARMConcreteRegister.PC;
+import static utils.backend.register.ARMConcreteRegister.SP;
+import static utils.backend.register.ARMConcreteRegister.r0;
+import static utils.backend.register.ARMConcreteRegister.r1;
+import static utils.backend.register.ARMConcreteRegister.r12;
+import static utils.backend.register.ARMConcreteRegister.r2;
+import static utils.backend.register.ARMConcreteRegister.r3;
+
+import backend.instructions.BL;
+import backend.instructions.BX;
+import backend.instructions.Instruction;
+import backend.instructions.arithmeticLogic.Add;
+import backend.instructions.arithmeticLogic.ArithmeticLogic;
+import backend.instructions.arithmeticLogic.Sub;
+import backend.instructions.memory.Pop;
+import backend.instructions.memory.Push;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import utils.backend.cfg.CodeBlock;
+import utils.backend.cfg.ControlFlowGraph;
+import utils.backend.register.Register;
+
+/* a function calling nothing that returns keeps lr for its whole body, so it needs no frame: the
+ * callee saved registers it uses are renamed to scratch registers it leaves untouched, the
+ * PUSH {.., lr}, the stack adjustments and the POP {.., pc} go, and it returns with BX lr.
+ * Only done when nothing else in the function uses the stack and enough scratch registers are free */
+public class LeafFrameElision {
+
+  /* calls that never come back, so they may overwrite lr and the scratch registers */
+  private static final Set<String> NON_RETURNING_CALLS = Set.of(
+      THROW_OVERFLOW_ERROR.toString(), THROW_NULL_REFERENCE_ERROR.toString(),
+      THROW_DIVIDE_BY_ZERO_ERROR.toString(), THROW_NEGATIVE_INDEX_ERROR.toString(),
+      THROW_INDEX_TOO_LARGE_ERROR.toString(), THROW_RUNTIME_ERROR.toString(), EXIT.toString());
+
+  /* registers a function may change without saving them */
+  private static final List<Register> SCRATCH_REGISTERS = List.of(r0, r1, r2, r3, r12);
+
+  public List<Instruction> elide(List<Instruction> instructions) {
+    ControlFlowGraph cfg = new ControlFlowGraph(instructions);
+    for (CodeBlock entry : cfg.getEntries()) {
+      List<Instruction> head = entry.getInstructions();
+      if (entry.getLabel() != null && entry.getLabel().getName().startsWith(FUNC_HEADER)
+          && head.size() > 1 && head.get(1) instanceof Push
+          && ((Push) head.get(1)).getRegList().contains(LR)) {
+        elideFrame(functionBlocks(entry), (Push) head.get(1));
+      }
+    }
+    return cfg.toInstructions();
+  }
+
+  /* the blocks reached from the entry of a function, calls not being edges */
+  private static List<CodeBlock> functionBlocks(CodeBlock entry) {
+    Set<CodeBlock> blocks = new LinkedHashSet<>();
+    Deque<CodeBlock> worklist = new ArrayDeque<>();
+    blocks.add(entry);
+    worklist.push(entry);
+    while (!worklist.isEmpty()) {
+      for (CodeBlock succ : worklist.pop().getSuccessors()) {
+        if (blocks.add(succ)) {
+          worklist.push(succ);
+        }
+      }
+    }
+    return new ArrayList<>(blocks);
+  }
+
+  private static void elideFrame(List<CodeBlock> blocks, Push entryPush) {
+    Set<Register> referenced = new LinkedHashSet<>();
+    for (CodeBlock block : blocks) {
+      for (Instruction ins : block.getInstructions()) {
+        if (ins == entryPush || isReturn(ins) || isStackAdjustment(ins)) {
+          continue;
+        }
+        if (ins instanceof Push || ins instanceof Pop
+            || (ins instanceof BL && !NON_RETURNING_CALLS.contains(((BL) ins).getLabel().getName()))) {
+          return;
+        }
+        referenced.addAll(ins.getUses());
+        referenced.addAll(ins.getDefs());
+      }
+    }
+    if (referenced.contains(SP) || referenced.contains(LR) || referenced.contains(PC)) {
+      return;
+    }
+
+    /* every saved register gets a scratch register the function does not use otherwise */
+    List<Register> saved = new ArrayList<>(entryPush.getRegList());
+    saved.remove(LR);
+    List<Register> free = new ArrayList<>(SCRATCH_REGISTERS);
+    free.removeAll(referenced);
+    if (saved.size() > free.size()) {
+      return;
+    }
+    Map<Register, Register> renaming = new HashMap<>();
+    for (int i = 0; i < saved.size(); i++) {
+      renaming.put(saved.get(i), free.get(i));
+    }
+
+    for (CodeBlock block : blocks) {
+      List<Instruction> code = block.getInstructions();
+      for (int i = 0; i < code.size(); i++) {
+        Instruction ins = code.get(i);
+        if (ins == entryPush || isStackAdjustment(ins)) {
+          code.remove(i--);
+        } else if (isReturn(ins)) {
+          code.set(i, new BX(LR));
+        } else {
+          ins.replaceRegisters(reg -> renaming.getOrDefault(reg, reg));
+        }
+      }
+    }
+  }
+
+  private static boolean isReturn(Instruction ins) {
+    return ins instanceof Pop && ((Pop) ins).getRegList().contains(PC);
+  }
+
+  /* ADD sp, sp, #n or SUB sp, sp, #n, reserving or releasing the frame */
+  private static boolean isStackAdjustment(Instruction ins) {
+    if (!(ins instanceof Add || ins instanceof Sub)) {
+      return false;
+    }
+    ArithmeticLogic op = (ArithmeticLogic) ins;
+    return SP.equals(op.getRd()) && SP.equals(op.getRn()) && op.getOperand2().getRegister() == null;
+  }
+}
@@ -0,0 +1,262 @@
+package optimize;
+
+import static utils.Utils.RoutineInstruction.FREE_ARRAY;
+import static utils.Utils.RoutineInstruction.FREE_PAIR;
+import static utils.Utils.RoutineInstruction.READ_CHAR;
+import static utils.Utils.RoutineInstruction.READ_INT;
+import static utils.Utils.FUNC_HEADER;
+
+import ir.BasicBlock;
+import ir.Constant;
+import ir.DominatorTree;
+import ir.IRFunction;
+import ir.Loop;
+import ir.StackSlot;
+import ir.Value;
+import ir.VirtualRegister;
+import ir.instructions.AddressOf;
+import ir.instructions.Binary;
+import ir.instructions.Call;
+import ir.instructions.CheckBounds;
+import ir.instructions.CheckNull;
+import ir.instructions.IRInstruction;
+import ir.instructions.Load;
+import ir.instructions.LoadString;
+import ir.instructions.Move;
+import ir.instructions.RoutineCall;
+import ir.instructions.Store;
+import ir.instructions.Unary;
+import ir.memory.ArrayElementAccess;
+import ir.memory.ArrayLengthAccess;
+import ir.memory.MemoryAccess;
+import ir.memory.PairElementAccess;
+import ir.memory.StackSlotAccess;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import utils.Utils.RoutineInstruction;
+
+/* move the instructions of a loop computing the same value on every iteration into a preheader
+ * in front of the loop header, inner loops first so that their hoisted code can leave the outer
+ * loops too. Works on SSA form: an operand is invariant when it is defined outside the loop.
+ * Instructions without side effects can be hoisted from anywhere in the loop. Loads also need
+ * their location not to be written in the loop and to be readable before the loop, so an array
+ * element or a pair element is only loaded after its bounds or null check has been hoisted too.
+ * Instructions that can raise a runtime error are only hoisted from the header before any side
+ * effect, as the header starts the first iteration */
+public class LoopInvariantCodeMotion {
+
+  /* routines writing to memory, the reads through the address they are given */
+  private static final Set<RoutineInstruction> WRITING_ROUTINES =
+      Set.of(READ_INT, READ_CHAR, FREE_ARRAY, FREE_PAIR);
+
+  private final IRFunction function;
+  /* the block defining each register, parameters have none */
+  private final Map<VirtualRegister, BasicBlock> defBlocks;
+  /* number of instructions hoisted out of the loops that hoisted any, by their description */
+  private final Map<String, Integer> hoisted;
+
+  public LoopInvariantCodeMotion(IRFunction function) {
+    this.function = function;
+    this.defBlocks = new HashMap<>();
+    this.hoisted = new LinkedHashMap<>();
+  }
+
+  public void move() {
+    List<Loop> loops = Loop.findLoops(new DominatorTree(function));
+    for (BasicBlock block : function.getBlocks()) {
+      for (IRInstruction ins : block.getInstructions()) {
+        if (ins.getDef() != null) {
+          defBlocks.put(ins.getDef(), block);
+        }
+      }
+    }
+    Set<Loop> outerLoops = new HashSet<>();
+    loops.forEach(loop -> outerLoops.add(loop.getParent()));
+    for (Loop loop : loops) {
+      int count = hoist(loop, !outerLoops.contains(loop));
+      if (count > 0) {
+        hoisted.merge(describe(loop), count, Integer::sum);
+      }
+    }
+  }
+
+  /* the while loop by its line in the source, a loop only made from tail calls by its function.
+   * An inlined loop is described as in the function it was copied from */
+  private String describe(Loop loop) {
+    int line = loop.getHeader().getSourceLine();
+    if (line > 0) {
+      return "while loop at line " + line;
+    }
+    return "tail calls of " + function.getName().replaceFirst("^" + FUNC_HEADER, "");
+  }
+
+  public Map<String, Integer> getHoisted() {
+    return hoisted;
+  }
+
+  /* hoist the invariant instructions of the loop until no more become invariant, returning how
+   * many were hoisted */
+  private int hoist(Loop loop, boolean innermost) {
+    MemoryEffects effects = new MemoryEffects(loop);
+    List<IRInstruction> invariants = new ArrayList<>();
+    /* the checks moved in front of the loop, making the loads they guard safe to move too */
+    Set<List<Value>> checkedBounds = new HashSet<>();
+    Set<Value> checkedPairs = new HashSet<>();
+    /* the instructions in the preheader by the value they compute, hoisted again they are dropped */
+    Map<String, IRInstruction> hoistedValues = new HashMap<>();
+    BasicBlock preheader = null;
+
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      /* a copy, as the preheader is added to the blocks */
+      for (BasicBlock block : new ArrayList<>(function.getBlocks())) {
+        if (!loop.contains(block)) {
+          continue;
+        }
+        boolean firstIteration = block == loop.getHeader();
+        List<IRInstruction> instructions = block.getInstructions();
+        for (int i = 0; i < instructions.size(); i++) {
+          IRInstruction ins = instructions.get(i);
+          boolean canHoist = ins.getUses().stream().allMatch(use -> isInvariant(use, loop));
+          if (ins.hasSideEffects()) {
+            canHoist &= firstIteration && canThrowOnly(ins);
+          } else {
+            canHoist &= isPure(ins, innermost, effects, checkedBounds, checkedPairs);
+          }
+          if (!canHoist) {
+            firstIteration &= !ins.hasSideEffects();
+            continue;
+          }
+          if (preheader == null) {
+            preheader = loop.getPreheader(function);
+            if (preheader == null) {
+              return 0;
+            }
+          }
+          if (ins instanceof CheckBounds) {
+            checkedBounds.add(ins.getUses());
+          } else if (ins instanceof CheckNull) {
+            checkedPairs.add(((CheckNull) ins).getPair());
+          }
+          instructions.remove(i--);
+          IRInstruction same = hoistedValues.putIfAbsent(valueKey(ins), ins);
+          if (same != null) {
+            replaceUses(ins.getDef(), same.getDef());
+          } else {
+            List<IRInstruction> code = preheader.getInstructions();
+            code.add(code.size() - 1, ins);
+            if (ins.getDef() != null) {
+              defBlocks.put(ins.getDef(), preheader);
+            }
+          }
+          invariants.add(ins);
+          changed = true;
+        }
+      }
+    }
+    return invariants.size();
+  }
+
+  /* instructions computing the same value print the same after their destination */
+  private static String valueKey(IRInstruction ins) {
+    String text = ins.toString();
+    return ins.getDef() == null ? text : text.substring(text.indexOf(" = ") + 3);
+  }
+
+  private void replaceUses(VirtualRegister from, VirtualRegister to) {
+    if (from == null) {
+      return;
+    }
+    for (BasicBlock block : function.getBlocks()) {
+      for (IRInstruction ins : block.getInstructions()) {
+        ins.replaceUses(use -> use == from ? to : use);
+      }
+    }
+  }
+
+  private boolean isInvariant(Value value, Loop loop) {
+    return value instanceof Constant || !loop.contains(defBlocks.get(value));
+  }
+
+  /* instructions whose only side effect is the runtime error they may raise */
+  private static boolean canThrowOnly(IRInstruction ins) {
+    return ins instanceof Binary || ins instanceof Unary
+        || ins instanceof CheckBounds || ins instanceof CheckNull;
+  }
+
+  /* whether the instruction without side effects gives the same result before the loop, and can
+   * run there even if the loop does not need it. Allocations give a new result every time. The
+   * address of a string is a single instruction, only worth a register across innermost loops */
+  private static boolean isPure(IRInstruction ins, boolean innermost, MemoryEffects effects,
+      Set<List<Value>> checkedBounds, Set<Value> checkedPairs) {
+    if (ins instanceof Binary || ins instanceof Unary || ins instanceof Move
+        || ins instanceof AddressOf) {
+      return true;
+    }
+    if (ins instanceof LoadString) {
+      return innermost;
+    }
+    if (!(ins instanceof Load) || !effects.isUnchanged(((Load) ins).getAccess())) {
+      return false;
+    }
+    MemoryAccess access = ((Load) ins).getAccess();
+    if (access instanceof ArrayElementAccess) {
+      ArrayElementAccess element = (ArrayElementAccess) access;
+      return checkedBounds.contains(List.of(element.getArray(), element.getIndex()));
+    } else if (access instanceof PairElementAccess) {
+      return checkedPairs.contains(((PairElementAccess) access).getPair());
+    }
+    return true;
+  }
+
+  /* the memory a loop may write */
+  private static class MemoryEffects {
+
+    /* a call or a routine writing through an address can change any location */
+    private boolean writesAll;
+    private boolean writesArrayElements;
+    private boolean writesPairElements;
+    private final Set<StackSlot> writtenSlots;
+
+    private MemoryEffects(Loop loop) {
+      this.writtenSlots = new HashSet<>();
+      for (BasicBlock block : loop.getBlocks()) {
+        for (IRInstruction ins : block.getInstructions()) {
+          if (ins instanceof Call || (ins instanceof RoutineCall
+              && WRITING_ROUTINES.contains(((RoutineCall) ins).getRoutine()))) {
+            writesAll = true;
+          } else if (ins instanceof Store) {
+            MemoryAccess access = ((Store) ins).getAccess();
+            writesArrayElements |= access instanceof ArrayElementAccess;
+            writesPairElements |= access instanceof PairElementAccess;
+            if (access instanceof StackSlotAccess) {
+              writtenSlots.add(((StackSlotAccess) access).getSlot());
+            }
+          }
+        }
+      }
+    }
+
+    /* the length of an array never changes, it is only written when the array is created */
+    private boolean isUnchanged(MemoryAccess access) {
+      if (access instanceof ArrayLengthAccess) {
+        return true;
+      }
+      if (writesAll) {
+        return false;
+      }
+      if (access instanceof ArrayElementAccess) {
+        return !writesArrayElements;
+      } else if (access instanceof PairElementAccess) {
+        return !writesPairElements;
+      }
+      return !writtenSlots.contains(((StackSlotAccess) access).getSlot());
+    }
+  }
+}
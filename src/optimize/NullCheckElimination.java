@@ -0,0 +1,173 @@
+package optimize;
+
+import static utils.Utils.RoutineInstruction.FREE_PAIR;
+
+import frontend.node.expr.BinopNode.Binop;
+import frontend.node.expr.UnopNode.Unop;
+import ir.BasicBlock;
+import ir.Constant;
+import ir.DominatorTree;
+import ir.IRFunction;
+import ir.Value;
+import ir.VirtualRegister;
+import ir.instructions.Binary;
+import ir.instructions.Branch;
+import ir.instructions.CheckNull;
+import ir.instructions.IRInstruction;
+import ir.instructions.Move;
+import ir.instructions.NewPair;
+import ir.instructions.Phi;
+import ir.instructions.RoutineCall;
+import ir.instructions.Unary;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/* remove the null checks of pairs already known not to be null: pairs just created, pairs whose
+ * check has passed on every path to the instruction, and pairs compared with null by a branch
+ * taken only when they are not. A forward dataflow analysis over the blocks of a function in SSA
+ * form, where a register keeps its value, so only freeing a pair forgets it; the pair is then
+ * checked again, as before. Calls cannot change the registers of the caller */
+public class NullCheckElimination {
+
+  private final IRFunction function;
+  private final DominatorTree dominators;
+  private final Map<VirtualRegister, IRInstruction> defs;
+  /* the pairs known not to be null at the end of each block, missing for blocks not yet visited,
+   * which are assumed to know every pair */
+  private final Map<BasicBlock, Set<Value>> nonNullOut;
+
+  public NullCheckElimination(IRFunction function) {
+    this.function = function;
+    this.dominators = new DominatorTree(function);
+    this.defs = new HashMap<>();
+    this.nonNullOut = new HashMap<>();
+  }
+
+  public void eliminate() {
+    for (BasicBlock block : function.getBlocks()) {
+      for (IRInstruction ins : block.getInstructions()) {
+        if (ins.getDef() != null) {
+          defs.put(ins.getDef(), ins);
+        }
+      }
+    }
+
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (BasicBlock block : dominators.getReversePostorder()) {
+        Set<Value> nonNull = nonNullIn(block);
+        transfer(block, nonNull, false);
+        changed |= !nonNull.equals(nonNullOut.put(block, nonNull));
+      }
+    }
+
+    for (BasicBlock block : dominators.getReversePostorder()) {
+      transfer(block, nonNullIn(block), true);
+    }
+  }
+
+  /* the pairs not null on every edge into the block, with the phis all of whose values are not */
+  private Set<Value> nonNullIn(BasicBlock block) {
+    Set<Value> nonNull = null;
+    for (BasicBlock pred : dominators.getPredecessors(block)) {
+      Set<Value> edge = nonNullOnEdge(pred, block);
+      if (edge == null) {
+        continue;
+      }
+      if (nonNull == null) {
+        nonNull = new HashSet<>(edge);
+      } else {
+        nonNull.retainAll(edge);
+      }
+    }
+    if (nonNull == null) {
+      nonNull = new HashSet<>();
+    }
+
+    for (IRInstruction ins : block.getInstructions()) {
+      if (!(ins instanceof Phi)) {
+        break;
+      }
+      boolean allNonNull = true;
+      for (Map.Entry<BasicBlock, Value> incoming : ((Phi) ins).getIncoming().entrySet()) {
+        Set<Value> edge = nonNullOnEdge(incoming.getKey(), block);
+        allNonNull &= isNonNull(incoming.getValue(), edge);
+      }
+      if (allNonNull) {
+        nonNull.add(ins.getDef());
+      }
+    }
+    return nonNull;
+  }
+
+  /* null while the predecessor has not been visited */
+  private Set<Value> nonNullOnEdge(BasicBlock from, BasicBlock to) {
+    Set<Value> out = nonNullOut.get(from);
+    if (out == null || !(from.getTerminator() instanceof Branch)) {
+      return out;
+    }
+    Branch branch = (Branch) from.getTerminator();
+    if (branch.getIfTrue() == branch.getIfFalse()) {
+      return out;
+    }
+    Set<Value> edge = new HashSet<>(out);
+    addNonNull(branch.getCond(), branch.getIfTrue() == to, edge);
+    return edge;
+  }
+
+  /* add the pairs cond compares with null that cannot be null when cond evaluates to holds */
+  private void addNonNull(Value cond, boolean holds, Set<Value> nonNull) {
+    IRInstruction def = defs.get(cond);
+    if (def instanceof Unary && ((Unary) def).getOperator() == Unop.NOT) {
+      addNonNull(((Unary) def).getSrc(), !holds, nonNull);
+    } else if (def instanceof Binary) {
+      Binary binary = (Binary) def;
+      Binop operator = binary.getOperator();
+      if ((operator == Binop.AND && holds) || (operator == Binop.OR && !holds)) {
+        addNonNull(binary.getLhs(), holds, nonNull);
+        addNonNull(binary.getRhs(), holds, nonNull);
+      } else if ((operator == Binop.INEQUAL && holds) || (operator == Binop.EQUAL && !holds)) {
+        if (isNull(binary.getRhs())) {
+          nonNull.add(binary.getLhs());
+        } else if (isNull(binary.getLhs())) {
+          nonNull.add(binary.getRhs());
+        }
+      }
+    }
+  }
+
+  /* update nonNull through the instructions of the block, removing the checks it makes useless
+   * when remove is set */
+  private void transfer(BasicBlock block, Set<Value> nonNull, boolean remove) {
+    Iterator<IRInstruction> it = block.getInstructions().iterator();
+    while (it.hasNext()) {
+      IRInstruction ins = it.next();
+      if (ins instanceof CheckNull) {
+        Value pair = ((CheckNull) ins).getPair();
+        if (remove && isNonNull(pair, nonNull)) {
+          it.remove();
+        }
+        nonNull.add(pair);
+      } else if (ins instanceof NewPair) {
+        nonNull.add(ins.getDef());
+      } else if (ins instanceof Move && isNonNull(((Move) ins).getSrc(), nonNull)) {
+        nonNull.add(ins.getDef());
+      } else if (ins instanceof RoutineCall && ((RoutineCall) ins).getRoutine() == FREE_PAIR) {
+        nonNull.removeAll(ins.getUses());
+      }
+    }
+  }
+
+  private static boolean isNonNull(Value value, Set<Value> nonNull) {
+    return nonNull == null || nonNull.contains(value)
+        || (value instanceof Constant && !isNull(value));
+  }
+
+  private static boolean isNull(Value value) {
+    return value instanceof Constant && ((Constant) value).getVal() == 0;
+  }
+}
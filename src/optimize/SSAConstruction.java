@@ -0,0 +1,166 @@
+package optimize;
+
+import ir.BasicBlock;
+import ir.Constant;
+import ir.DominatorTree;
+import ir.IRFunction;
+import ir.Value;
+import ir.VirtualRegister;
+import ir.instructions.IRInstruction;
+import ir.instructions.Move;
+import ir.instructions.Phi;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/* put a function into SSA form (Cytron et al.): phis are placed on the dominance frontiers of the
+ * definitions of every register live across blocks, then registers are renamed walking the
+ * dominator tree, folding copies into the uses of their destination */
+public class SSAConstruction {
+
+  /* value of a register on a path where it was never assigned, such a path never reads it */
+  private static final Value UNDEFINED = new Constant(0);
+
+  private final IRFunction function;
+  private final DominatorTree dominators;
+  /* the register each phi was placed for, before renaming */
+  private final Map<Phi, VirtualRegister> phiRegisters;
+  /* the current name of every register while renaming */
+  private final Map<VirtualRegister, Deque<Value>> names;
+
+  public SSAConstruction(IRFunction function) {
+    this.function = function;
+    this.dominators = new DominatorTree(function);
+    this.phiRegisters = new HashMap<>();
+    this.names = new HashMap<>();
+  }
+
+  public void construct() {
+    insertPhis();
+    rename();
+  }
+
+  private void insertPhis() {
+    /* blocks defining each register, and the registers read in a block before being written there */
+    Map<VirtualRegister, Set<BasicBlock>> defSites = new HashMap<>();
+    Set<VirtualRegister> globals = new HashSet<>();
+    for (VirtualRegister param : function.getParams()) {
+      defSites.computeIfAbsent(param, r -> new LinkedHashSet<>()).add(function.getEntry());
+    }
+    for (BasicBlock block : dominators.getReversePostorder()) {
+      Set<VirtualRegister> killed = new HashSet<>();
+      for (IRInstruction ins : block.getInstructions()) {
+        for (Value use : ins.getUses()) {
+          if (use instanceof VirtualRegister && !killed.contains(use)) {
+            globals.add((VirtualRegister) use);
+          }
+        }
+        if (ins.getDef() != null) {
+          killed.add(ins.getDef());
+          defSites.computeIfAbsent(ins.getDef(), r -> new LinkedHashSet<>()).add(block);
+        }
+      }
+    }
+
+    for (VirtualRegister reg : globals) {
+      Set<BasicBlock> hasPhi = new HashSet<>();
+      Deque<BasicBlock> worklist = new ArrayDeque<>(defSites.getOrDefault(reg, Set.of()));
+      Set<BasicBlock> defBlocks = new HashSet<>(worklist);
+      while (!worklist.isEmpty()) {
+        for (BasicBlock join : dominators.getFrontier(worklist.pop())) {
+          if (hasPhi.add(join)) {
+            Phi phi = new Phi(reg);
+            phiRegisters.put(phi, reg);
+            join.getInstructions().add(0, phi);
+            if (defBlocks.add(join)) {
+              worklist.push(join);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /* walk the dominator tree depth first, without recursion as it can be as deep as the function is long */
+  private void rename() {
+    for (VirtualRegister param : function.getParams()) {
+      push(param, param);
+    }
+
+    Deque<BasicBlock> stack = new ArrayDeque<>();
+    Map<BasicBlock, List<VirtualRegister>> pushed = new HashMap<>();
+    stack.push(function.getEntry());
+    while (!stack.isEmpty()) {
+      BasicBlock block = stack.peek();
+      if (pushed.containsKey(block)) {
+        /* all dominated blocks are done, restore the names from before this block */
+        stack.pop();
+        for (VirtualRegister reg : pushed.get(block)) {
+          names.get(reg).pop();
+        }
+        continue;
+      }
+      pushed.put(block, renameBlock(block));
+      for (BasicBlock child : dominators.getChildren(block)) {
+        stack.push(child);
+      }
+    }
+  }
+
+  /* rename the instructions of block and the phi operands of its successors,
+   * returning the registers given a new name */
+  private List<VirtualRegister> renameBlock(BasicBlock block) {
+    List<VirtualRegister> pushed = new ArrayList<>();
+    Iterator<IRInstruction> iterator = block.getInstructions().iterator();
+    while (iterator.hasNext()) {
+      IRInstruction ins = iterator.next();
+      if (!(ins instanceof Phi)) {
+        ins.replaceUses(this::currentName);
+      }
+      VirtualRegister def = ins.getDef();
+      if (def == null) {
+        continue;
+      }
+
+      pushed.add(def);
+      if (ins instanceof Move) {
+        /* the destination of a copy is just another name of its source */
+        push(def, ((Move) ins).getSrc());
+        iterator.remove();
+      } else {
+        VirtualRegister name = function.newRegister();
+        push(def, name);
+        ins.setDef(name);
+      }
+    }
+
+    for (BasicBlock succ : block.getSuccessors()) {
+      for (IRInstruction ins : succ.getInstructions()) {
+        if (!(ins instanceof Phi)) {
+          break;
+        }
+        ((Phi) ins).setIncoming(block, currentName(phiRegisters.get(ins)));
+      }
+    }
+    return pushed;
+  }
+
+  private void push(VirtualRegister reg, Value name) {
+    names.computeIfAbsent(reg, r -> new ArrayDeque<>()).push(name);
+  }
+
+  private Value currentName(Value value) {
+    if (!(value instanceof VirtualRegister)) {
+      return value;
+    }
+    Deque<Value> stack = names.get(value);
+    return stack == null || stack.isEmpty() ? UNDEFINED : stack.peek();
+  }
+}
@@ -0,0 +1,41 @@
+package optimize;
+
+import ir.BasicBlock;
+import ir.IRFunction;
+import ir.Value;
+import ir.VirtualRegister;
+import ir.instructions.IRInstruction;
+import ir.instructions.Move;
+import ir.instructions.Phi;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+/* leave SSA form by replacing every phi with copies: each predecessor copies its operand into a
+ * fresh register just before its terminator, and the block copies that register into the phi
+ * destination, so copies of different phis and different edges never overwrite each other */
+public class SSADestruction {
+
+  private final IRFunction function;
+
+  public SSADestruction(IRFunction function) {
+    this.function = function;
+  }
+
+  public void destruct() {
+    for (BasicBlock block : function.getBlocks()) {
+      List<IRInstruction> instructions = block.getInstructions();
+      List<IRInstruction> copies = new ArrayList<>();
+      while (!instructions.isEmpty() && instructions.get(0) instanceof Phi) {
+        Phi phi = (Phi) instructions.remove(0);
+        VirtualRegister temp = function.newRegister();
+        for (Entry<BasicBlock, Value> incoming : phi.getIncoming().entrySet()) {
+          List<IRInstruction> pred = incoming.getKey().getInstructions();
+          pred.add(pred.size() - 1, new Move(temp, incoming.getValue()));
+        }
+        copies.add(new Move(phi.getDef(), temp));
+      }
+      instructions.addAll(0, copies);
+    }
+  }
+}
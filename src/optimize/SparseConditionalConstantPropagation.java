@@ -0,0 +1,329 @@
+package optimize;
+
+import ir.BasicBlock;
+import ir.Constant;
+import ir.IRFunction;
+import ir.Value;
+import ir.VirtualRegister;
+import ir.instructions.Binary;
+import ir.instructions.Branch;
+import ir.instructions.IRInstruction;
+import ir.instructions.Jump;
+import ir.instructions.Move;
+import ir.instructions.Phi;
+import ir.instructions.Terminator;
+import ir.instructions.Unary;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/* sparse conditional constant propagation (Wegman and Zadeck) over a function in SSA form:
+ * registers start unknown and only get lower in the lattice, and only the edges found executable
+ * are followed, so a branch on a constant condition never makes its other side reachable.
+ * Constant registers are then replaced by their value and the branches that cannot be taken
+ * are removed, together with the blocks only they reached */
+public class SparseConditionalConstantPropagation {
+
+  /* no value known yet (TOP), a single constant, or more than one value (BOTTOM) */
+  private static final Object TOP = "TOP";
+  private static final Object BOTTOM = "BOTTOM";
+
+  private final IRFunction function;
+  private final Map<VirtualRegister, Object> lattice;
+  private final Set<BasicBlock> executableBlocks;
+  /* predecessors of each block whose edge into it is executable */
+  private final Map<BasicBlock, Set<BasicBlock>> executableEdges;
+  private final Map<IRInstruction, BasicBlock> blockOf;
+  private final Map<VirtualRegister, List<IRInstruction>> users;
+  private final Deque<BasicBlock[]> edgeWorklist;
+  private final Deque<IRInstruction> ssaWorklist;
+
+  public SparseConditionalConstantPropagation(IRFunction function) {
+    this.function = function;
+    this.lattice = new HashMap<>();
+    this.executableBlocks = new HashSet<>();
+    this.executableEdges = new HashMap<>();
+    this.blockOf = new IdentityHashMap<>();
+    this.users = new HashMap<>();
+    this.edgeWorklist = new ArrayDeque<>();
+    this.ssaWorklist = new ArrayDeque<>();
+  }
+
+  public void propagate() {
+    for (BasicBlock block : function.getBlocks()) {
+      for (IRInstruction ins : block.getInstructions()) {
+        blockOf.put(ins, block);
+        for (Value use : ins.getUses()) {
+          if (use instanceof VirtualRegister) {
+            users.computeIfAbsent((VirtualRegister) use, r -> new ArrayList<>()).add(ins);
+          }
+        }
+      }
+    }
+    for (VirtualRegister param : function.getParams()) {
+      lattice.put(param, BOTTOM);
+    }
+
+    edgeWorklist.add(new BasicBlock[]{null, function.getEntry()});
+    while (!edgeWorklist.isEmpty() || !ssaWorklist.isEmpty()) {
+      while (!edgeWorklist.isEmpty()) {
+        BasicBlock[] edge = edgeWorklist.poll();
+        visitEdge(edge[0], edge[1]);
+      }
+      while (!ssaWorklist.isEmpty()) {
+        IRInstruction ins = ssaWorklist.poll();
+        if (executableBlocks.contains(blockOf.get(ins))) {
+          visit(ins);
+        }
+      }
+    }
+
+    rewrite();
+  }
+
+  private void visitEdge(BasicBlock from, BasicBlock to) {
+    Set<BasicBlock> preds = executableEdges.computeIfAbsent(to, b -> new HashSet<>());
+    if (from != null && !preds.add(from)) {
+      return;
+    }
+    /* a block is visited entirely the first time it is reached, after that only its phis can change */
+    boolean isFirstVisit = executableBlocks.add(to);
+    for (IRInstruction ins : to.getInstructions()) {
+      if (ins instanceof Phi || isFirstVisit) {
+        visit(ins);
+      }
+    }
+  }
+
+  private void visit(IRInstruction ins) {
+    if (ins instanceof Terminator) {
+      visitTerminator((Terminator) ins);
+      return;
+    }
+    VirtualRegister def = ins.getDef();
+    if (def == null) {
+      return;
+    }
+
+    Object value = evaluate(ins);
+    Object old = lattice.getOrDefault(def, TOP);
+    if (!value.equals(old)) {
+      lattice.put(def, value);
+      ssaWorklist.addAll(users.getOrDefault(def, List.of()));
+    }
+  }
+
+  private void visitTerminator(Terminator ins) {
+    BasicBlock block = blockOf.get(ins);
+    if (ins instanceof Branch) {
+      Branch branch = (Branch) ins;
+      Object cond = valueOf(branch.getCond());
+      if (cond == TOP) {
+        return;
+      }
+      if (cond != BOTTOM) {
+        BasicBlock target = (int) cond != 0 ? branch.getIfTrue() : branch.getIfFalse();
+        edgeWorklist.add(new BasicBlock[]{block, target});
+        return;
+      }
+    }
+    for (BasicBlock succ : ins.getSuccessors()) {
+      edgeWorklist.add(new BasicBlock[]{block, succ});
+    }
+  }
+
+  private Object evaluate(IRInstruction ins) {
+    if (ins instanceof Move) {
+      return valueOf(((Move) ins).getSrc());
+    }
+    if (ins instanceof Phi) {
+      Object value = TOP;
+      Set<BasicBlock> preds = executableEdges.getOrDefault(blockOf.get(ins), Set.of());
+      for (Entry<BasicBlock, Value> incoming : ((Phi) ins).getIncoming().entrySet()) {
+        if (preds.contains(incoming.getKey())) {
+          value = meet(value, valueOf(incoming.getValue()));
+        }
+      }
+      return value;
+    }
+    if (ins instanceof Binary) {
+      Binary binary = (Binary) ins;
+      Object lhs = valueOf(binary.getLhs());
+      Object rhs = valueOf(binary.getRhs());
+      if (lhs == BOTTOM || rhs == BOTTOM) {
+        return BOTTOM;
+      }
+      if (lhs == TOP || rhs == TOP) {
+        return TOP;
+      }
+      Integer result = ConstantFolding.fold(binary.getOperator(), (int) lhs, (int) rhs);
+      return result == null ? BOTTOM : result;
+    }
+    if (ins instanceof Unary) {
+      Unary unary = (Unary) ins;
+      Object src = valueOf(unary.getSrc());
+      if (src == TOP || src == BOTTOM) {
+        return src;
+      }
+      Integer result = ConstantFolding.fold(unary.getOperator(), (int) src);
+      return result == null ? BOTTOM : result;
+    }
+    /* loads, calls and allocations can produce any value */
+    return BOTTOM;
+  }
+
+  private Object valueOf(Value value) {
+    if (value instanceof Constant) {
+      return ((Constant) value).getVal();
+    }
+    return lattice.getOrDefault((VirtualRegister) value, TOP);
+  }
+
+  private static Object meet(Object v1, Object v2) {
+    if (v1 == TOP) {
+      return v2;
+    }
+    if (v2 == TOP) {
+      return v1;
+    }
+    return v1.equals(v2) ? v1 : BOTTOM;
+  }
+
+  /* replace constant registers by their value and drop what cannot be executed */
+  private void rewrite() {
+    function.getBlocks().retainAll(executableBlocks);
+    for (BasicBlock block : function.getBlocks()) {
+      List<IRInstruction> instructions = block.getInstructions();
+      Set<BasicBlock> preds = executableEdges.getOrDefault(block, Set.of());
+      List<IRInstruction> kept = new ArrayList<>();
+      for (IRInstruction ins : instructions) {
+        VirtualRegister def = ins.getDef();
+        /* only moves, phis and operations that cannot fail evaluate to a constant */
+        if (def != null && isConstant(def)) {
+          continue;
+        }
+        if (ins instanceof Phi) {
+          ((Phi) ins).getIncoming().keySet().retainAll(preds);
+        }
+        ins.replaceUses(value -> value instanceof VirtualRegister && isConstant(value)
+            ? new Constant((int) lattice.get(value)) : value);
+        kept.add(ins);
+      }
+
+      /* a branch with a single executable successor becomes a jump */
+      Terminator terminator = (Terminator) kept.get(kept.size() - 1);
+      if (terminator instanceof Branch) {
+        List<BasicBlock> targets = new ArrayList<>();
+        for (BasicBlock succ : terminator.getSuccessors()) {
+          if (executableEdges.getOrDefault(succ, Set.of()).contains(block) && !targets.contains(succ)) {
+            targets.add(succ);
+          }
+        }
+        if (targets.size() == 1) {
+          kept.set(kept.size() - 1, new Jump(targets.get(0)));
+        }
+      }
+      instructions.clear();
+      instructions.addAll(kept);
+    }
+    removeRedundantPhis();
+  }
+
+  private boolean isConstant(Value reg) {
+    Object value = lattice.get(reg);
+    return value != null && value != TOP && value != BOTTOM;
+  }
+
+  /* phis whose operands are all the same value (or the phi itself) are that value, and phis
+   * nothing reads are dropped, both repeatedly since removing one phi can make others redundant */
+  private void removeRedundantPhis() {
+    Map<VirtualRegister, Value> replacement = new HashMap<>();
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (BasicBlock block : function.getBlocks()) {
+        for (IRInstruction ins : block.getInstructions()) {
+          if (!(ins instanceof Phi) || replacement.containsKey(ins.getDef())) {
+            continue;
+          }
+          Value same = null;
+          boolean isRedundant = true;
+          for (Value value : ((Phi) ins).getIncoming().values()) {
+            value = resolve(value, replacement);
+            if (value.equals(ins.getDef()) || value.equals(same)) {
+              continue;
+            }
+            if (same != null) {
+              isRedundant = false;
+              break;
+            }
+            same = value;
+          }
+          if (isRedundant && same != null) {
+            replacement.put(ins.getDef(), same);
+            changed = true;
+          }
+        }
+      }
+    }
+
+    for (BasicBlock block : function.getBlocks()) {
+      block.getInstructions().removeIf(ins -> ins instanceof Phi && replacement.containsKey(ins.getDef()));
+      for (IRInstruction ins : block.getInstructions()) {
+        ins.replaceUses(value -> resolve(value, replacement));
+      }
+    }
+
+    /* dead phis, found by counting the uses that are not in a dead phi themselves */
+    Map<VirtualRegister, Integer> useCount = new HashMap<>();
+    Map<VirtualRegister, Phi> phis = new HashMap<>();
+    for (BasicBlock block : function.getBlocks()) {
+      for (IRInstruction ins : block.getInstructions()) {
+        if (ins instanceof Phi) {
+          phis.put(ins.getDef(), (Phi) ins);
+        }
+        for (Value use : ins.getUses()) {
+          if (use instanceof VirtualRegister) {
+            useCount.merge((VirtualRegister) use, 1, Integer::sum);
+          }
+        }
+      }
+    }
+    Deque<Phi> dead = new ArrayDeque<>();
+    for (Phi phi : phis.values()) {
+      if (useCount.getOrDefault(phi.getDef(), 0) == 0) {
+        dead.add(phi);
+      }
+    }
+    Set<Phi> removed = new HashSet<>();
+    while (!dead.isEmpty()) {
+      Phi phi = dead.poll();
+      if (!removed.add(phi)) {
+        continue;
+      }
+      for (Value use : phi.getUses()) {
+        if (use instanceof VirtualRegister && useCount.merge((VirtualRegister) use, -1, Integer::sum) == 0
+            && phis.containsKey(use)) {
+          dead.add(phis.get(use));
+        }
+      }
+    }
+    for (BasicBlock block : function.getBlocks()) {
+      block.getInstructions().removeIf(removed::contains);
+    }
+  }
+
+  private static Value resolve(Value value, Map<VirtualRegister, Value> replacement) {
+    while (value instanceof VirtualRegister && replacement.containsKey(value)) {
+      value = replacement.get(value);
+    }
+    return value;
+  }
+}
@@ -0,0 +1,105 @@
+package optimize;
+
+import static utils.Utils.MAX_REGISTER_PARAMS;
+
+import ir.BasicBlock;
+import ir.IRFunction;
+import ir.Value;
+import ir.VirtualRegister;
+import ir.instructions.Call;
+import ir.instructions.IRInstruction;
+import ir.instructions.Jump;
+import ir.instructions.Move;
+import ir.instructions.Return;
+import ir.instructions.TailCall;
+import java.util.ArrayList;
+import java.util.List;
+
+/* a call whose result is returned straight away, e.g. x = call f(..) ; return x, needs nothing of
+ * the frame of the caller afterwards. A call to the function itself becomes a jump back to its
+ * start with the parameters set to the arguments, and a call to another function passing all its
+ * arguments in registers becomes a TailCall, reusing the frame of the caller.
+ * Runs before SSA construction, which then gives the parameters their phis */
+public class TailCallElimination {
+
+  private final IRFunction function;
+  /* the start of the function body, after the parameters are defined, when there is a self call */
+  private BasicBlock loopHeader;
+
+  public TailCallElimination(IRFunction function) {
+    this.function = function;
+  }
+
+  public void eliminate() {
+    for (BasicBlock block : function.getBlocks()) {
+      if (isSelfCall(tailCall(block))) {
+        splitEntry();
+        break;
+      }
+    }
+
+    for (BasicBlock block : function.getBlocks()) {
+      Call call = tailCall(block);
+      if (call == null || (!isSelfCall(call) && call.getArgs().size() > MAX_REGISTER_PARAMS)) {
+        continue;
+      }
+      List<IRInstruction> instructions = block.getInstructions();
+      instructions.subList(instructions.indexOf(call), instructions.size()).clear();
+      if (isSelfCall(call)) {
+        jumpToStart(block, call.getArgs());
+      } else {
+        block.add(new TailCall(call.getFunction(), call.getArgs(), call.getArgSizes()));
+      }
+    }
+  }
+
+  private boolean isSelfCall(Call call) {
+    return call != null && call.getFunction().equals(function.getName());
+  }
+
+  /* the call only followed by copies of its result and the return of one of them, null if the block
+   * does not end that way */
+  private static Call tailCall(BasicBlock block) {
+    List<IRInstruction> instructions = block.getInstructions();
+    int last = instructions.size() - 1;
+    if (last < 0 || !(instructions.get(last) instanceof Return)) {
+      return null;
+    }
+    Value returned = ((Return) instructions.get(last)).getValue();
+    int i = last - 1;
+    while (i >= 0 && instructions.get(i) instanceof Move) {
+      Move move = (Move) instructions.get(i);
+      if (move.getDef().equals(returned)) {
+        returned = move.getSrc();
+      }
+      i--;
+    }
+    return i >= 0 && instructions.get(i) instanceof Call
+        && returned.equals(instructions.get(i).getDef()) ? (Call) instructions.get(i) : null;
+  }
+
+  /* the arguments are all read before any parameter is written, as they may read the parameters */
+  private void jumpToStart(BasicBlock block, List<Value> args) {
+    List<VirtualRegister> params = function.getParams();
+    List<VirtualRegister> temps = new ArrayList<>();
+    for (Value arg : args) {
+      VirtualRegister temp = function.newRegister();
+      block.add(new Move(temp, arg));
+      temps.add(temp);
+    }
+    for (int i = 0; i < params.size(); i++) {
+      block.add(new Move(params.get(i), temps.get(i)));
+    }
+    block.add(new Jump(loopHeader));
+  }
+
+  /* move the body of the entry block into a new block the entry falls through to */
+  private void splitEntry() {
+    BasicBlock entry = function.getEntry();
+    loopHeader = function.newBlock();
+    loopHeader.getInstructions().addAll(entry.getInstructions());
+    entry.getInstructions().clear();
+    entry.add(new Jump(loopHeader));
+    function.getBlocks().add(1, loopHeader);
+  }
+}
@@ -0,0 +1,76 @@
+package optimize;
+
+import backend.instructions.B;
+import backend.instructions.Instruction;
+import backend.instructions.LDR;
+import backend.instructions.Label;
+import backend.instructions.addressing.LabelAddressing;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import utils.backend.cfg.CodeBlock;
+import utils.backend.cfg.ControlFlowGraph;
+
+/* remove the functions and runtime routines that can no longer be called from main, e.g. because the
+ * code calling them was found dead, and then the .data messages no remaining instruction loads */
+public class UnusedRoutineElimination {
+
+  private static final String MAIN_LABEL = "main";
+
+  public List<Instruction> eliminate(List<Instruction> instructions, Map<Label, String> dataSegmentMessages) {
+    ControlFlowGraph cfg = new ControlFlowGraph(instructions);
+
+    /* each function is made of the blocks from its entry up to the next entry */
+    Map<String, List<CodeBlock>> functions = new HashMap<>();
+    List<CodeBlock> current = new ArrayList<>();
+    for (CodeBlock block : cfg.getBlocks()) {
+      if (cfg.isEntry(block) && block.getLabel() != null) {
+        current = new ArrayList<>();
+        functions.put(block.getLabel().getName(), current);
+      }
+      current.add(block);
+    }
+    if (!functions.containsKey(MAIN_LABEL)) {
+      return instructions;
+    }
+
+    /* every function branched to from a function in use is in use */
+    Set<String> used = new HashSet<>();
+    Deque<String> worklist = new ArrayDeque<>();
+    used.add(MAIN_LABEL);
+    worklist.add(MAIN_LABEL);
+    while (!worklist.isEmpty()) {
+      for (CodeBlock block : functions.get(worklist.poll())) {
+        for (Instruction ins : block.getInstructions()) {
+          if (!(ins instanceof B)) {
+            continue;
+          }
+          String target = ((B) ins).getLabel().getName();
+          if (functions.containsKey(target) && used.add(target)) {
+            worklist.add(target);
+          }
+        }
+      }
+    }
+    for (Map.Entry<String, List<CodeBlock>> function : functions.entrySet()) {
+      if (!used.contains(function.getKey())) {
+        function.getValue().forEach(block -> block.getInstructions().clear());
+      }
+    }
+
+    List<Instruction> result = cfg.toInstructions();
+    Set<String> loadedLabels = new HashSet<>();
+    for (Instruction ins : result) {
+      if (ins instanceof LDR && ((LDR) ins).getAddr() instanceof LabelAddressing) {
+        loadedLabels.add(((LabelAddressing) ((LDR) ins).getAddr()).getLabel().getName());
+      }
+    }
+    dataSegmentMessages.keySet().removeIf(label -> !loadedLabels.contains(label.getName()));
+    return result;
+  }
+}
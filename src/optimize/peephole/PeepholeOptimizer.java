@@ -0,0 +1,75 @@
+package optimize.peephole;
+
+import backend.instructions.Instruction;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/* slide a window over the instructions and rewrite it with the first rule that applies, then look
+ * again at the windows overlapping the rewritten instructions; repeated over the whole program until
+ * no rule applies anywhere */
+public class PeepholeOptimizer {
+
+  private final List<PeepholeRule> rules;
+  private final int maxWindowSize;
+  /* number of times each rule was applied, in the order of the rules */
+  private final Map<String, Integer> ruleCounts;
+
+  public PeepholeOptimizer() {
+    this(PeepholeRules.RULES);
+  }
+
+  public PeepholeOptimizer(List<PeepholeRule> rules) {
+    this.rules = rules;
+    this.maxWindowSize = rules.stream().mapToInt(PeepholeRule::getWindowSize).max().orElse(1);
+    this.ruleCounts = new LinkedHashMap<>();
+    rules.forEach(rule -> ruleCounts.put(rule.getName(), 0));
+  }
+
+  public List<Instruction> optimize(List<Instruction> instructions) {
+    List<Instruction> code = new ArrayList<>(instructions);
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      int i = 0;
+      while (i < code.size()) {
+        if (applyRule(code, i)) {
+          changed = true;
+          i = Math.max(0, i - maxWindowSize + 1);
+        } else {
+          i++;
+        }
+      }
+    }
+    return code;
+  }
+
+  private boolean applyRule(List<Instruction> code, int index) {
+    for (PeepholeRule rule : rules) {
+      if (index + rule.getWindowSize() > code.size()) {
+        continue;
+      }
+      List<Instruction> replacement = rule.apply(code, index);
+      if (replacement != null) {
+        List<Instruction> window = code.subList(index, index + rule.getWindowSize());
+        window.clear();
+        window.addAll(replacement);
+        ruleCounts.merge(rule.getName(), 1, Integer::sum);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /* the rules applied at least once, with how often */
+  public Map<String, Integer> getRuleCounts() {
+    Map<String, Integer> applied = new LinkedHashMap<>();
+    ruleCounts.forEach((rule, count) -> {
+      if (count > 0) {
+        applied.put(rule, count);
+      }
+    });
+    return applied;
+  }
+}
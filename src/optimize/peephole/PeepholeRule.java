@@ -0,0 +1,37 @@
+package optimize.peephole;
+
+import backend.instructions.Instruction;
+import java.util.List;
+
+/* a named rewrite of a fixed number of consecutive instructions */
+public class PeepholeRule {
+
+  /* the instructions replacing code[index, index + windowSize), or null if the rule does not apply there.
+   * The whole code is given so that a rule can look further ahead, e.g. whether a register is still read */
+  public interface Rewrite {
+
+    List<Instruction> apply(List<Instruction> code, int index);
+  }
+
+  private final String name;
+  private final int windowSize;
+  private final Rewrite rewrite;
+
+  public PeepholeRule(String name, int windowSize, Rewrite rewrite) {
+    this.name = name;
+    this.windowSize = windowSize;
+    this.rewrite = rewrite;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getWindowSize() {
+    return windowSize;
+  }
+
+  public List<Instruction> apply(List<Instruction> code, int index) {
+    return rewrite.apply(code, index);
+  }
+}
@@ -0,0 +1,317 @@
+package optimize.peephole;
+
+import static backend.instructions.addressing.AddressingMode2.AddrMode2.OFFSET;
+import static utils.backend.register.ARMConcreteRegister.LR;
+import static utils.backend.register.ARMConcreteRegister.PC;
+import static utils.backend.register.ARMConcreteRegister.SP;
+import static utils.backend.register.ARMConcreteRegister.r0;
+import static utils.backend.register.ARMConcreteRegister.r1;
+import static utils.backend.register.ARMConcreteRegister.r12;
+import static utils.backend.register.ARMConcreteRegister.r2;
+import static utils.backend.register.ARMConcreteRegister.r3;
+
+import backend.instructions.B;
+import backend.instructions.BL;
+import backend.instructions.BX;
+import backend.instructions.Instruction;
+import backend.instructions.LDR;
+import backend.instructions.LDR.LdrMode;
+import backend.instructions.LTORG;
+import backend.instructions.Label;
+import backend.instructions.Mov;
+import backend.instructions.Mvn;
+import backend.instructions.STR;
+import backend.instructions.STR.StrMode;
+import backend.instructions.addressing.Addressing;
+import backend.instructions.addressing.AddressingMode2;
+import backend.instructions.addressing.ImmediateAddressing;
+import backend.instructions.addressing.LabelAddressing;
+import backend.instructions.arithmeticLogic.Add;
+import backend.instructions.arithmeticLogic.And;
+import backend.instructions.arithmeticLogic.ArithmeticLogic;
+import backend.instructions.arithmeticLogic.Or;
+import backend.instructions.arithmeticLogic.Rsb;
+import backend.instructions.arithmeticLogic.SMull;
+import backend.instructions.arithmeticLogic.Sub;
+import backend.instructions.arithmeticLogic.Xor;
+import backend.instructions.memory.Pop;
+import backend.instructions.memory.Push;
+import backend.instructions.operand.Operand2;
+import java.util.List;
+import utils.backend.Cond;
+import utils.backend.ImmediateLegalizer;
+import utils.backend.register.Register;
+
+/* the rules of the peephole optimizer, over allocated code. Rules only match instructions that follow
+ * each other directly, so no other path can enter between them, except where a rule checks itself
+ * that a register is no longer read */
+public class PeepholeRules {
+
+  /* registers a call reads (arguments) or may change without reading them */
+  private static final List<Register> CALL_REGISTERS = List.of(r0, r1, r2, r3, r12, LR);
+  /* registers a function does not have to keep for its caller, apart from r0 holding its result */
+  private static final List<Register> SCRATCH_REGISTERS = List.of(r1, r2, r3, r12);
+
+  public static final List<PeepholeRule> RULES = List.of(
+      /* MOV r4, r4 */
+      new PeepholeRule("self-move", 1, (code, i) -> {
+        Mov mov = plainMove(code.get(i));
+        return mov != null && mov.getRd().equals(mov.getOperand2().getRegister()) ? List.of() : null;
+      }),
+      /* MOV r4, r0; MOV r0, r4 -> MOV r4, r0 */
+      new PeepholeRule("move-back", 2, (code, i) -> {
+        Mov first = plainMove(code.get(i));
+        Mov second = plainMove(code.get(i + 1));
+        return first != null && second != null
+            && first.getRd().equals(second.getOperand2().getRegister())
+            && second.getRd().equals(first.getOperand2().getRegister()) ? List.of(first) : null;
+      }),
+      /* a register written and never read before being written again or leaving the function */
+      new PeepholeRule("dead-definition", 1, (code, i) -> {
+        Register def = pureDefinition(code.get(i));
+        return def != null && isDeadAfter(code, i, def) ? List.of() : null;
+      }),
+      /* LDR r4, =msg_0; MOV r0, r4 -> LDR r0, =msg_0, when r4 is not read afterwards */
+      new PeepholeRule("retarget-definition", 2, (code, i) -> {
+        Mov mov = plainMove(code.get(i + 1));
+        Register def = singleDefinition(code.get(i));
+        if (mov == null || def == null || !def.equals(mov.getOperand2().getRegister())
+            || !isDeadAfter(code, i + 1, def)) {
+          return null;
+        }
+        Instruction retargeted = withDestination(code.get(i), mov.getRd());
+        return retargeted == null ? null : List.of(retargeted);
+      }),
+      /* STR r4, [sp, #8]; LDR r5, [sp, #8] -> STR r4, [sp, #8]; MOV r5, r4 */
+      new PeepholeRule("store-then-load", 2, (code, i) -> {
+        if (!(code.get(i) instanceof STR) || !(code.get(i + 1) instanceof LDR)) {
+          return null;
+        }
+        STR store = (STR) code.get(i);
+        LDR load = (LDR) code.get(i + 1);
+        if (store.getMode() != StrMode.STR || load.getMode() != LdrMode.LDR
+            || !isOffset(store.getAddr()) || !store.getAddr().equals(load.getAddr())) {
+          return null;
+        }
+        return load.getRegister().equals(store.getSrcReg()) ? List.of(store)
+            : List.of(store, new Mov(load.getRegister(), new Operand2(store.getSrcReg())));
+      }),
+      /* LDR r4, [sp, #8]; LDR r5, [sp, #8] -> LDR r4, [sp, #8]; MOV r5, r4 */
+      new PeepholeRule("load-then-load", 2, (code, i) -> {
+        if (!(code.get(i) instanceof LDR) || !(code.get(i + 1) instanceof LDR)) {
+          return null;
+        }
+        LDR first = (LDR) code.get(i);
+        LDR second = (LDR) code.get(i + 1);
+        if (first.isConditional() || first.getMode() != second.getMode()
+            || !isOffset(first.getAddr()) || !first.getAddr().equals(second.getAddr())
+            || first.getAddr().getRegisters().contains(first.getRegister())) {
+          return null;
+        }
+        return second.getRegister().equals(first.getRegister()) ? List.of(first)
+            : List.of(first, new Mov(second.getRegister(), new Operand2(first.getRegister())));
+      }),
+      /* ADD r4, r5, #0 -> MOV r4, r5 */
+      new PeepholeRule("add-zero", 1, (code, i) -> {
+        Instruction ins = code.get(i);
+        if (!(ins instanceof Add || ins instanceof Sub) || ins.setsFlags()) {
+          return null;
+        }
+        ArithmeticLogic op = (ArithmeticLogic) ins;
+        Operand2 op2 = op.getOperand2();
+        if (op2.getRegister() != null || op2.getImmed() == null || op2.getImmed().getVal() != 0) {
+          return null;
+        }
+        return op.getRd().equals(op.getRn()) ? List.of() : List.of(new Mov(op.getRd(), new Operand2(op.getRn())));
+      }),
+      /* ADD sp, sp, #8; SUB sp, sp, #4 -> ADD sp, sp, #4 */
+      new PeepholeRule("stack-adjustments", 2, (code, i) -> {
+        Integer first = stackAdjustment(code.get(i));
+        Integer second = stackAdjustment(code.get(i + 1));
+        if (first == null || second == null) {
+          return null;
+        }
+        int total = first + second;
+        if (total == 0) {
+          return List.of();
+        }
+        if (!ImmediateLegalizer.isEncodable(Math.abs(total))) {
+          return null;
+        }
+        return List.of(total > 0 ? new Add(SP, SP, new Operand2(total))
+            : new Sub(SP, SP, new Operand2(-total)));
+      }),
+      /* B L0; L0: -> L0: */
+      new PeepholeRule("branch-to-next", 2, (code, i) -> {
+        B branch = branch(code.get(i));
+        return branch != null && code.get(i + 1) instanceof Label
+            && ((Label) code.get(i + 1)).getName().equals(branch.getLabel().getName())
+            ? List.of(code.get(i + 1)) : null;
+      }),
+      /* BEQ L0; B L1; L0: -> BNE L1; L0: */
+      new PeepholeRule("branch-over-branch", 3, (code, i) -> {
+        B conditional = branch(code.get(i));
+        B unconditional = branch(code.get(i + 1));
+        if (conditional == null || unconditional == null || unconditional.getCond() != Cond.NULL
+            || !(code.get(i + 2) instanceof Label)
+            || !((Label) code.get(i + 2)).getName().equals(conditional.getLabel().getName())) {
+          return null;
+        }
+        Cond inverse = inverse(conditional.getCond());
+        return inverse == null ? null
+            : List.of(new B(inverse, unconditional.getLabel().getName()), code.get(i + 2));
+      })
+  );
+
+  /* the instruction as an unconditional move between registers, null if it is anything else */
+  private static Mov plainMove(Instruction ins) {
+    if (!(ins instanceof Mov) || ((Mov) ins).isConditional()) {
+      return null;
+    }
+    Operand2 op2 = ((Mov) ins).getOperand2();
+    return op2.getRegister() != null && op2.getOperator() == Operand2.Operand2Operator.NONE
+        && op2.getImmed() == null ? (Mov) ins : null;
+  }
+
+  private static B branch(Instruction ins) {
+    return ins instanceof B && !(ins instanceof BL) ? (B) ins : null;
+  }
+
+  private static boolean isOffset(Addressing addr) {
+    return addr instanceof AddressingMode2 && ((AddressingMode2) addr).getMode() == OFFSET;
+  }
+
+  /* the register written by an instruction that has no other effect, null for any other instruction */
+  private static Register pureDefinition(Instruction ins) {
+    Register def = null;
+    if (ins instanceof Mov && !((Mov) ins).isConditional()) {
+      def = ((Mov) ins).getRd();
+    } else if (ins instanceof Mvn) {
+      def = ((Mvn) ins).getRd();
+    } else if ((ins instanceof Add || ins instanceof Sub || ins instanceof And || ins instanceof Or
+        || ins instanceof Xor) && !ins.setsFlags()) {
+      def = ((ArithmeticLogic) ins).getRd();
+    } else if (ins instanceof LDR && !((LDR) ins).isConditional()) {
+      Addressing addr = ((LDR) ins).getAddr();
+      if (addr instanceof ImmediateAddressing || addr instanceof LabelAddressing || isOffset(addr)) {
+        def = ((LDR) ins).getRegister();
+      }
+    }
+    return def == null || def.equals(SP) || def.equals(PC) || def.equals(LR) ? null : def;
+  }
+
+  /* the only register written by an unconditional instruction that does not read it, null otherwise */
+  private static Register singleDefinition(Instruction ins) {
+    if (isConditional(ins) || ins instanceof SMull || ins.getDefs().size() != 1
+        || ins.getUses().contains(ins.getDefs().get(0))) {
+      return null;
+    }
+    Register def = ins.getDefs().get(0);
+    return def.equals(SP) || def.equals(PC) || def.equals(LR) ? null : def;
+  }
+
+  /* a copy of the instruction writing to dst instead, null if the instruction cannot be copied */
+  private static Instruction withDestination(Instruction ins, Register dst) {
+    if (dst.equals(SP) || dst.equals(PC)) {
+      return null;
+    }
+    if (ins instanceof Mov) {
+      return new Mov(dst, ((Mov) ins).getOperand2(), ((Mov) ins).getType());
+    }
+    if (ins instanceof Mvn) {
+      return new Mvn(dst, ((Mvn) ins).getOperand2());
+    }
+    if (ins instanceof LDR) {
+      return new LDR(dst, ((LDR) ins).getAddr(), ((LDR) ins).getMode());
+    }
+    if (!(ins instanceof ArithmeticLogic)) {
+      return null;
+    }
+    ArithmeticLogic op = (ArithmeticLogic) ins;
+    if (ins instanceof Add) {
+      return new Add(dst, op.getRn(), op.getOperand2(), ((Add) ins).getCond());
+    } else if (ins instanceof Sub) {
+      return new Sub(dst, op.getRn(), op.getOperand2(), ((Sub) ins).getCond());
+    } else if (ins instanceof Rsb) {
+      return new Rsb(dst, op.getRn(), op.getOperand2());
+    } else if (ins instanceof And) {
+      return new And(dst, op.getRn(), op.getOperand2());
+    } else if (ins instanceof Or) {
+      return new Or(dst, op.getRn(), op.getOperand2());
+    } else if (ins instanceof Xor) {
+      return new Xor(dst, op.getRn(), op.getOperand2());
+    }
+    return null;
+  }
+
+  /* whether reg is written before being read again after code[index], looking no further than the
+   * end of the basic block, and considering reg read when it is not known */
+  static boolean isDeadAfter(List<Instruction> code, int index, Register reg) {
+    for (int j = index + 1; j < code.size(); j++) {
+      Instruction ins = code.get(j);
+      if (ins instanceof Label || ins instanceof LTORG) {
+        return false;
+      }
+      if (ins instanceof BL) {
+        if (CALL_REGISTERS.contains(reg)) {
+          return false;
+        }
+        continue;
+      }
+      if (ins instanceof BX) {
+        /* returning, only the result and the registers saved for the caller are read after */
+        return SCRATCH_REGISTERS.contains(reg);
+      }
+      if (ins instanceof B) {
+        return false;
+      }
+      if (ins instanceof Push) {
+        if (((Push) ins).getRegList().contains(reg)) {
+          return false;
+        }
+        continue;
+      }
+      if (ins instanceof Pop) {
+        List<Register> popped = ((Pop) ins).getRegList();
+        if (popped.contains(reg)) {
+          return true;
+        }
+        if (popped.contains(PC)) {
+          return false;
+        }
+        continue;
+      }
+      if (ins.getUses().contains(reg)) {
+        return false;
+      }
+      if (ins.getDefs().contains(reg) && !isConditional(ins)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isConditional(Instruction ins) {
+    return (ins instanceof Mov && ((Mov) ins).isConditional())
+        || (ins instanceof LDR && ((LDR) ins).isConditional());
+  }
+
+  /* bytes released from the stack by ADD sp, sp, #n (or reserved, negative, by SUB), null for anything else */
+  private static Integer stackAdjustment(Instruction ins) {
+    if (!(ins instanceof Add || ins instanceof Sub) || ins.setsFlags()) {
+      return null;
+    }
+    ArithmeticLogic op = (ArithmeticLogic) ins;
+    Operand2 op2 = op.getOperand2();
+    if (!SP.equals(op.getRd()) || !SP.equals(op.getRn()) || op2.getRegister() != null
+        || op2.getImmed() == null) {
+      return null;
+    }
+    return ins instanceof Add ? op2.getImmed().getVal() : -op2.getImmed().getVal();
+  }
+
+  /* null for an unconditional branch */
+  private static Cond inverse(Cond cond) {
+    return cond == Cond.NULL || cond == Cond.AL ? null : cond.inverse();
+  }
+}
@@ -93,6 +93,9 @@ public class Utils {
   /* word, byte size in unit: byte */
   public static final int WORD_SIZE = 4, BYTE_SIZE = 1, POINTER_SIZE = WORD_SIZE;
 
+  /* the first parameters of a function are passed in r0 - r3, the rest on the stack */
+  public static final int MAX_REGISTER_PARAMS = 4;
+
   public static final int TRUE = 1;
   public static final int FALSE = 0;
 
@@ -177,7 +180,9 @@ public class Utils {
   public enum RoutineInstruction {
     READ_INT, READ_CHAR, PRINT_INT, PRINT_BOOL, PRINT_CHAR, PRINT_STRING, PRINT_REFERENCE, PRINT_LN,
     CHECK_DIVIDE_BY_ZERO, THROW_RUNTIME_ERROR, CHECK_ARRAY_BOUND, FREE_ARRAY, FREE_PAIR, CHECK_NULL_POINTER,
-    THROW_OVERFLOW_ERROR;
+    THROW_OVERFLOW_ERROR, THROW_NULL_REFERENCE_ERROR, THROW_DIVIDE_BY_ZERO_ERROR,
+    THROW_NEGATIVE_INDEX_ERROR, THROW_INDEX_TOO_LARGE_ERROR, ALLOC_PAIR, ALLOC_ARRAY, ARENA_BUMP,
+    ARENA_FREE_PAIR, ARENA_FREE_ARRAY;
 
     @Override
     public String toString() {
@@ -1,46 +1,68 @@
 package utils.backend;
 
 import static backend.instructions.LDR.LdrMode.LDR;
-import static backend.instructions.LDR.LdrMode.LDRCS;
 import static backend.instructions.LDR.LdrMode.LDREQ;
-import static backend.instructions.LDR.LdrMode.LDRLT;
 import static backend.instructions.LDR.LdrMode.LDRNE;
 import static backend.instructions.addressing.AddressingMode2.AddrMode2.OFFSET;
+import static backend.instructions.operand.Operand2.Operand2Operator.LSL;
+import static backend.instructions.operand.Operand2.Operand2Operator.LSR;
+import static utils.Utils.RoutineInstruction.ALLOC_ARRAY;
+import static utils.Utils.RoutineInstruction.ALLOC_PAIR;
+import static utils.Utils.RoutineInstruction.ARENA_BUMP;
+import static utils.Utils.RoutineInstruction.ARENA_FREE_ARRAY;
+import static utils.Utils.RoutineInstruction.ARENA_FREE_PAIR;
 import static utils.Utils.RoutineInstruction.CHECK_ARRAY_BOUND;
 import static utils.Utils.RoutineInstruction.CHECK_DIVIDE_BY_ZERO;
 import static utils.Utils.RoutineInstruction.CHECK_NULL_POINTER;
-import static utils.Utils.RoutineInstruction.FREE_PAIR;
 import static utils.Utils.RoutineInstruction.PRINT_BOOL;
 import static utils.Utils.RoutineInstruction.PRINT_INT;
 import static utils.Utils.RoutineInstruction.PRINT_LN;
 import static utils.Utils.RoutineInstruction.PRINT_REFERENCE;
 import static utils.Utils.RoutineInstruction.PRINT_STRING;
 import static utils.Utils.RoutineInstruction.READ_INT;
+import static utils.Utils.RoutineInstruction.THROW_DIVIDE_BY_ZERO_ERROR;
+import static utils.Utils.RoutineInstruction.THROW_INDEX_TOO_LARGE_ERROR;
+import static utils.Utils.RoutineInstruction.THROW_NEGATIVE_INDEX_ERROR;
+import static utils.Utils.RoutineInstruction.THROW_NULL_REFERENCE_ERROR;
+import static utils.Utils.RoutineInstruction.THROW_OVERFLOW_ERROR;
 import static utils.Utils.RoutineInstruction.THROW_RUNTIME_ERROR;
 import static utils.Utils.SystemCallInstruction.EXIT;
 import static utils.Utils.SystemCallInstruction.FFLUSH;
 import static utils.Utils.SystemCallInstruction.FREE;
+import static utils.Utils.SystemCallInstruction.MALLOC;
 import static utils.Utils.SystemCallInstruction.PRINTF;
 import static utils.Utils.SystemCallInstruction.PUTS;
 import static utils.Utils.SystemCallInstruction.SCANF;
+import static utils.backend.Cond.CS;
 import static utils.backend.Cond.EQ;
+import static utils.backend.Cond.GT;
+import static utils.backend.Cond.HI;
 import static utils.backend.register.ARMConcreteRegister.LR;
 import static utils.backend.register.ARMConcreteRegister.PC;
-import static utils.backend.register.ARMConcreteRegister.SP;
 import static utils.backend.register.ARMConcreteRegister.r0;
 import static utils.backend.register.ARMConcreteRegister.r1;
+import static utils.backend.register.ARMConcreteRegister.r12;
 import static utils.backend.register.ARMConcreteRegister.r2;
+import static utils.backend.register.ARMConcreteRegister.r3;
+import static utils.backend.register.ARMConcreteRegister.r4;
+import static utils.backend.register.ARMConcreteRegister.r5;
+import static utils.backend.register.ARMConcreteRegister.r7;
 
 import backend.instructions.B;
 import backend.instructions.BL;
+import backend.instructions.BX;
 import backend.instructions.Cmp;
 import backend.instructions.Instruction;
 import backend.instructions.LDR;
 import backend.instructions.Label;
 import backend.instructions.Mov;
+import backend.instructions.STR;
+import backend.instructions.SVC;
 import backend.instructions.addressing.AddressingMode2;
+import backend.instructions.addressing.ImmediateAddressing;
 import backend.instructions.addressing.LabelAddressing;
 import backend.instructions.arithmeticLogic.Add;
+import backend.instructions.arithmeticLogic.Sub;
 import backend.instructions.memory.Pop;
 import backend.instructions.memory.Push;
 import backend.instructions.operand.Operand2;
@@ -66,6 +88,31 @@ public class ARMInstructionRoutines {
   private static final String PRINT_ARRAY_INDEX_TOO_LARGE_MSG = "\"ArrayIndexOutOfBoundsError: index too large\\n\\0\"";
   private static final String PRINT_BOOL_TRUE = "\"true\\0\"";
   private static final String PRINT_BOOL_FALSE = "\"false\\0\"";
+  /* the arena allocator keeps its state in .data, in the 40 zero bytes after the length word:
+   * the next free byte of the current chunk, the end of the chunk, and the free lists of blocks of
+   * 8, 16, .., 64 bytes, the list of blocks of size n at ARENA_LISTS - 4 + n / 2 */
+  private static final Label ARENA_STATE = new Label("p_arena_state");
+  private static final String ARENA_STATE_ZEROS = "\"" + "\\0".repeat(40) + "\"";
+  private static final int ARENA_NEXT = 4;
+  private static final int ARENA_END = 8;
+  private static final int ARENA_LISTS = 12;
+  /* larger array blocks come from malloc, and go back to free */
+  private static final int ARENA_MAX_BLOCK = 64;
+  /* bytes mapped at once for the arena */
+  private static final int ARENA_CHUNK_SIZE = 1 << 20;
+  /* mmap2(NULL, size, PROT_READ | PROT_WRITE, MAP_PRIVATE | MAP_ANONYMOUS, -1, 0) */
+  private static final int MMAP2_SYSCALL = 192;
+  private static final int PROT_READ_WRITE = 3;
+  private static final int MAP_PRIVATE_ANONYMOUS = 0x22;
+  /* a system call returns -errno on failure, errno being at most 4095 */
+  private static final int MAX_ERRNO = 4095;
+  /* the message each error stub passes to p_throw_runtime_error */
+  private static final Map<RoutineInstruction, String> ERROR_MESSAGES = Map.of(
+      THROW_OVERFLOW_ERROR, PRINT_OVERFLOW_MSG,
+      THROW_NULL_REFERENCE_ERROR, PRINT_NULL_REF_MSG,
+      THROW_DIVIDE_BY_ZERO_ERROR, PRINT_DIV_ZERO_MSG,
+      THROW_NEGATIVE_INDEX_ERROR, PRINT_ARRAY_NEG_INDEX_MSG,
+      THROW_INDEX_TOO_LARGE_ERROR, PRINT_ARRAY_INDEX_TOO_LARGE_MSG);
   public static RoutineFunction addRead = (routine, labelGenerator, dataSegment) -> {
     /* add the helper function label */
     Label readLabel = new Label(routine.toString());
@@ -77,14 +124,18 @@ public class ARMInstructionRoutines {
 
     return List.of(
         readLabel,
-        new Push(Collections.singletonList(LR)),
+        new Push(List.of(r4, LR)),
+        new Mov(r4, new Operand2(r0)),
+        /* the buffered output has to appear before the input is waited for */
+        new Mov(r0, new Operand2(0)),
+        new BL(FFLUSH.toString()),
         /* fst arg of read is the snd arg of scanf (storing address) */
-        new Mov(r1, new Operand2(r0)),
+        new Mov(r1, new Operand2(r4)),
         /* fst arg of scanf is the format */
         new LDR(r0, new LabelAddressing(msgLabel)),
         /* skip the first 4 byte of the msg which is the length of it */
         new Add(r0, r0, new Operand2(4)), new BL(SCANF.toString()),
-        new Pop(Collections.singletonList(PC)));
+        new Pop(List.of(r4, PC)));
   };
   public static RoutineFunction addPrint = (routine, labelGenerator, dataSegment) -> {
     Label msgLabel = labelGenerator.getLabel();
@@ -119,9 +170,6 @@ public class ARMInstructionRoutines {
         /* skip the first 4 byte of the msg which is the length of it */
         new Add(r0, r0, new Operand2(4)),
         new BL(PUTS.toString()),
-        /* refresh the r0 and buffer */
-        new Mov(r0, new Operand2(0)),
-        new BL(FFLUSH.toString()),
         new Pop(Collections.singletonList(PC))
     );
   };
@@ -149,91 +197,199 @@ public class ARMInstructionRoutines {
         new B(EQ, THROW_RUNTIME_ERROR.toString())
     ));
 
-    if (routine.equals(FREE_PAIR)) {
-      List<Instruction> free_pair_instructions = List.of(
-          new Push(Collections.singletonList(r0)),
-          new LDR(r0, new AddressingMode2(OFFSET, r0)),
-          new BL(FREE.toString()),
-          new LDR(r0, new AddressingMode2(OFFSET, SP)),
-          new LDR(r0, new AddressingMode2(OFFSET, r0, 4)),
-          new BL(FREE.toString()),
-          new Pop(Collections.singletonList(r0))
-      );
-      instructions.addAll(free_pair_instructions);
-    }
+    /* a pair holds its children, so like an array it is a single block */
     instructions.add(new BL(FREE.toString()));
     instructions.add(new Pop(Collections.singletonList(PC)));
 
     return instructions;
   };
-  public static RoutineFunction addCheckNullPointer = (routine, labelGenerator, dataSegment) -> {
-    Label msgLabel = labelGenerator.getLabel();
-    dataSegment.put(msgLabel, PRINT_NULL_REF_MSG);
-
-    List<Instruction> instructions = new ArrayList<>(List.of(
-        /* add the helper function label */
-        new Label(CHECK_NULL_POINTER.toString()),
-        new Push(Collections.singletonList(LR)),
-        new Cmp(r0, new Operand2(0)),
-        new LDR(r0, new LabelAddressing(msgLabel), LDREQ),
-        new BL(EQ, THROW_RUNTIME_ERROR.toString()),
-        new Pop(Collections.singletonList(PC))
-    ));
+  /* the checks only compare, the failing case branches to the error stub, which never returns,
+   * so lr needs no saving. Code compiled for speed does the same compare inline */
+  public static RoutineFunction addCheckNullPointer = (routine, labelGenerator, dataSegment) ->
+      List.of(
+          /* add the helper function label */
+          new Label(CHECK_NULL_POINTER.toString()),
+          new Cmp(r0, new Operand2(0)),
+          new BL(EQ, THROW_NULL_REFERENCE_ERROR.toString()),
+          new BX(LR)
+      );
+  public static RoutineFunction addCheckDivByZero = (routine, labelGenerator, dataSegment) ->
+      List.of(
+          /* add the helper function label */
+          new Label(CHECK_DIVIDE_BY_ZERO.toString()),
+          new Cmp(r1, new Operand2(0)),
+          new BL(EQ, THROW_DIVIDE_BY_ZERO_ERROR.toString()),
+          new BX(LR)
+      );
+  public static RoutineFunction addCheckArrayBound = (routine, labelGenerator, dataSegment) ->
+      List.of(
+          new Label(CHECK_ARRAY_BOUND.toString()),
+          new Cmp(r0, new Operand2(0)),
+          new BL(Cond.LT, THROW_NEGATIVE_INDEX_ERROR.toString()),
+          new LDR(r1, new AddressingMode2(OFFSET, r1)),
+          new Cmp(r0, new Operand2(r1)),
+          new BL(Cond.CS, THROW_INDEX_TOO_LARGE_ERROR.toString()),
+          new BX(LR)
+      );
+  /* the error stubs shared by every failing check of one kind */
+  public static RoutineFunction addThrowError = (routine, labelGenerator, dataSegment) -> {
+    Label msgLabel = addMsg(ERROR_MESSAGES.get(routine), dataSegment, labelGenerator);
 
-    return instructions;
+    return List.of(
+        new Label(routine.toString()),
+        new LDR(r0, new LabelAddressing(msgLabel), LDR),
+        new BL(THROW_RUNTIME_ERROR.toString())
+    );
   };
-  public static RoutineFunction addCheckDivByZero = (routine, labelGenerator, dataSegment) -> {
-    /* overwrite, routine has to be check divide by zero */
-    routine = CHECK_DIVIDE_BY_ZERO;
-
-    Label msgLabel = labelGenerator.getLabel();
-    dataSegment.put(msgLabel, PRINT_DIV_ZERO_MSG);
+  /* pairs come from the free list of 8 byte blocks, or are bumped from the arena */
+  public static RoutineFunction addAllocPair = (routine, labelGenerator, dataSegment) -> {
+    dataSegment.putIfAbsent(ARENA_STATE, ARENA_STATE_ZEROS);
+    Label bump = new Label(ALLOC_PAIR + "_bump");
 
-    List<Instruction> instructions = new ArrayList<>(List.of(
-        /* add the helper function label */
-        new Label(routine.toString()),
+    return List.of(
+        new Label(ALLOC_PAIR.toString()),
+        new LDR(r1, new LabelAddressing(ARENA_STATE)),
+        new LDR(r0, new AddressingMode2(OFFSET, r1, ARENA_LISTS)),
+        new Cmp(r0, new Operand2(0)),
+        new B(EQ, bump.getName()),
+        /* unlink the first free block */
+        new LDR(r2, new AddressingMode2(OFFSET, r0)),
+        new STR(r2, new AddressingMode2(OFFSET, r1, ARENA_LISTS)),
+        new BX(LR),
+        bump,
         new Push(Collections.singletonList(LR)),
-        new Cmp(r1, new Operand2(0)),
-        new LDR(r0, new LabelAddressing(msgLabel), LDREQ),
-        new BL(EQ, THROW_RUNTIME_ERROR.toString()),
+        new Mov(r0, new Operand2(2 * Utils.WORD_SIZE)),
+        new BL(ARENA_BUMP.toString()),
         new Pop(Collections.singletonList(PC))
-    ));
+    );
+  };
+  /* an array of r0 bytes is preceded by the size of its block, a multiple of 8 including that
+   * word, so that freeing it knows its free list */
+  public static RoutineFunction addAllocArray = (routine, labelGenerator, dataSegment) -> {
+    dataSegment.putIfAbsent(ARENA_STATE, ARENA_STATE_ZEROS);
+    Label bump = new Label(ALLOC_ARRAY + "_bump");
+    Label large = new Label(ALLOC_ARRAY + "_large");
 
-    return instructions;
+    return List.of(
+        new Label(ALLOC_ARRAY.toString()),
+        new Add(r0, r0, new Operand2(Utils.WORD_SIZE + 7)),
+        new Mov(r0, new Operand2(r0, LSR, 3)),
+        new Mov(r0, new Operand2(r0, LSL, 3)),
+        new Cmp(r0, new Operand2(ARENA_MAX_BLOCK)),
+        new B(GT, large.getName()),
+        /* r1 + ARENA_LISTS - 4 is the free list of blocks of size r0 */
+        new LDR(r1, new LabelAddressing(ARENA_STATE)),
+        new Add(r1, r1, new Operand2(r0, LSR, 1)),
+        new LDR(r2, new AddressingMode2(OFFSET, r1, ARENA_LISTS - 4)),
+        new Cmp(r2, new Operand2(0)),
+        new B(EQ, bump.getName()),
+        new LDR(r3, new AddressingMode2(OFFSET, r2)),
+        new STR(r3, new AddressingMode2(OFFSET, r1, ARENA_LISTS - 4)),
+        new STR(r0, new AddressingMode2(OFFSET, r2)),
+        new Add(r0, r2, new Operand2(Utils.WORD_SIZE)),
+        new BX(LR),
+        bump,
+        new Push(List.of(r0, LR)),
+        new BL(ARENA_BUMP.toString()),
+        new Pop(List.of(r1, LR)),
+        new STR(r1, new AddressingMode2(OFFSET, r0)),
+        new Add(r0, r0, new Operand2(Utils.WORD_SIZE)),
+        new BX(LR),
+        large,
+        new Push(List.of(r0, LR)),
+        new BL(MALLOC.toString()),
+        new Pop(List.of(r1, LR)),
+        new STR(r1, new AddressingMode2(OFFSET, r0)),
+        new Add(r0, r0, new Operand2(Utils.WORD_SIZE)),
+        new BX(LR)
+    );
   };
-  public static RoutineFunction addCheckArrayBound = (routine, labelGenerator, dataSegment) -> {
-    /* overwrite, routine has to be check array bound */
-    routine = CHECK_ARRAY_BOUND;
+  /* a block of r0 bytes from the current chunk, a new chunk is mapped when it is full, the end of
+   * the old one is left unused. mmap2 fails with -errno, an address from -4095 up, the block then
+   * comes from malloc and the next one tries mapping a chunk again */
+  public static RoutineFunction addArenaBump = (routine, labelGenerator, dataSegment) -> {
+    Label newChunk = new Label(ARENA_BUMP + "_chunk");
+    Label mapFailed = new Label(ARENA_BUMP + "_map_failed");
 
-    Label negativeIndexLabel = labelGenerator.getLabel();
-    dataSegment.put(negativeIndexLabel, PRINT_ARRAY_NEG_INDEX_MSG);
-    Label indexOutOfBoundLabel = labelGenerator.getLabel();
-    dataSegment.put(indexOutOfBoundLabel, PRINT_ARRAY_INDEX_TOO_LARGE_MSG);
+    return List.of(
+        new Label(ARENA_BUMP.toString()),
+        new LDR(r1, new LabelAddressing(ARENA_STATE)),
+        new LDR(r2, new AddressingMode2(OFFSET, r1, ARENA_NEXT)),
+        new LDR(r3, new AddressingMode2(OFFSET, r1, ARENA_END)),
+        new Add(r12, r2, new Operand2(r0)),
+        new Cmp(r12, new Operand2(r3)),
+        new B(HI, newChunk.getName()),
+        new STR(r12, new AddressingMode2(OFFSET, r1, ARENA_NEXT)),
+        new Mov(r0, new Operand2(r2)),
+        new BX(LR),
+        newChunk,
+        new Push(List.of(r0, r4, r5, r7, LR)),
+        new Mov(r0, new Operand2(0)),
+        new LDR(r1, new ImmediateAddressing(ARENA_CHUNK_SIZE)),
+        new Mov(r2, new Operand2(PROT_READ_WRITE)),
+        new Mov(r3, new Operand2(MAP_PRIVATE_ANONYMOUS)),
+        new LDR(r4, new ImmediateAddressing(-1)),
+        new Mov(r5, new Operand2(0)),
+        new Mov(r7, new Operand2(MMAP2_SYSCALL)),
+        new SVC(),
+        new Pop(List.of(r1, r4, r5, r7, LR)),
+        new LDR(r3, new ImmediateAddressing(-MAX_ERRNO)),
+        new Cmp(r0, new Operand2(r3)),
+        new B(CS, mapFailed.getName()),
+        /* the block starts the new chunk */
+        new LDR(r2, new LabelAddressing(ARENA_STATE)),
+        new Add(r3, r0, new Operand2(r1)),
+        new STR(r3, new AddressingMode2(OFFSET, r2, ARENA_NEXT)),
+        new LDR(r3, new ImmediateAddressing(ARENA_CHUNK_SIZE)),
+        new Add(r3, r0, new Operand2(r3)),
+        new STR(r3, new AddressingMode2(OFFSET, r2, ARENA_END)),
+        new BX(LR),
+        mapFailed,
+        new Push(List.of(LR)),
+        new Mov(r0, new Operand2(r1)),
+        new BL(MALLOC.toString()),
+        new Pop(List.of(PC))
+    );
+  };
+  /* freed blocks are pushed on the free list of their size, the link in their first word */
+  public static RoutineFunction addArenaFreePair = (routine, labelGenerator, dataSegment) -> {
+    dataSegment.putIfAbsent(ARENA_STATE, ARENA_STATE_ZEROS);
 
     return List.of(
-        new Label(routine.toString()),
-        new Push(Collections.singletonList(LR)),
+        new Label(ARENA_FREE_PAIR.toString()),
         new Cmp(r0, new Operand2(0)),
-        new LDR(r0, new LabelAddressing(negativeIndexLabel), LDRLT),
-        new BL(Cond.LT, THROW_RUNTIME_ERROR.toString()),
-        new LDR(r1, new AddressingMode2(OFFSET, r1)),
-        new Cmp(r0, new Operand2(r1)),
-        new LDR(r0, new LabelAddressing(indexOutOfBoundLabel), LDRCS),
-        new BL(Cond.CS, THROW_RUNTIME_ERROR.toString()),
-        new Pop(Collections.singletonList(PC))
+        new BL(EQ, THROW_NULL_REFERENCE_ERROR.toString()),
+        new LDR(r1, new LabelAddressing(ARENA_STATE)),
+        new LDR(r2, new AddressingMode2(OFFSET, r1, ARENA_LISTS)),
+        new STR(r2, new AddressingMode2(OFFSET, r0)),
+        new STR(r0, new AddressingMode2(OFFSET, r1, ARENA_LISTS)),
+        new BX(LR)
     );
   };
-  public static RoutineFunction addThrowOverflowError = (routine, labelGenerator, dataSegment) -> {
-    Label overflowMsgLabel = labelGenerator.getLabel();
-    dataSegment.put(overflowMsgLabel, PRINT_OVERFLOW_MSG);
-
-    List<Instruction> instructions = new ArrayList<>(List.of(
-        new Label(Utils.RoutineInstruction.THROW_OVERFLOW_ERROR.toString()),
-        new LDR(r0, new LabelAddressing(overflowMsgLabel), LDR),
-        new BL(Utils.RoutineInstruction.THROW_RUNTIME_ERROR.toString())
-    ));
+  public static RoutineFunction addArenaFreeArray = (routine, labelGenerator, dataSegment) -> {
+    dataSegment.putIfAbsent(ARENA_STATE, ARENA_STATE_ZEROS);
+    Label large = new Label(ARENA_FREE_ARRAY + "_large");
 
-    return instructions;
+    return List.of(
+        new Label(ARENA_FREE_ARRAY.toString()),
+        new Cmp(r0, new Operand2(0)),
+        new BL(EQ, THROW_NULL_REFERENCE_ERROR.toString()),
+        /* the block starts with its size, in front of the array */
+        new Sub(r0, r0, new Operand2(Utils.WORD_SIZE)),
+        new LDR(r1, new AddressingMode2(OFFSET, r0)),
+        new Cmp(r1, new Operand2(ARENA_MAX_BLOCK)),
+        new B(GT, large.getName()),
+        new LDR(r2, new LabelAddressing(ARENA_STATE)),
+        new Add(r2, r2, new Operand2(r1, LSR, 1)),
+        new LDR(r3, new AddressingMode2(OFFSET, r2, ARENA_LISTS - 4)),
+        new STR(r3, new AddressingMode2(OFFSET, r0)),
+        new STR(r0, new AddressingMode2(OFFSET, r2, ARENA_LISTS - 4)),
+        new BX(LR),
+        large,
+        new Push(Collections.singletonList(LR)),
+        new BL(FREE.toString()),
+        new Pop(Collections.singletonList(PC))
+    );
   };
   public static final Map<RoutineInstruction, RoutineFunction> routineFunctionMap = Map.ofEntries(
       new AbstractMap.SimpleEntry<>(RoutineInstruction.READ_INT, addRead),
@@ -250,7 +406,16 @@ public class ARMInstructionRoutines {
       new AbstractMap.SimpleEntry<>(RoutineInstruction.FREE_ARRAY, addFree),
       new AbstractMap.SimpleEntry<>(RoutineInstruction.FREE_PAIR, addFree),
       new AbstractMap.SimpleEntry<>(RoutineInstruction.CHECK_NULL_POINTER, addCheckNullPointer),
-      new AbstractMap.SimpleEntry<>(RoutineInstruction.THROW_OVERFLOW_ERROR, addThrowOverflowError)
+      new AbstractMap.SimpleEntry<>(RoutineInstruction.THROW_OVERFLOW_ERROR, addThrowError),
+      new AbstractMap.SimpleEntry<>(RoutineInstruction.THROW_NULL_REFERENCE_ERROR, addThrowError),
+      new AbstractMap.SimpleEntry<>(RoutineInstruction.THROW_DIVIDE_BY_ZERO_ERROR, addThrowError),
+      new AbstractMap.SimpleEntry<>(RoutineInstruction.THROW_NEGATIVE_INDEX_ERROR, addThrowError),
+      new AbstractMap.SimpleEntry<>(RoutineInstruction.THROW_INDEX_TOO_LARGE_ERROR, addThrowError),
+      new AbstractMap.SimpleEntry<>(RoutineInstruction.ALLOC_PAIR, addAllocPair),
+      new AbstractMap.SimpleEntry<>(RoutineInstruction.ALLOC_ARRAY, addAllocArray),
+      new AbstractMap.SimpleEntry<>(RoutineInstruction.ARENA_BUMP, addArenaBump),
+      new AbstractMap.SimpleEntry<>(RoutineInstruction.ARENA_FREE_PAIR, addArenaFreePair),
+      new AbstractMap.SimpleEntry<>(RoutineInstruction.ARENA_FREE_ARRAY, addArenaFreeArray)
   );
 
   /* adding a private constructor to override the default public constructor in order to
@@ -324,14 +489,13 @@ public class ARMInstructionRoutines {
     return instructions;
   }
 
+  /* the output is left in the stdout buffer of the C library, written when the buffer is full,
+   * before a read and by exit, which also ends every runtime error */
   private static List<Instruction> addCommonPrint() {
     return List.of(
         /* skip the first 4 byte of the msg which is the length of it */
         new Add(r0, r0, new Operand2(4)),
         new BL(PRINTF.toString()),
-        /* refresh the r0 and buffer */
-        new Mov(r0, new Operand2(0)),
-        new BL(FFLUSH.toString()),
         new Pop(Collections.singletonList(PC))
     );
   }
@@ -1,13 +1,71 @@
 package utils.backend;
 
+import frontend.node.expr.BinopNode.Binop;
+import java.util.Map;
+
 public enum Cond {
   NULL,
   EQ,
   NE,
-  LT,
+  CS,
+  CC,
+  MI,
+  PL,
   VS,
-  S,
-  CS;
+  VC,
+  HI,
+  LS,
+  GE,
+  LT,
+  GT,
+  LE,
+  AL,
+  S;
+
+  /* the condition holding after CMP <lhs>, <rhs> when the comparison is true */
+  public static final Map<Binop, Cond> binopCondMap = Map.of(
+      Binop.GREATER, GT,
+      Binop.GREATER_EQUAL, GE,
+      Binop.LESS, LT,
+      Binop.LESS_EQUAL, LE,
+      Binop.EQUAL, EQ,
+      Binop.INEQUAL, NE);
+
+  /* the condition holding exactly when this one does not, for the conditions testing the flags */
+  public Cond inverse() {
+    switch (this) {
+      case EQ:
+        return NE;
+      case NE:
+        return EQ;
+      case CS:
+        return CC;
+      case CC:
+        return CS;
+      case MI:
+        return PL;
+      case PL:
+        return MI;
+      case VS:
+        return VC;
+      case VC:
+        return VS;
+      case HI:
+        return LS;
+      case LS:
+        return HI;
+      case GE:
+        return LT;
+      case LT:
+        return GE;
+      case GT:
+        return LE;
+      case LE:
+        return GT;
+      default:
+        throw new IllegalArgumentException("condition " + name() + " has no inverse");
+    }
+  }
 
   @Override
   public String toString() {
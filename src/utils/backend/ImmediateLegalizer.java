@@ -0,0 +1,130 @@
+package utils.backend;
+
+import static utils.backend.register.ARMConcreteRegister.SP;
+
+import backend.instructions.Instruction;
+import backend.instructions.LDR;
+import backend.instructions.LDR.LdrMode;
+import backend.instructions.Mov;
+import backend.instructions.Mvn;
+import backend.instructions.addressing.ImmediateAddressing;
+import backend.instructions.arithmeticLogic.Add;
+import backend.instructions.arithmeticLogic.ArithmeticLogic;
+import backend.instructions.arithmeticLogic.Or;
+import backend.instructions.arithmeticLogic.Sub;
+import backend.instructions.arithmeticLogic.Xor;
+import backend.instructions.operand.Immediate;
+import backend.instructions.operand.Operand2;
+import java.util.ArrayList;
+import java.util.List;
+import utils.backend.register.Register;
+
+/* an ARM data processing immediate is an 8 bit value rotated right by an even number of bits.
+ * Constants are built the cheapest way they can be: a MOV or MVN of one immediate, a MOV or MVN
+ * followed by one ORR or EOR, and only then a load from the literal pool. Additions of a constant
+ * that does not encode are split into additions of parts that do */
+public class ImmediateLegalizer {
+
+  /* adding a private constructor to override the default public constructor in order to
+     indicate ImmediateLegalizer class cannot be instantiated */
+  private ImmediateLegalizer() {
+    throw new IllegalStateException("Utility Class cannot be instantiated!");
+  }
+
+  public static boolean isEncodable(int val) {
+    for (int rotation = 0; rotation < 32; rotation += 2) {
+      if ((Integer.rotateLeft(val, rotation) & ~0xFF) == 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /* encodable values with no bit in common whose sum is val, the highest bits first */
+  public static List<Integer> split(int val) {
+    List<Integer> parts = new ArrayList<>();
+    while (val != 0) {
+      int high = 31 - Integer.numberOfLeadingZeros(val);
+      int low = Math.max(0, (high - 6) & ~1);
+      int part = val & (0xFF << low);
+      parts.add(part);
+      val &= ~part;
+    }
+    return parts;
+  }
+
+  /* dst = val */
+  public static List<Instruction> materialize(Register dst, int val) {
+    if (isEncodable(val)) {
+      return List.of(new Mov(dst, new Operand2(val)));
+    }
+    if (isEncodable(~val)) {
+      return List.of(new Mvn(dst, new Operand2(~val)));
+    }
+    List<Integer> parts = split(val);
+    if (parts.size() == 2) {
+      return List.of(new Mov(dst, new Operand2(parts.get(0))),
+          new Or(dst, dst, new Operand2(parts.get(1))));
+    }
+    /* the complement of parts of ~val leaves their bits clear, flipped back by the EOR */
+    parts = split(~val);
+    if (parts.size() == 2) {
+      return List.of(new Mvn(dst, new Operand2(parts.get(0))),
+          new Xor(dst, dst, new Operand2(parts.get(1))));
+    }
+    return List.of(new LDR(dst, new ImmediateAddressing(val)));
+  }
+
+  /* rd = rn + val, without setting the flags */
+  public static List<Instruction> add(Register rd, Register rn, int val) {
+    List<Instruction> list = new ArrayList<>();
+    Register src = rn;
+    for (int part : split(Math.abs(val))) {
+      list.add(val > 0 ? new Add(rd, src, new Operand2(part))
+          : new Sub(rd, src, new Operand2(part)));
+      src = rd;
+    }
+    if (list.isEmpty() && !rd.equals(rn)) {
+      list.add(new Mov(rd, new Operand2(rn)));
+    }
+    return list;
+  }
+
+  /* reserve (or release) bytes of stack */
+  public static List<Instruction> changeStack(int bytes, boolean isReserve) {
+    return add(SP, SP, isReserve ? -bytes : bytes);
+  }
+
+  /* replace the constants loaded from the literal pool and the immediates that do not encode.
+   * Run last, once the offsets into the stack frame are final */
+  public static List<Instruction> legalize(List<Instruction> instructions) {
+    List<Instruction> res = new ArrayList<>();
+    for (Instruction ins : instructions) {
+      if (ins instanceof LDR && ((LDR) ins).getMode() == LdrMode.LDR
+          && ((LDR) ins).getAddr() instanceof ImmediateAddressing
+          && !((ImmediateAddressing) ((LDR) ins).getAddr()).getImmed().isChar()) {
+        int val = ((ImmediateAddressing) ((LDR) ins).getAddr()).getImmed().getVal();
+        res.addAll(materialize(((LDR) ins).getRegister(), val));
+      } else if (ins instanceof Mov && !((Mov) ins).isConditional()
+          && !isLegal(((Mov) ins).getOperand2())) {
+        res.addAll(materialize(((Mov) ins).getRd(),
+            ((Mov) ins).getOperand2().getImmed().getVal()));
+      } else if (((ins instanceof Add && ((Add) ins).getCond() == Cond.NULL)
+          || (ins instanceof Sub && ((Sub) ins).getCond() == Cond.NULL))
+          && !isLegal(((ArithmeticLogic) ins).getOperand2())) {
+        ArithmeticLogic op = (ArithmeticLogic) ins;
+        int val = op.getOperand2().getImmed().getVal();
+        res.addAll(add(op.getRd(), op.getRn(), ins instanceof Add ? val : -val));
+      } else {
+        res.add(ins);
+      }
+    }
+    return res;
+  }
+
+  /* a register operand, or an immediate that encodes */
+  private static boolean isLegal(Operand2 op2) {
+    Immediate immed = op2.getImmed();
+    return op2.getRegister() != null || immed == null || isEncodable(immed.getVal());
+  }
+}
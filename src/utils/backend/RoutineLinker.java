@@ -0,0 +1,65 @@
+package utils.backend;
+
+import static utils.Utils.RoutineInstruction.*;
+import static utils.backend.ARMInstructionRoutines.routineFunctionMap;
+
+import backend.instructions.Instruction;
+import backend.instructions.Label;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import utils.Utils.RoutineInstruction;
+
+/* collects the helper routines called by the translated program, each one added only once
+ * together with the routines it calls itself */
+public class RoutineLinker {
+
+  private static final Map<RoutineInstruction, List<RoutineInstruction>> linkedRoutines = Map.ofEntries(
+      Map.entry(THROW_RUNTIME_ERROR, List.of(PRINT_STRING)),
+      Map.entry(FREE_ARRAY, List.of(THROW_RUNTIME_ERROR)),
+      Map.entry(FREE_PAIR, List.of(THROW_RUNTIME_ERROR)),
+      Map.entry(CHECK_NULL_POINTER, List.of(THROW_NULL_REFERENCE_ERROR)),
+      Map.entry(CHECK_DIVIDE_BY_ZERO, List.of(THROW_DIVIDE_BY_ZERO_ERROR)),
+      Map.entry(CHECK_ARRAY_BOUND, List.of(THROW_NEGATIVE_INDEX_ERROR, THROW_INDEX_TOO_LARGE_ERROR)),
+      Map.entry(THROW_OVERFLOW_ERROR, List.of(THROW_RUNTIME_ERROR)),
+      Map.entry(THROW_NULL_REFERENCE_ERROR, List.of(THROW_RUNTIME_ERROR)),
+      Map.entry(THROW_DIVIDE_BY_ZERO_ERROR, List.of(THROW_RUNTIME_ERROR)),
+      Map.entry(THROW_NEGATIVE_INDEX_ERROR, List.of(THROW_RUNTIME_ERROR)),
+      Map.entry(THROW_INDEX_TOO_LARGE_ERROR, List.of(THROW_RUNTIME_ERROR)),
+      Map.entry(ALLOC_PAIR, List.of(ARENA_BUMP)),
+      Map.entry(ALLOC_ARRAY, List.of(ARENA_BUMP)),
+      Map.entry(ARENA_FREE_PAIR, List.of(THROW_NULL_REFERENCE_ERROR)),
+      Map.entry(ARENA_FREE_ARRAY, List.of(THROW_NULL_REFERENCE_ERROR))
+  );
+
+  /* messages of the routines go to the .data section, labelled by msgLabelGenerator */
+  private final LabelGenerator msgLabelGenerator;
+  private final Map<Label, String> dataSegment;
+  private final List<Instruction> routines;
+  private final Set<RoutineInstruction> alreadyExist;
+
+  public RoutineLinker(LabelGenerator msgLabelGenerator, Map<Label, String> dataSegment) {
+    this.msgLabelGenerator = msgLabelGenerator;
+    this.dataSegment = dataSegment;
+    this.routines = new ArrayList<>();
+    this.alreadyExist = new HashSet<>();
+  }
+
+  public void link(RoutineInstruction routine) {
+    if (alreadyExist.contains(routine)) {
+      return;
+    }
+    alreadyExist.add(routine);
+    routines.addAll(routineFunctionMap.get(routine)
+        .routineFunctionAssemble(routine, msgLabelGenerator, dataSegment));
+
+    linkedRoutines.getOrDefault(routine, List.of()).forEach(this::link);
+  }
+
+  /* the instructions of all linked routines, appended after the translated functions */
+  public List<Instruction> getRoutines() {
+    return routines;
+  }
+}
@@ -0,0 +1,75 @@
+package utils.backend.cfg;
+
+import backend.instructions.B;
+import backend.instructions.BL;
+import backend.instructions.Instruction;
+import backend.instructions.LTORG;
+import backend.instructions.Label;
+import java.util.ArrayList;
+import java.util.List;
+
+/* a basic block of the instruction stream: an optional label, then instructions executed in sequence,
+ * control only leaving through the last one */
+public class CodeBlock {
+
+  private final int index;
+  private final List<Instruction> instructions;
+  private final List<CodeBlock> successors;
+  private final List<CodeBlock> predecessors;
+
+  public CodeBlock(int index, List<Instruction> instructions) {
+    this.index = index;
+    this.instructions = instructions;
+    this.successors = new ArrayList<>();
+    this.predecessors = new ArrayList<>();
+  }
+
+  /* position of the block in the instruction stream */
+  public int getIndex() {
+    return index;
+  }
+
+  public List<Instruction> getInstructions() {
+    return instructions;
+  }
+
+  public List<CodeBlock> getSuccessors() {
+    return successors;
+  }
+
+  public List<CodeBlock> getPredecessors() {
+    return predecessors;
+  }
+
+  /* the label starting the block, null if it is only entered by falling through */
+  public Label getLabel() {
+    return !instructions.isEmpty() && instructions.get(0) instanceof Label
+        ? (Label) instructions.get(0) : null;
+  }
+
+  public Instruction getLast() {
+    return instructions.isEmpty() ? null : instructions.get(instructions.size() - 1);
+  }
+
+  /* the branch ending the block, null if it ends in anything else */
+  public B getBranch() {
+    Instruction last = getLast();
+    return last instanceof B && !(last instanceof BL) ? (B) last : null;
+  }
+
+  /* whether the block has nothing but its label */
+  public boolean isEmpty() {
+    return instructions.size() == (getLabel() == null ? 0 : 1);
+  }
+
+  /* a literal pool is data placed in the code, it must stay even though it is never executed */
+  public boolean hasLiteralPool() {
+    return instructions.stream().anyMatch(ins -> ins instanceof LTORG);
+  }
+
+  @Override
+  public String toString() {
+    Label label = getLabel();
+    return label == null ? "block" + index : label.getName();
+  }
+}
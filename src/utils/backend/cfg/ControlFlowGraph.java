@@ -0,0 +1,325 @@
+package utils.backend.cfg;
+
+import static utils.backend.register.ARMConcreteRegister.LR;
+import static utils.backend.register.ARMConcreteRegister.PC;
+
+import backend.instructions.B;
+import backend.instructions.BL;
+import backend.instructions.BX;
+import backend.instructions.Instruction;
+import backend.instructions.Label;
+import backend.instructions.memory.Pop;
+import backend.instructions.memory.Push;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import utils.backend.Cond;
+
+/* basic blocks of a translated program with their control flow edges and dominator tree.
+ * A call (BL) is not an edge: every function, routine and main is a separate entry of the graph.
+ * Blocks, edges and the dominator tree numbering are built in time linear in the number of
+ * instructions; the dominators are found by iterating in reverse postorder (Cooper, Harvey and
+ * Kennedy), which for the structured code of WACC settles after a single pass. They are only
+ * computed by the first dominance query */
+public class ControlFlowGraph {
+
+  private static final String MAIN_LABEL = "main";
+
+  private final List<CodeBlock> blocks;
+  private final Map<String, CodeBlock> labelBlocks;
+  private final List<CodeBlock> entries;
+  private final boolean[] isEntry;
+  private final List<CodeBlock> reversePostorder;
+  /* position of each block in reversePostorder, -1 if it cannot be reached from an entry */
+  private final int[] order;
+  /* immediate dominator of each block, the index of the block itself for an entry, null until the
+   * first dominance query */
+  private int[] idom;
+  /* preorder and postorder numbers in the dominator tree, for constant time dominance queries */
+  private int[] preorder;
+  private int[] postorder;
+
+  public ControlFlowGraph(List<Instruction> instructions) {
+    this.blocks = new ArrayList<>();
+    this.labelBlocks = new HashMap<>();
+    splitBlocks(instructions);
+    this.entries = new ArrayList<>();
+    this.isEntry = new boolean[blocks.size()];
+    addEdges();
+
+    this.reversePostorder = new ArrayList<>();
+    this.order = new int[blocks.size()];
+    computeReversePostorder();
+  }
+
+  /* a block starts at every label, and after every instruction that does not always continue with the next */
+  private void splitBlocks(List<Instruction> instructions) {
+    List<Instruction> current = new ArrayList<>();
+    for (Instruction ins : instructions) {
+      if (ins instanceof Label && !current.isEmpty()) {
+        newBlock(current);
+        current = new ArrayList<>();
+      }
+      current.add(ins);
+      if (endsBlock(ins)) {
+        newBlock(current);
+        current = new ArrayList<>();
+      }
+    }
+    if (!current.isEmpty()) {
+      newBlock(current);
+    }
+  }
+
+  private void newBlock(List<Instruction> instructions) {
+    CodeBlock block = new CodeBlock(blocks.size(), instructions);
+    blocks.add(block);
+    if (block.getLabel() != null) {
+      labelBlocks.put(block.getLabel().getName(), block);
+    }
+  }
+
+  private static boolean endsBlock(Instruction ins) {
+    return (ins instanceof B && !(ins instanceof BL)) || isReturn(ins);
+  }
+
+  private static boolean isReturn(Instruction ins) {
+    return (ins instanceof Pop && ((Pop) ins).getRegList().contains(PC)) || ins instanceof BX;
+  }
+
+  private void addEdges() {
+    Set<CodeBlock> calledBlocks = new LinkedHashSet<>();
+    for (CodeBlock block : blocks) {
+      for (Instruction ins : block.getInstructions()) {
+        if (ins instanceof BL && labelBlocks.containsKey(((BL) ins).getLabel().getName())) {
+          calledBlocks.add(labelBlocks.get(((BL) ins).getLabel().getName()));
+        }
+      }
+    }
+
+    for (int i = 0; i < blocks.size(); i++) {
+      CodeBlock block = blocks.get(i);
+      CodeBlock next = i + 1 < blocks.size() ? blocks.get(i + 1) : null;
+      B branch = block.getBranch();
+      if (branch != null) {
+        CodeBlock target = labelBlocks.get(branch.getLabel().getName());
+        if (target != null) {
+          addEdge(block, target);
+        }
+        if (branch.getCond() != Cond.NULL && next != null) {
+          addEdge(block, next);
+        }
+      } else if (!isReturn(block.getLast()) && next != null && !block.hasLiteralPool()) {
+        addEdge(block, next);
+      }
+
+      if (i == 0 || calledBlocks.contains(block) || isFunctionStart(block)) {
+        entries.add(block);
+        isEntry[i] = true;
+      }
+    }
+  }
+
+  private static void addEdge(CodeBlock from, CodeBlock to) {
+    if (!from.getSuccessors().contains(to)) {
+      from.getSuccessors().add(to);
+      to.getPredecessors().add(from);
+    }
+  }
+
+  /* main, or a label directly followed by the PUSH {lr} of a function frame */
+  private static boolean isFunctionStart(CodeBlock block) {
+    Label label = block.getLabel();
+    if (label == null) {
+      return false;
+    }
+    if (label.getName().equals(MAIN_LABEL)) {
+      return true;
+    }
+    List<Instruction> instructions = block.getInstructions();
+    return instructions.size() > 1 && instructions.get(1) instanceof Push
+        && ((Push) instructions.get(1)).getRegList().contains(LR);
+  }
+
+  /* depth first from every entry without recursion, each frame holding a block and its next successor */
+  private void computeReversePostorder() {
+    Arrays.fill(order, -1);
+    boolean[] visited = new boolean[blocks.size()];
+    List<CodeBlock> post = new ArrayList<>();
+    for (CodeBlock entry : entries) {
+      if (visited[entry.getIndex()]) {
+        continue;
+      }
+      visited[entry.getIndex()] = true;
+      Deque<int[]> stack = new ArrayDeque<>();
+      stack.push(new int[]{entry.getIndex(), 0});
+      while (!stack.isEmpty()) {
+        int[] frame = stack.peek();
+        List<CodeBlock> succs = blocks.get(frame[0]).getSuccessors();
+        if (frame[1] < succs.size()) {
+          CodeBlock succ = succs.get(frame[1]++);
+          if (!visited[succ.getIndex()]) {
+            visited[succ.getIndex()] = true;
+            stack.push(new int[]{succ.getIndex(), 0});
+          }
+        } else {
+          post.add(blocks.get(frame[0]));
+          stack.pop();
+        }
+      }
+    }
+    for (int i = post.size() - 1; i >= 0; i--) {
+      order[post.get(i).getIndex()] = reversePostorder.size();
+      reversePostorder.add(post.get(i));
+    }
+  }
+
+  private void computeDominators() {
+    int n = blocks.size();
+    idom = new int[n];
+    preorder = new int[n];
+    postorder = new int[n];
+    Arrays.fill(idom, -1);
+    for (CodeBlock entry : entries) {
+      idom[entry.getIndex()] = entry.getIndex();
+    }
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (CodeBlock block : reversePostorder) {
+        int b = block.getIndex();
+        if (idom[b] == b) {
+          continue;
+        }
+        int newIdom = -1;
+        for (CodeBlock pred : block.getPredecessors()) {
+          int p = pred.getIndex();
+          if (idom[p] != -1) {
+            newIdom = newIdom == -1 ? p : intersect(p, newIdom);
+          }
+        }
+        if (newIdom != idom[b]) {
+          idom[b] = newIdom;
+          changed = true;
+        }
+      }
+    }
+
+    /* number the dominator tree, so that a dominates b iff b is inside the subtree of a */
+    List<List<Integer>> children = new ArrayList<>();
+    for (int i = 0; i < blocks.size(); i++) {
+      children.add(new ArrayList<>());
+    }
+    for (CodeBlock block : reversePostorder) {
+      int b = block.getIndex();
+      if (idom[b] != b && idom[b] != -1) {
+        children.get(idom[b]).add(b);
+      }
+    }
+    Arrays.fill(preorder, -1);
+    Arrays.fill(postorder, -1);
+    int counter = 0;
+    for (CodeBlock block : reversePostorder) {
+      int root = block.getIndex();
+      if (idom[root] != root) {
+        continue;
+      }
+      Deque<int[]> stack = new ArrayDeque<>();
+      preorder[root] = counter++;
+      stack.push(new int[]{root, 0});
+      while (!stack.isEmpty()) {
+        int[] frame = stack.peek();
+        List<Integer> next = children.get(frame[0]);
+        if (frame[1] < next.size()) {
+          int child = next.get(frame[1]++);
+          preorder[child] = counter++;
+          stack.push(new int[]{child, 0});
+        } else {
+          postorder[frame[0]] = counter++;
+          stack.pop();
+        }
+      }
+    }
+  }
+
+  /* the closest common dominator of two blocks, -1 if they belong to the trees of different entries */
+  private int intersect(int b1, int b2) {
+    while (b1 != b2) {
+      while (order[b1] > order[b2]) {
+        if (idom[b1] == b1) {
+          return -1;
+        }
+        b1 = idom[b1];
+      }
+      while (order[b2] > order[b1]) {
+        if (idom[b2] == b2) {
+          return -1;
+        }
+        b2 = idom[b2];
+      }
+    }
+    return b1;
+  }
+
+  public List<CodeBlock> getBlocks() {
+    return blocks;
+  }
+
+  /* the block starting with the label, null if there is none */
+  public CodeBlock getBlock(String label) {
+    return labelBlocks.get(label);
+  }
+
+  /* the first block, main, and the start of every function or routine */
+  public List<CodeBlock> getEntries() {
+    return Collections.unmodifiableList(entries);
+  }
+
+  public boolean isEntry(CodeBlock block) {
+    return isEntry[block.getIndex()];
+  }
+
+  /* the reachable blocks, every block coming after its dominators */
+  public List<CodeBlock> getReversePostorder() {
+    return reversePostorder;
+  }
+
+  public boolean isReachable(CodeBlock block) {
+    return order[block.getIndex()] != -1;
+  }
+
+  /* the immediate dominator of the block, null for an entry or a block that cannot be reached */
+  public CodeBlock getIdom(CodeBlock block) {
+    if (idom == null) {
+      computeDominators();
+    }
+    int dominator = idom[block.getIndex()];
+    return dominator == -1 || dominator == block.getIndex() ? null : blocks.get(dominator);
+  }
+
+  public boolean dominates(CodeBlock dominator, CodeBlock block) {
+    if (idom == null) {
+      computeDominators();
+    }
+    int a = dominator.getIndex();
+    int b = block.getIndex();
+    return preorder[a] != -1 && preorder[b] != -1
+        && preorder[a] <= preorder[b] && postorder[b] <= postorder[a];
+  }
+
+  /* the instructions of all blocks in order, after any change made to the blocks */
+  public List<Instruction> toInstructions() {
+    List<Instruction> instructions = new ArrayList<>();
+    for (CodeBlock block : blocks) {
+      instructions.addAll(block.getInstructions());
+    }
+    return instructions;
+  }
+}
@@ -29,6 +29,21 @@ public class ARMConcreteRegister extends Register {
     this.label = label;
   }
 
+  public ARMRegisterLabel getLabel() {
+    return label;
+  }
+
+  /* concrete registers are equal by label, as some instructions create their own r0/r1 instances */
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof ARMConcreteRegister && ((ARMConcreteRegister) obj).label == label;
+  }
+
+  @Override
+  public int hashCode() {
+    return label.hashCode();
+  }
+
   @Override
   public String toString() {
     return label.toString().toLowerCase();
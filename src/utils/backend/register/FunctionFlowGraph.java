@@ -0,0 +1,193 @@
+package utils.backend.register;
+
+import static utils.backend.register.ARMConcreteRegister.LR;
+import static utils.backend.register.ARMConcreteRegister.PC;
+import static utils.backend.register.ARMConcreteRegister.SP;
+
+import backend.instructions.B;
+import backend.instructions.BL;
+import backend.instructions.Instruction;
+import backend.instructions.LDR;
+import backend.instructions.Label;
+import backend.instructions.STR;
+import backend.instructions.addressing.Addressing;
+import backend.instructions.addressing.AddressingMode2;
+import backend.instructions.addressing.AddressingMode2.AddrMode2;
+import backend.instructions.arithmeticLogic.Add;
+import backend.instructions.arithmeticLogic.ArithmeticLogic;
+import backend.instructions.arithmeticLogic.Sub;
+import backend.instructions.memory.Pop;
+import backend.instructions.memory.Push;
+import backend.instructions.operand.Operand2;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import utils.backend.Cond;
+
+/* instruction level control flow of one translated function (a label followed by PUSH {lr}),
+ * used by the register allocators for liveness, loop depth and stack depth */
+public class FunctionFlowGraph {
+
+  /* stack depth of instructions that can never be reached */
+  public static final int UNREACHABLE = -1;
+
+  private final List<Instruction> instructions;
+  private final Map<String, Integer> labelIndex;
+  private final List<List<Integer>> successors;
+  /* basic blocks, given by the index of their first instruction, and the block of every instruction */
+  private final List<Integer> blockStarts;
+  private final int[] blockOf;
+
+  public FunctionFlowGraph(List<Instruction> instructions) {
+    this.instructions = instructions;
+    this.labelIndex = new HashMap<>();
+    this.successors = new ArrayList<>();
+
+    for (int i = 0; i < instructions.size(); i++) {
+      if (instructions.get(i) instanceof Label) {
+        labelIndex.put(((Label) instructions.get(i)).getName(), i);
+      }
+    }
+
+    for (int i = 0; i < instructions.size(); i++) {
+      Instruction ins = instructions.get(i);
+      List<Integer> succ = new ArrayList<>();
+      boolean fallThrough = true;
+      if (ins instanceof B && !(ins instanceof BL)) {
+        Integer target = labelIndex.get(((B) ins).getLabel().getName());
+        if (target != null) {
+          succ.add(target);
+        }
+        fallThrough = ((B) ins).getCond() != Cond.NULL;
+      } else if (ins instanceof Pop) {
+        fallThrough = !((Pop) ins).getRegList().contains(PC);
+      }
+      if (fallThrough && i + 1 < instructions.size()) {
+        succ.add(i + 1);
+      }
+      successors.add(succ);
+    }
+
+    /* a block starts at a label, and after an instruction that does not fall through to the next one */
+    this.blockStarts = new ArrayList<>();
+    this.blockOf = new int[instructions.size()];
+    for (int i = 0; i < instructions.size(); i++) {
+      boolean isLeader = i == 0 || instructions.get(i) instanceof Label
+          || !successors.get(i - 1).equals(List.of(i));
+      if (isLeader) {
+        blockStarts.add(i);
+      }
+      blockOf[i] = blockStarts.size() - 1;
+    }
+  }
+
+  public List<Instruction> getInstructions() {
+    return instructions;
+  }
+
+  public List<Integer> getSuccessors(int index) {
+    return successors.get(index);
+  }
+
+  public int size() {
+    return instructions.size();
+  }
+
+  public int getBlockCount() {
+    return blockStarts.size();
+  }
+
+  public int getBlockStart(int block) {
+    return blockStarts.get(block);
+  }
+
+  /* index of the last instruction of the block */
+  public int getBlockEnd(int block) {
+    return block + 1 < blockStarts.size() ? blockStarts.get(block + 1) - 1 : instructions.size() - 1;
+  }
+
+  public int getBlockOf(int index) {
+    return blockOf[index];
+  }
+
+  /* index of the PUSH {lr} opening the function frame, -1 if there is none */
+  public int entryPushIndex() {
+    for (int i = 0; i < instructions.size(); i++) {
+      Instruction ins = instructions.get(i);
+      if (ins instanceof Push && ((Push) ins).getRegList().contains(LR)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /* number of enclosing loops of every instruction, a loop being the range of a backward branch */
+  public int[] loopDepths() {
+    int[] depth = new int[instructions.size()];
+    for (int i = 0; i < instructions.size(); i++) {
+      for (int target : successors.get(i)) {
+        if (target <= i && target != i + 1) {
+          for (int k = target; k <= i; k++) {
+            depth[k]++;
+          }
+        }
+      }
+    }
+    return depth;
+  }
+
+  /* bytes pushed on the stack since the PUSH {lr} of the function, before executing each instruction */
+  public int[] stackDepths() {
+    int[] depth = new int[instructions.size()];
+    Arrays.fill(depth, UNREACHABLE);
+    int start = entryPushIndex() + 1;
+    if (start >= instructions.size()) {
+      return depth;
+    }
+
+    Deque<Integer> worklist = new ArrayDeque<>();
+    depth[start] = 0;
+    worklist.push(start);
+    while (!worklist.isEmpty()) {
+      int i = worklist.pop();
+      int after = depth[i] + stackChange(instructions.get(i));
+      for (int s : successors.get(i)) {
+        if (depth[s] == UNREACHABLE) {
+          depth[s] = after;
+          worklist.push(s);
+        }
+      }
+    }
+    return depth;
+  }
+
+  /* number of bytes the instruction pushes on the stack, negative if it releases stack */
+  public static int stackChange(Instruction ins) {
+    if (ins instanceof Push) {
+      return ((Push) ins).getRegList().size() * 4;
+    }
+    if (ins instanceof Pop) {
+      return -((Pop) ins).getRegList().size() * 4;
+    }
+    if ((ins instanceof Sub || ins instanceof Add)
+        && SP.equals(((ArithmeticLogic) ins).getRd()) && SP.equals(((ArithmeticLogic) ins).getRn())) {
+      Operand2 op2 = ((ArithmeticLogic) ins).getOperand2();
+      int val = op2.getImmed() == null ? 0 : op2.getImmed().getVal();
+      return ins instanceof Sub ? val : -val;
+    }
+    Addressing addr = ins instanceof STR ? ((STR) ins).getAddr()
+        : ins instanceof LDR ? ((LDR) ins).getAddr() : null;
+    if (addr instanceof AddressingMode2) {
+      AddressingMode2 mode2 = (AddressingMode2) addr;
+      if (mode2.getMode() != AddrMode2.OFFSET && SP.equals(mode2.getRn())
+          && mode2.getImmed() != null) {
+        return -mode2.getImmed().getVal();
+      }
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,376 @@
+package utils.backend.register;
+
+import backend.instructions.BL;
+import backend.instructions.Instruction;
+import backend.instructions.Mov;
+import backend.instructions.Mov.MovType;
+import backend.instructions.operand.Operand2.Operand2Operator;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/* Chaitin-Briggs register allocator:
+ * build the interference graph from liveness, coalesce moves conservatively (Briggs test),
+ * simplify and select colours optimistically, then rewrite the spilled registers and start again */
+public class GraphColoringRegisterAllocator implements RegisterAllocator {
+
+  private static final int K = GENERAL_REGISTERS.size();
+  /* spill cost of a reference is multiplied by this for every enclosing loop */
+  private static final double LOOP_WEIGHT = 10;
+
+  /* supplies the temporaries holding spilled values around each of their references */
+  private final PseudoRegisterAllocator pseudoRegisters;
+
+  /* state of one build-colour round */
+  private Map<PseudoRegister, Set<PseudoRegister>> adjacency;
+  private Map<PseudoRegister, Set<ARMConcreteRegister>> forbidden;
+  private Map<PseudoRegister, Double> spillCost;
+  private Map<PseudoRegister, PseudoRegister> alias;
+  private List<Mov> moves;
+  /* temporaries introduced by spilling, spilling them again would not make progress */
+  private Set<PseudoRegister> spillTemps;
+
+  public GraphColoringRegisterAllocator(PseudoRegisterAllocator pseudoRegisters) {
+    this.pseudoRegisters = pseudoRegisters;
+  }
+
+  @Override
+  public List<Instruction> allocate(List<Instruction> function) {
+    List<Instruction> instructions = new ArrayList<>(function);
+    StackFrame frame = new StackFrame();
+    spillTemps = new HashSet<>();
+
+    while (true) {
+      FunctionFlowGraph flow = new FunctionFlowGraph(instructions);
+      build(new LivenessAnalysis(flow));
+      coalesce();
+      Map<PseudoRegister, ARMConcreteRegister> colours = new HashMap<>();
+      Set<PseudoRegister> spilled = select(simplify(), colours);
+      if (spilled.isEmpty()) {
+        return frame.reserve(assign(instructions, colours), new HashSet<>(colours.values()));
+      }
+      instructions = rewrite(flow, spilled, frame);
+    }
+  }
+
+  private void build(LivenessAnalysis liveness) {
+    adjacency = new LinkedHashMap<>();
+    forbidden = new HashMap<>();
+    spillCost = new HashMap<>();
+    alias = new HashMap<>();
+    moves = new ArrayList<>();
+
+    for (PseudoRegister reg : liveness.getRegisters()) {
+      adjacency.put(reg, new LinkedHashSet<>());
+      forbidden.put(reg, new HashSet<>());
+      spillCost.put(reg, 0.0);
+    }
+
+    FunctionFlowGraph flow = liveness.getFlow();
+    List<PseudoRegister> registers = liveness.getRegisters();
+    int[] loopDepth = flow.loopDepths();
+    liveness.forEachLiveOut((i, liveOut) -> {
+      Instruction ins = flow.getInstructions().get(i);
+      List<PseudoRegister> defs = pseudo(ins.getDefs());
+      PseudoRegister moveSrc = null;
+      if (isMove(ins)) {
+        moveSrc = (PseudoRegister) ((Mov) ins).getOperand2().getRegister();
+        moves.add((Mov) ins);
+      }
+
+      /* the source of a move does not interfere with its destination, so they can share a register */
+      for (PseudoRegister def : defs) {
+        for (int r = liveOut.nextSetBit(0); r >= 0; r = liveOut.nextSetBit(r + 1)) {
+          PseudoRegister live = registers.get(r);
+          if (live != def && live != moveSrc) {
+            addEdge(def, live);
+          }
+        }
+        for (PseudoRegister other : defs) {
+          if (other != def) {
+            addEdge(def, other);
+          }
+        }
+      }
+
+      if (ins instanceof BL) {
+        for (int r = liveOut.nextSetBit(0); r >= 0; r = liveOut.nextSetBit(r + 1)) {
+          forbidden.get(registers.get(r)).addAll(CALLER_SAVED_REGISTERS);
+        }
+      }
+
+      double weight = Math.pow(LOOP_WEIGHT, loopDepth[i]);
+      for (PseudoRegister reg : pseudo(ins.getUses())) {
+        spillCost.merge(reg, weight, Double::sum);
+      }
+      for (PseudoRegister reg : defs) {
+        spillCost.merge(reg, weight, Double::sum);
+      }
+    });
+  }
+
+  private void addEdge(PseudoRegister a, PseudoRegister b) {
+    adjacency.get(a).add(b);
+    adjacency.get(b).add(a);
+  }
+
+  private PseudoRegister find(PseudoRegister reg) {
+    while (alias.containsKey(reg)) {
+      reg = alias.get(reg);
+    }
+    return reg;
+  }
+
+  private void coalesce() {
+    for (Mov move : moves) {
+      PseudoRegister a = find((PseudoRegister) move.getRd());
+      PseudoRegister b = find((PseudoRegister) move.getOperand2().getRegister());
+      if (a == b || adjacency.get(a).contains(b)) {
+        continue;
+      }
+      Set<ARMConcreteRegister> forbid = new HashSet<>(forbidden.get(a));
+      forbid.addAll(forbidden.get(b));
+      if (isBriggsSafe(a, b, K - forbid.size())) {
+        merge(a, b);
+      }
+    }
+  }
+
+  /* merging is safe if the merged node has fewer than k neighbours of significant degree */
+  private boolean isBriggsSafe(PseudoRegister a, PseudoRegister b, int k) {
+    Set<PseudoRegister> neighbours = new HashSet<>(adjacency.get(a));
+    neighbours.addAll(adjacency.get(b));
+    int significant = 0;
+    for (PseudoRegister n : neighbours) {
+      if (adjacency.get(n).size() >= K) {
+        significant++;
+      }
+    }
+    return significant < k;
+  }
+
+  private void merge(PseudoRegister a, PseudoRegister b) {
+    alias.put(b, a);
+    for (PseudoRegister n : adjacency.remove(b)) {
+      adjacency.get(n).remove(b);
+      adjacency.get(n).add(a);
+      adjacency.get(a).add(n);
+    }
+    forbidden.get(a).addAll(forbidden.remove(b));
+    spillCost.merge(a, spillCost.remove(b), Double::sum);
+    if (!spillTemps.contains(a) || !spillTemps.contains(b)) {
+      spillTemps.remove(a);
+    }
+  }
+
+  /* remove nodes of low degree first; when none is left, optimistically push the cheapest spill candidate */
+  private Deque<PseudoRegister> simplify() {
+    Map<PseudoRegister, Integer> degree = new HashMap<>();
+    Set<PseudoRegister> remaining = new LinkedHashSet<>(adjacency.keySet());
+    Deque<PseudoRegister> lowDegree = new ArrayDeque<>();
+    for (PseudoRegister reg : remaining) {
+      degree.put(reg, adjacency.get(reg).size());
+      if (isLowDegree(reg, degree)) {
+        lowDegree.add(reg);
+      }
+    }
+
+    Deque<PseudoRegister> stack = new ArrayDeque<>();
+    while (!remaining.isEmpty()) {
+      PseudoRegister node = null;
+      while (!lowDegree.isEmpty() && node == null) {
+        PseudoRegister candidate = lowDegree.poll();
+        if (remaining.contains(candidate)) {
+          node = candidate;
+        }
+      }
+      if (node == null) {
+        node = spillCandidate(remaining, degree);
+      }
+
+      stack.push(node);
+      remaining.remove(node);
+      for (PseudoRegister n : adjacency.get(node)) {
+        if (remaining.contains(n)) {
+          degree.merge(n, -1, Integer::sum);
+          if (isLowDegree(n, degree)) {
+            lowDegree.add(n);
+          }
+        }
+      }
+    }
+    return stack;
+  }
+
+  private boolean isLowDegree(PseudoRegister reg, Map<PseudoRegister, Integer> degree) {
+    return degree.get(reg) < K - forbidden.get(reg).size();
+  }
+
+  private PseudoRegister spillCandidate(Set<PseudoRegister> remaining,
+      Map<PseudoRegister, Integer> degree) {
+    PseudoRegister best = null;
+    double bestPriority = Double.MAX_VALUE;
+    for (PseudoRegister reg : remaining) {
+      double priority = spillTemps.contains(reg)
+          ? Double.MAX_VALUE / 2 : spillCost.get(reg) / (degree.get(reg) + 1);
+      if (best == null || priority < bestPriority) {
+        best = reg;
+        bestPriority = priority;
+      }
+    }
+    return best;
+  }
+
+  /* pop the nodes back, giving each a register unused by its coloured neighbours,
+   * preferring the register of a coloured move partner so that the move disappears */
+  private Set<PseudoRegister> select(Deque<PseudoRegister> stack,
+      Map<PseudoRegister, ARMConcreteRegister> colours) {
+    Map<PseudoRegister, List<PseudoRegister>> partners = new HashMap<>();
+    for (Mov move : moves) {
+      PseudoRegister a = find((PseudoRegister) move.getRd());
+      PseudoRegister b = find((PseudoRegister) move.getOperand2().getRegister());
+      partners.computeIfAbsent(a, k -> new ArrayList<>()).add(b);
+      partners.computeIfAbsent(b, k -> new ArrayList<>()).add(a);
+    }
+
+    Set<PseudoRegister> spilled = new LinkedHashSet<>();
+    while (!stack.isEmpty()) {
+      PseudoRegister node = stack.pop();
+      Set<ARMConcreteRegister> unavailable = new HashSet<>(forbidden.get(node));
+      for (PseudoRegister n : adjacency.get(node)) {
+        if (colours.containsKey(n)) {
+          unavailable.add(colours.get(n));
+        }
+      }
+
+      ARMConcreteRegister colour = null;
+      for (PseudoRegister partner : partners.getOrDefault(node, List.of())) {
+        ARMConcreteRegister preferred = colours.get(partner);
+        if (preferred != null && !unavailable.contains(preferred)) {
+          colour = preferred;
+          break;
+        }
+      }
+      for (ARMConcreteRegister reg : GENERAL_REGISTERS) {
+        if (colour == null && !unavailable.contains(reg)) {
+          colour = reg;
+        }
+      }
+
+      if (colour == null) {
+        spilled.add(node);
+      } else {
+        colours.put(node, colour);
+      }
+    }
+    return spilled;
+  }
+
+  /* load every spilled register into a new temporary before each use, and store it back after each def */
+  private List<Instruction> rewrite(FunctionFlowGraph flow, Set<PseudoRegister> spilled,
+      StackFrame frame) {
+    Map<PseudoRegister, Integer> slots = new HashMap<>();
+    for (PseudoRegister reg : spilled) {
+      slots.put(reg, frame.newSlot());
+    }
+
+    int[] stackDepth = flow.stackDepths();
+    List<Instruction> result = new ArrayList<>();
+    for (int i = 0; i < flow.size(); i++) {
+      Instruction ins = flow.getInstructions().get(i);
+      int depth = Math.max(stackDepth[i], 0);
+
+      Set<PseudoRegister> usedSpills = spilledRoots(ins.getUses(), slots);
+      Set<PseudoRegister> definedSpills = spilledRoots(ins.getDefs(), slots);
+      if (usedSpills.isEmpty() && definedSpills.isEmpty()) {
+        result.add(ins);
+        continue;
+      }
+      /* a move between two registers sharing one slot is a no-op */
+      if (isMove(ins) && find((PseudoRegister) ((Mov) ins).getRd())
+          == find((PseudoRegister) ((Mov) ins).getOperand2().getRegister())) {
+        continue;
+      }
+
+      Map<PseudoRegister, PseudoRegister> temps = new HashMap<>();
+      for (PseudoRegister root : usedSpills) {
+        PseudoRegister temp = newTemp(root, temps);
+        result.add(frame.load(temp, slots.get(root), depth));
+      }
+      ins.replaceRegisters(reg -> {
+        if (reg instanceof PseudoRegister && slots.containsKey(find((PseudoRegister) reg))) {
+          return newTemp(find((PseudoRegister) reg), temps);
+        }
+        return reg;
+      });
+      result.add(ins);
+      for (PseudoRegister root : definedSpills) {
+        result.add(frame.store(newTemp(root, temps), slots.get(root), depth));
+      }
+    }
+    return result;
+  }
+
+  private PseudoRegister newTemp(PseudoRegister root, Map<PseudoRegister, PseudoRegister> temps) {
+    return temps.computeIfAbsent(root, r -> {
+      PseudoRegister temp = pseudoRegisters.create();
+      spillTemps.add(temp);
+      return temp;
+    });
+  }
+
+  private Set<PseudoRegister> spilledRoots(List<Register> regs, Map<PseudoRegister, Integer> slots) {
+    Set<PseudoRegister> roots = new LinkedHashSet<>();
+    for (PseudoRegister reg : pseudo(regs)) {
+      if (slots.containsKey(find(reg))) {
+        roots.add(find(reg));
+      }
+    }
+    return roots;
+  }
+
+  /* replace every pseudo register with its colour, dropping the moves made redundant by coalescing */
+  private List<Instruction> assign(List<Instruction> instructions,
+      Map<PseudoRegister, ARMConcreteRegister> colours) {
+    List<Instruction> result = new ArrayList<>();
+    for (Instruction ins : instructions) {
+      ins.replaceRegisters(
+          reg -> reg instanceof PseudoRegister ? colours.get(find((PseudoRegister) reg)) : reg);
+      if (ins instanceof Mov && ((Mov) ins).getType() == MovType.MOV
+          && ((Mov) ins).getOperand2().getOperator() == Operand2Operator.NONE
+          && ((Mov) ins).getRd().equals(((Mov) ins).getOperand2().getRegister())) {
+        continue;
+      }
+      result.add(ins);
+    }
+    return result;
+  }
+
+  /* an unconditional, unshifted move between two pseudo registers */
+  private static boolean isMove(Instruction ins) {
+    if (!(ins instanceof Mov)) {
+      return false;
+    }
+    Mov mov = (Mov) ins;
+    return mov.getType() == MovType.MOV && mov.getRd() instanceof PseudoRegister
+        && mov.getOperand2().getRegister() instanceof PseudoRegister
+        && mov.getOperand2().getOperator() == Operand2Operator.NONE;
+  }
+
+  private static List<PseudoRegister> pseudo(List<Register> regs) {
+    List<PseudoRegister> list = new ArrayList<>();
+    for (Register reg : regs) {
+      if (reg instanceof PseudoRegister && !list.contains(reg)) {
+        list.add((PseudoRegister) reg);
+      }
+    }
+    return list;
+  }
+}
@@ -0,0 +1,308 @@
+package utils.backend.register;
+
+import backend.instructions.BL;
+import backend.instructions.Instruction;
+import backend.instructions.Mov;
+import backend.instructions.Mov.MovType;
+import backend.instructions.operand.Operand2.Operand2Operator;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+
+/* linear scan register allocator (Poletto and Sarkar) with interval splitting:
+ * every pseudo register gets one live interval over the linear instruction order, intervals are
+ * visited by increasing start, and when no register is free the interval ending last is split at
+ * the current position, keeping its register before the split and living in a stack slot after it */
+public class LinearScanRegisterAllocator implements RegisterAllocator {
+
+  /* supplies the temporaries holding spilled values around each of their references */
+  private final PseudoRegisterAllocator pseudoRegisters;
+  /* temporaries introduced by spilling, they only live across one instruction and are never spilled */
+  private Set<PseudoRegister> spillTemps;
+
+  public LinearScanRegisterAllocator(PseudoRegisterAllocator pseudoRegisters) {
+    this.pseudoRegisters = pseudoRegisters;
+  }
+
+  /* live interval of one pseudo register, instruction i uses registers at 2i and defines them at 2i + 1 */
+  private static class Interval {
+
+    private final PseudoRegister reg;
+    private int start = Integer.MAX_VALUE;
+    private int end = -1;
+    private boolean crossesCall = false;
+    /* source of the move defining this interval first, whose register is preferred */
+    private PseudoRegister hint;
+    private ARMConcreteRegister assigned;
+    /* from this position on the value lives in its stack slot, 0 if spilled everywhere */
+    private int splitAt = Integer.MAX_VALUE;
+
+    private Interval(PseudoRegister reg) {
+      this.reg = reg;
+    }
+
+    private void cover(int pos) {
+      start = Math.min(start, pos);
+      end = Math.max(end, pos);
+    }
+  }
+
+  @Override
+  public List<Instruction> allocate(List<Instruction> function) {
+    List<Instruction> instructions = new ArrayList<>(function);
+    StackFrame frame = new StackFrame();
+    spillTemps = new HashSet<>();
+
+    while (true) {
+      FunctionFlowGraph flow = new FunctionFlowGraph(instructions);
+      LivenessAnalysis liveness = new LivenessAnalysis(flow);
+      Map<PseudoRegister, Interval> intervals = buildIntervals(liveness);
+      List<Interval> spilled = scan(intervals, liveness);
+      if (spilled.isEmpty()) {
+        Set<ARMConcreteRegister> used = new HashSet<>();
+        intervals.values().forEach(interval -> used.add(interval.assigned));
+        return frame.reserve(assign(instructions, intervals), used);
+      }
+      instructions = rewrite(flow, spilled, frame);
+    }
+  }
+
+  private Map<PseudoRegister, Interval> buildIntervals(LivenessAnalysis liveness) {
+    Map<PseudoRegister, Interval> intervals = new LinkedHashMap<>();
+    List<PseudoRegister> registers = liveness.getRegisters();
+    for (PseudoRegister reg : registers) {
+      intervals.put(reg, new Interval(reg));
+    }
+
+    /* an interval is a single range, so covering the boundaries of the blocks it is live across is enough */
+    FunctionFlowGraph flow = liveness.getFlow();
+    for (int b = 0; b < flow.getBlockCount(); b++) {
+      BitSet liveIn = liveness.getBlockLiveIn(b);
+      for (int r = liveIn.nextSetBit(0); r >= 0; r = liveIn.nextSetBit(r + 1)) {
+        intervals.get(registers.get(r)).cover(2 * flow.getBlockStart(b));
+      }
+      BitSet liveOut = liveness.getBlockLiveOut(b);
+      for (int r = liveOut.nextSetBit(0); r >= 0; r = liveOut.nextSetBit(r + 1)) {
+        intervals.get(registers.get(r)).cover(2 * flow.getBlockEnd(b) + 1);
+      }
+    }
+
+    List<Integer> calls = new ArrayList<>();
+    for (int i = 0; i < flow.size(); i++) {
+      Instruction ins = flow.getInstructions().get(i);
+      if (ins instanceof BL) {
+        calls.add(i);
+      }
+      for (Register reg : ins.getUses()) {
+        if (reg instanceof PseudoRegister) {
+          intervals.get(reg).cover(2 * i);
+        }
+      }
+      for (Register reg : ins.getDefs()) {
+        if (reg instanceof PseudoRegister) {
+          Interval interval = intervals.get(reg);
+          if (interval.hint == null && interval.start > 2 * i + 1 && isMove(ins)) {
+            interval.hint = (PseudoRegister) ((Mov) ins).getOperand2().getRegister();
+          }
+          interval.cover(2 * i + 1);
+        }
+      }
+    }
+
+    /* the register of an interval containing a call is overwritten by the call */
+    for (Interval interval : intervals.values()) {
+      int next = Collections.binarySearch(calls, interval.start / 2);
+      next = next >= 0 ? next : -next - 1;
+      interval.crossesCall = next < calls.size() && 2 * calls.get(next) + 1 < interval.end;
+    }
+    return intervals;
+  }
+
+  /* assign registers to all intervals, returning the intervals that were split or spilled */
+  private List<Interval> scan(Map<PseudoRegister, Interval> intervals, LivenessAnalysis liveness) {
+    List<Interval> unhandled = new ArrayList<>(intervals.values());
+    unhandled.sort(Comparator.comparingInt(interval -> interval.start));
+
+    /* active intervals ordered by end, and the registers not held by any of them */
+    PriorityQueue<Interval> active = new PriorityQueue<>(Comparator.comparingInt(i -> i.end));
+    TreeSet<Integer> free = new TreeSet<>();
+    for (int r = 0; r < GENERAL_REGISTERS.size(); r++) {
+      free.add(r);
+    }
+    List<Interval> spilled = new ArrayList<>();
+
+    FunctionFlowGraph flow = liveness.getFlow();
+    List<int[]> backEdges = new ArrayList<>();
+    for (int i = 0; i < flow.size(); i++) {
+      for (int target : flow.getSuccessors(i)) {
+        if (target <= i) {
+          backEdges.add(new int[]{i, target});
+        }
+      }
+    }
+
+    for (Interval current : unhandled) {
+      while (!active.isEmpty() && active.peek().end < current.start) {
+        free.add(GENERAL_REGISTERS.indexOf(active.poll().assigned));
+      }
+
+      ARMConcreteRegister reg = freeRegister(current, free, intervals);
+      if (reg != null) {
+        current.assigned = reg;
+        free.remove(GENERAL_REGISTERS.indexOf(reg));
+        active.add(current);
+        continue;
+      }
+
+      /* no register is free: give up the interval ending last whose register current may use */
+      Interval victim = spillTemps.contains(current.reg) ? null : current;
+      for (Interval candidate : active) {
+        if (!spillTemps.contains(candidate.reg) && isAllowed(current, candidate.assigned)
+            && (victim == null || candidate.end > victim.end)) {
+          victim = candidate;
+        }
+      }
+
+      if (victim == current) {
+        current.splitAt = 0;
+        spilled.add(current);
+      } else {
+        active.remove(victim);
+        current.assigned = victim.assigned;
+        active.add(current);
+        victim.splitAt = canSplit(victim, current.start, liveness, backEdges) ? current.start : 0;
+        spilled.add(victim);
+      }
+    }
+    return spilled;
+  }
+
+  private ARMConcreteRegister freeRegister(Interval current, TreeSet<Integer> free,
+      Map<PseudoRegister, Interval> intervals) {
+    Interval hinted = current.hint == null ? null : intervals.get(current.hint);
+    if (hinted != null && hinted.assigned != null
+        && free.contains(GENERAL_REGISTERS.indexOf(hinted.assigned))
+        && isAllowed(current, hinted.assigned)) {
+      return hinted.assigned;
+    }
+    for (int r : free) {
+      if (isAllowed(current, GENERAL_REGISTERS.get(r))) {
+        return GENERAL_REGISTERS.get(r);
+      }
+    }
+    return null;
+  }
+
+  private static boolean isAllowed(Interval interval, ARMConcreteRegister reg) {
+    return !interval.crossesCall || !CALLER_SAVED_REGISTERS.contains(reg);
+  }
+
+  /* the part before the split keeps the register, so no branch from after the split
+   * may come back to a point before it where the value is still needed */
+  private static boolean canSplit(Interval interval, int pos, LivenessAnalysis liveness,
+      List<int[]> backEdges) {
+    FunctionFlowGraph flow = liveness.getFlow();
+    int index = liveness.getIndex(interval.reg);
+    for (int[] edge : backEdges) {
+      int source = edge[0], target = edge[1];
+      if (2 * source + 1 >= pos && 2 * target < pos && 2 * source <= interval.end
+          && liveness.getBlockLiveIn(flow.getBlockOf(target)).get(index)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /* uses after the split load the value into a new temporary, defs after the split write a new
+   * temporary, and every def stores the value so that the stack slot is up to date after the split */
+  private List<Instruction> rewrite(FunctionFlowGraph flow, List<Interval> spilled, StackFrame frame) {
+    Map<PseudoRegister, Interval> split = new HashMap<>();
+    Map<PseudoRegister, Integer> slots = new HashMap<>();
+    for (Interval interval : spilled) {
+      split.put(interval.reg, interval);
+      slots.put(interval.reg, frame.newSlot());
+    }
+
+    int[] stackDepth = flow.stackDepths();
+    List<Instruction> result = new ArrayList<>();
+    for (int i = 0; i < flow.size(); i++) {
+      Instruction ins = flow.getInstructions().get(i);
+      int depth = Math.max(stackDepth[i], 0);
+      int usePos = 2 * i;
+
+      Map<PseudoRegister, PseudoRegister> temps = new HashMap<>();
+      List<PseudoRegister> stored = new ArrayList<>();
+      Set<Register> regs = new LinkedHashSet<>(ins.getUses());
+      regs.addAll(ins.getDefs());
+      for (Register reg : regs) {
+        Interval interval = split.get(reg);
+        if (interval == null) {
+          continue;
+        }
+        boolean isUsed = ins.getUses().contains(reg);
+        boolean isDefined = ins.getDefs().contains(reg);
+        if ((isUsed && usePos >= interval.splitAt) || (isDefined && usePos + 1 >= interval.splitAt)) {
+          PseudoRegister temp = newTemp();
+          temps.put(interval.reg, temp);
+          if (isUsed) {
+            result.add(frame.load(temp, slots.get(interval.reg), depth));
+          }
+        }
+        if (isDefined) {
+          stored.add(interval.reg);
+        }
+      }
+
+      ins.replaceRegisters(reg -> temps.containsKey(reg) ? temps.get(reg) : reg);
+      result.add(ins);
+      for (PseudoRegister reg : stored) {
+        result.add(frame.store(temps.getOrDefault(reg, reg), slots.get(reg), depth));
+      }
+    }
+    return result;
+  }
+
+  private PseudoRegister newTemp() {
+    PseudoRegister temp = pseudoRegisters.create();
+    spillTemps.add(temp);
+    return temp;
+  }
+
+  /* replace every pseudo register with its register, dropping the moves that became redundant */
+  private List<Instruction> assign(List<Instruction> instructions,
+      Map<PseudoRegister, Interval> intervals) {
+    List<Instruction> result = new ArrayList<>();
+    for (Instruction ins : instructions) {
+      ins.replaceRegisters(
+          reg -> reg instanceof PseudoRegister ? intervals.get(reg).assigned : reg);
+      if (ins instanceof Mov && ((Mov) ins).getType() == MovType.MOV
+          && ((Mov) ins).getOperand2().getOperator() == Operand2Operator.NONE
+          && ((Mov) ins).getRd().equals(((Mov) ins).getOperand2().getRegister())) {
+        continue;
+      }
+      result.add(ins);
+    }
+    return result;
+  }
+
+  /* an unconditional, unshifted move between two pseudo registers */
+  private static boolean isMove(Instruction ins) {
+    if (!(ins instanceof Mov)) {
+      return false;
+    }
+    Mov mov = (Mov) ins;
+    return mov.getType() == MovType.MOV && mov.getRd() instanceof PseudoRegister
+        && mov.getOperand2().getRegister() instanceof PseudoRegister
+        && mov.getOperand2().getOperator() == Operand2Operator.NONE;
+  }
+}
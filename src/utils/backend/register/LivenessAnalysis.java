@@ -0,0 +1,134 @@
+package utils.backend.register;
+
+import backend.instructions.Instruction;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/* backward dataflow analysis computing the pseudo registers live at the boundaries of every basic block,
+ * the sets inside a block are recomputed on demand by walking it backwards */
+public class LivenessAnalysis {
+
+  private final FunctionFlowGraph flow;
+  /* every pseudo register of the function is numbered, so that sets can be BitSets */
+  private final List<PseudoRegister> registers;
+  private final Map<PseudoRegister, Integer> registerIndex;
+  /* indices of the pseudo registers read and written by each instruction */
+  private final List<int[]> uses;
+  private final List<int[]> defs;
+  private final BitSet[] blockLiveIn;
+  private final BitSet[] blockLiveOut;
+
+  public LivenessAnalysis(FunctionFlowGraph flow) {
+    this.flow = flow;
+    this.registers = new ArrayList<>();
+    this.registerIndex = new HashMap<>();
+    this.uses = new ArrayList<>();
+    this.defs = new ArrayList<>();
+    for (Instruction ins : flow.getInstructions()) {
+      uses.add(toIndices(ins.getUses()));
+      defs.add(toIndices(ins.getDefs()));
+    }
+
+    /* registers read before written (gen) and registers written (kill) by each block */
+    int blockCount = flow.getBlockCount();
+    BitSet[] gen = new BitSet[blockCount];
+    BitSet[] kill = new BitSet[blockCount];
+    blockLiveIn = new BitSet[blockCount];
+    blockLiveOut = new BitSet[blockCount];
+    for (int b = 0; b < blockCount; b++) {
+      gen[b] = new BitSet();
+      kill[b] = new BitSet();
+      for (int i = flow.getBlockEnd(b); i >= flow.getBlockStart(b); i--) {
+        for (int r : defs.get(i)) {
+          gen[b].clear(r);
+          kill[b].set(r);
+        }
+        for (int r : uses.get(i)) {
+          gen[b].set(r);
+        }
+      }
+      blockLiveIn[b] = (BitSet) gen[b].clone();
+      blockLiveOut[b] = new BitSet();
+    }
+
+    /* iterate in reverse order until no set changes */
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int b = blockCount - 1; b >= 0; b--) {
+        BitSet out = new BitSet();
+        for (int s : flow.getSuccessors(flow.getBlockEnd(b))) {
+          out.or(blockLiveIn[flow.getBlockOf(s)]);
+        }
+        if (!out.equals(blockLiveOut[b])) {
+          blockLiveOut[b] = out;
+          BitSet in = (BitSet) out.clone();
+          in.andNot(kill[b]);
+          in.or(gen[b]);
+          blockLiveIn[b] = in;
+          changed = true;
+        }
+      }
+    }
+  }
+
+  private int[] toIndices(List<Register> regs) {
+    return regs.stream()
+        .filter(reg -> reg instanceof PseudoRegister)
+        .mapToInt(reg -> indexOf((PseudoRegister) reg))
+        .toArray();
+  }
+
+  private int indexOf(PseudoRegister reg) {
+    return registerIndex.computeIfAbsent(reg, r -> {
+      registers.add(r);
+      return registers.size() - 1;
+    });
+  }
+
+  public FunctionFlowGraph getFlow() {
+    return flow;
+  }
+
+  /* all pseudo registers appearing in the function, a register's position is its index in the sets */
+  public List<PseudoRegister> getRegisters() {
+    return registers;
+  }
+
+  public int getIndex(PseudoRegister reg) {
+    return registerIndex.get(reg);
+  }
+
+  public BitSet getBlockLiveIn(int block) {
+    return blockLiveIn[block];
+  }
+
+  public BitSet getBlockLiveOut(int block) {
+    return blockLiveOut[block];
+  }
+
+  /* visit every instruction, last to first within each block, with the registers live after it,
+   * the set is updated in place and must not be kept by the visitor */
+  public void forEachLiveOut(LiveOutVisitor visitor) {
+    for (int b = 0; b < flow.getBlockCount(); b++) {
+      BitSet live = (BitSet) blockLiveOut[b].clone();
+      for (int i = flow.getBlockEnd(b); i >= flow.getBlockStart(b); i--) {
+        visitor.visit(i, live);
+        for (int r : defs.get(i)) {
+          live.clear(r);
+        }
+        for (int r : uses.get(i)) {
+          live.set(r);
+        }
+      }
+    }
+  }
+
+  public interface LiveOutVisitor {
+
+    void visit(int index, BitSet liveOut);
+  }
+}
@@ -1,6 +1,7 @@
 package utils.backend.register;
 
-/* represent a pseudo register with infinite amount of register supplies, with labeling from T0 to Tn */
+/* represent a pseudo register with infinite amount of register supplies, with labeling from T0 to Tn
+ * each object is a distinct virtual register, the register allocator later maps it to an ARM register */
 public class PseudoRegister extends Register {
 
   private final String label;
@@ -9,4 +10,9 @@ public class PseudoRegister extends Register {
     this.label = "T" + num;
   }
 
+  @Override
+  public String toString() {
+    return label;
+  }
+
 }
@@ -1,26 +1,56 @@
 package utils.backend.register;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/* hands out PseudoRegister in the same stack-like discipline the generator used for concrete registers,
+ * but every allocate() returns a fresh virtual register, so the number of live values is unbounded */
 public class PseudoRegisterAllocator {
 
+  /* registers currently in use, the most recently allocated one on top */
+  private final Deque<PseudoRegister> registers;
+  /* register returned by next(), handed out on the following allocate() */
+  private PseudoRegister pending;
   private int counter;
 
   public PseudoRegisterAllocator() {
+    registers = new ArrayDeque<>();
+    pending = null;
     counter = 0;
   }
 
-  public PseudoRegister get() {
-    return new PseudoRegister(counter);
+  public PseudoRegister curr() {
+    return registers.peek();
+  }
+
+  public PseudoRegister last() {
+    Iterator<PseudoRegister> it = registers.iterator();
+    it.next();
+    return it.next();
   }
 
   public PseudoRegister next() {
-    return new PseudoRegister(counter + 1);
+    if (pending == null) {
+      pending = new PseudoRegister(counter++);
+    }
+    return pending;
   }
 
   public PseudoRegister allocate() {
-    return new PseudoRegister(counter++);
+    PseudoRegister reg = next();
+    pending = null;
+    registers.push(reg);
+    return reg;
   }
 
   public PseudoRegister free() {
-    return new PseudoRegister(counter--);
+    return registers.pop();
   }
+
+  /* a virtual register outside the allocation stack, e.g. for a variable held in register */
+  public PseudoRegister create() {
+    return new PseudoRegister(counter++);
+  }
+
 }
@@ -0,0 +1,28 @@
+package utils.backend.register;
+
+import backend.instructions.Instruction;
+import java.util.List;
+
+/* maps every PseudoRegister of one translated function onto ARM registers,
+ * spilling to the stack the values that cannot be kept in a register */
+public interface RegisterAllocator {
+
+  /* registers free for general use, r0 - r3 are reserved for arguments, results and routines */
+  List<ARMConcreteRegister> GENERAL_REGISTERS = List.of(
+      ARMConcreteRegister.r4, ARMConcreteRegister.r5, ARMConcreteRegister.r6,
+      ARMConcreteRegister.r7, ARMConcreteRegister.r8, ARMConcreteRegister.r9,
+      ARMConcreteRegister.r10, ARMConcreteRegister.r11, ARMConcreteRegister.r12);
+
+  /* registers holding the first parameters of a call, see MAX_REGISTER_PARAMS */
+  List<ARMConcreteRegister> PARAM_REGISTERS = List.of(
+      ARMConcreteRegister.r0, ARMConcreteRegister.r1, ARMConcreteRegister.r2, ARMConcreteRegister.r3);
+
+  /* registers a call may overwrite, r4 - r11 are saved by every function that uses them */
+  List<ARMConcreteRegister> CALLER_SAVED_REGISTERS = List.of(ARMConcreteRegister.r12);
+
+  /* registers that must be pushed on entry and popped on return if the function uses them */
+  List<ARMConcreteRegister> CALLEE_SAVED_REGISTERS = GENERAL_REGISTERS.subList(0, 8);
+
+  /* the function starts with its label and PUSH {lr}, and returns with POP {.., pc} */
+  List<Instruction> allocate(List<Instruction> function);
+}
@@ -0,0 +1,147 @@
+package utils.backend.register;
+
+import static utils.Utils.WORD_SIZE;
+import static utils.backend.register.ARMConcreteRegister.LR;
+import static utils.backend.register.ARMConcreteRegister.PC;
+import static utils.backend.register.ARMConcreteRegister.SP;
+
+import backend.instructions.Instruction;
+import backend.instructions.LDR;
+import backend.instructions.STR;
+import backend.instructions.addressing.Addressing;
+import backend.instructions.addressing.AddressingMode2;
+import backend.instructions.addressing.AddressingMode2.AddrMode2;
+import backend.instructions.arithmeticLogic.Add;
+import backend.instructions.memory.Pop;
+import backend.instructions.memory.Push;
+import backend.instructions.operand.Operand2;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import utils.backend.ImmediateLegalizer;
+
+/* stack frame of a function after register allocation:
+ *   params | lr | saved r4 - r11 | spill slots | locals | pushed temporaries
+ * spill slot i is at [sp, #(depth + 4 * i)], where depth is the number of bytes pushed since PUSH {lr} */
+public class StackFrame {
+
+  private int slots;
+  /* bytes inserted between lr and the locals, by which accesses to lr and the params move */
+  private int frameShift;
+  /* spill loads and stores, whose offsets already account for the spill area */
+  private final Set<Instruction> spillCode;
+
+  public StackFrame() {
+    slots = 0;
+    spillCode = Collections.newSetFromMap(new IdentityHashMap<>());
+  }
+
+  public int newSlot() {
+    return slots++;
+  }
+
+  public int getSpillSize() {
+    return slots * WORD_SIZE;
+  }
+
+  public Instruction load(Register reg, int slot, int depth) {
+    Instruction ldr = new LDR(reg, new AddressingMode2(AddrMode2.OFFSET, SP, depth + slot * WORD_SIZE));
+    spillCode.add(ldr);
+    return ldr;
+  }
+
+  public Instruction store(Register reg, int slot, int depth) {
+    Instruction str = new STR(reg, new AddressingMode2(AddrMode2.OFFSET, SP, depth + slot * WORD_SIZE));
+    spillCode.add(str);
+    return str;
+  }
+
+  /* save the used callee saved registers together with lr and restore them together with pc,
+   * reserve the spill area after the PUSH and release it before every POP {.., pc} or {.., lr},
+   * and move the accesses to lr and the params above it further away from sp */
+  public List<Instruction> reserve(List<Instruction> function,
+      Set<ARMConcreteRegister> usedRegisters) {
+    List<Register> saved = new ArrayList<>();
+    for (ARMConcreteRegister reg : RegisterAllocator.CALLEE_SAVED_REGISTERS) {
+      if (usedRegisters.contains(reg)) {
+        saved.add(reg);
+      }
+    }
+    if (slots == 0 && saved.isEmpty()) {
+      return function;
+    }
+    frameShift = getSpillSize() + saved.size() * WORD_SIZE;
+
+    FunctionFlowGraph flow = new FunctionFlowGraph(function);
+    int[] depth = flow.stackDepths();
+    int entry = flow.entryPushIndex();
+
+    List<Instruction> result = new ArrayList<>();
+    for (int i = 0; i < function.size(); i++) {
+      Instruction ins = function.get(i);
+      if (!spillCode.contains(ins) && depth[i] != FunctionFlowGraph.UNREACHABLE) {
+        ins = shiftFrameAccess(ins, depth[i]);
+      }
+      if (isFrameExit(ins)) {
+        result.addAll(adjustStack(false));
+        ins = new Pop(withSaved(saved, ((Pop) ins).getRegList()));
+      }
+      if (i == entry) {
+        ins = new Push(withSaved(saved, ((Push) ins).getRegList()));
+      }
+      result.add(ins);
+      if (i == entry) {
+        result.addAll(adjustStack(true));
+      }
+    }
+    return result;
+  }
+
+  /* POP {.., pc} returning, or POP {.., lr} before the branch of a tail call */
+  private static boolean isFrameExit(Instruction ins) {
+    return ins instanceof Pop
+        && (((Pop) ins).getRegList().contains(PC) || ((Pop) ins).getRegList().contains(LR));
+  }
+
+  private static List<Register> withSaved(List<Register> saved, List<Register> regList) {
+    List<Register> list = new ArrayList<>(saved);
+    list.addAll(regList);
+    return list;
+  }
+
+  private List<Instruction> adjustStack(boolean isReserve) {
+    return ImmediateLegalizer.changeStack(getSpillSize(), isReserve);
+  }
+
+  private Instruction shiftFrameAccess(Instruction ins, int depth) {
+    if (ins instanceof LDR || ins instanceof STR) {
+      Addressing addr = ins instanceof LDR ? ((LDR) ins).getAddr() : ((STR) ins).getAddr();
+      if (!(addr instanceof AddressingMode2)) {
+        return ins;
+      }
+      AddressingMode2 mode2 = (AddressingMode2) addr;
+      if (mode2.isWriteBack() || !SP.equals(mode2.getRn()) || mode2.getRm() != null) {
+        return ins;
+      }
+      int offset = mode2.getImmed() == null ? 0 : mode2.getImmed().getVal();
+      if (offset < depth) {
+        return ins;
+      }
+      AddressingMode2 shifted = new AddressingMode2(AddrMode2.OFFSET, SP, offset + frameShift);
+      return ins instanceof LDR
+          ? new LDR(((LDR) ins).getRegister(), shifted, ((LDR) ins).getMode())
+          : new STR(((STR) ins).getSrcReg(), shifted, ((STR) ins).getMode());
+    }
+    if (ins instanceof Add) {
+      Add add = (Add) ins;
+      Operand2 op2 = add.getOperand2();
+      if (SP.equals(add.getRn()) && !SP.equals(add.getRd()) && op2.getRegister() == null
+          && op2.getImmed() != null && op2.getImmed().getVal() >= depth) {
+        return new Add(add.getRd(), SP, new Operand2(op2.getImmed().getVal() + frameShift));
+      }
+    }
+    return ins;
+  }
+}
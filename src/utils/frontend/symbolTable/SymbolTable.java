@@ -47,6 +47,17 @@ public class SymbolTable {
     return false;
   }
 
+  /* a variable living in a register only, taking no space in the stack frame */
+  public boolean addWithoutSlot(String name, ExprNode expr) {
+    if (dictionary.containsKey(name)) {
+      SemanticErrorHandler.symbolRedeclared(null, name);
+      return true;
+    }
+
+    this.dictionary.put(name, new Symbol(expr, scopeSize));
+    return false;
+  }
+
   public Symbol lookup(String name) {
     // System.out.println("looking up " + name + dictionary.get(name).getStackOffset());
     return dictionary.get(name);